@@ -3,9 +3,11 @@ package com.hotelbooker;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.data.jpa.repository.config.EnableJpaAuditing;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 @SpringBootApplication
 @EnableJpaAuditing
+@EnableScheduling
 public class HotelBookingApplication {
     public static void main(String[] args) {
         SpringApplication.run(HotelBookingApplication.class, args);
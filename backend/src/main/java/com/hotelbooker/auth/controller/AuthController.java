@@ -2,6 +2,7 @@ package com.hotelbooker.auth.controller;
 
 import com.hotelbooker.auth.dto.AuthResponse;
 import com.hotelbooker.auth.dto.LoginRequest;
+import com.hotelbooker.auth.dto.RefreshTokenRequest;
 import com.hotelbooker.auth.dto.RegisterRequest;
 import com.hotelbooker.auth.service.AuthService;
 import com.hotelbooker.common.dto.ApiResponse;
@@ -10,6 +11,8 @@ import lombok.RequiredArgsConstructor;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.util.concurrent.CompletableFuture;
+
 @RestController
 @RequestMapping("/auth")
 @RequiredArgsConstructor
@@ -18,18 +21,34 @@ public class AuthController {
     private final AuthService authService;
     
     @PostMapping("/register")
-    public ResponseEntity<ApiResponse<AuthResponse>> register(
+    public CompletableFuture<ResponseEntity<ApiResponse<AuthResponse>>> register(
             @Valid @RequestBody RegisterRequest request
     ) {
-        AuthResponse response = authService.register(request);
-        return ResponseEntity.ok(ApiResponse.success("Registration successful", response));
+        return authService.register(request)
+                .thenApply(response -> ResponseEntity.ok(ApiResponse.success("Registration successful", response)));
     }
     
     @PostMapping("/login")
-    public ResponseEntity<ApiResponse<AuthResponse>> login(
+    public CompletableFuture<ResponseEntity<ApiResponse<AuthResponse>>> login(
             @Valid @RequestBody LoginRequest request
     ) {
-        AuthResponse response = authService.login(request);
-        return ResponseEntity.ok(ApiResponse.success("Login successful", response));
+        return authService.login(request)
+                .thenApply(response -> ResponseEntity.ok(ApiResponse.success("Login successful", response)));
+    }
+    
+    @PostMapping("/refresh")
+    public ResponseEntity<ApiResponse<AuthResponse>> refresh(
+            @Valid @RequestBody RefreshTokenRequest request
+    ) {
+        AuthResponse response = authService.refresh(request);
+        return ResponseEntity.ok(ApiResponse.success("Token refreshed", response));
+    }
+    
+    @PostMapping("/logout")
+    public ResponseEntity<ApiResponse<Void>> logout(
+            @Valid @RequestBody RefreshTokenRequest request
+    ) {
+        authService.logout(request);
+        return ResponseEntity.ok(ApiResponse.success("Logged out", null));
     }
 }
@@ -12,6 +12,7 @@ import java.util.List;
 
 @Entity
 @Table(name = "users")
+@EntityListeners(UserEntityListener.class)
 @Getter
 @Setter
 @NoArgsConstructor
@@ -0,0 +1,14 @@
+package com.hotelbooker.auth.entity;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Published whenever a user row is updated or deleted through JPA, so cached
+ * identities can be dropped after commit.
+ */
+@Getter
+@RequiredArgsConstructor
+public class UserChangedEvent {
+    private final String userId;
+}
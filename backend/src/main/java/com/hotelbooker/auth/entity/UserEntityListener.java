@@ -0,0 +1,20 @@
+package com.hotelbooker.auth.entity;
+
+import jakarta.persistence.PostRemove;
+import jakarta.persistence.PostUpdate;
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Component;
+
+@Component
+@RequiredArgsConstructor
+public class UserEntityListener {
+    
+    private final ApplicationEventPublisher eventPublisher;
+    
+    @PostUpdate
+    @PostRemove
+    public void onChanged(User user) {
+        eventPublisher.publishEvent(new UserChangedEvent(user.getId()));
+    }
+}
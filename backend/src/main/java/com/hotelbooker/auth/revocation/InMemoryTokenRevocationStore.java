@@ -0,0 +1,66 @@
+package com.hotelbooker.auth.revocation;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+/**
+ * Single-instance store for tests and local runs without Redis.
+ */
+@Component
+@ConditionalOnProperty(name = "hotelbooker.auth.revocation.store", havingValue = "memory")
+public class InMemoryTokenRevocationStore implements TokenRevocationStore {
+    
+    private final Map<String, Long> revoked = new ConcurrentHashMap<>();
+    private final Map<String, Long> spent = new ConcurrentHashMap<>();
+    
+    @Override
+    public boolean revoke(String id, Duration ttl) {
+        return addIfAbsent(revoked, id, ttl);
+    }
+    
+    @Override
+    public boolean markSpent(String id, Duration ttl) {
+        long now = System.currentTimeMillis();
+        if (spent.size() % 1024 == 0) {
+            spent.values().removeIf(expiresAt -> expiresAt <= now);
+        }
+        return addIfAbsent(spent, id, ttl);
+    }
+    
+    @Override
+    public boolean isRevoked(String id) {
+        Long expiresAt = revoked.get(id);
+        return expiresAt != null && expiresAt > System.currentTimeMillis();
+    }
+    
+    @Override
+    public void forEachRevoked(Consumer<String> action) {
+        long now = System.currentTimeMillis();
+        revoked.values().removeIf(expiresAt -> expiresAt <= now);
+        revoked.keySet().forEach(action);
+    }
+    
+    @Override
+    public void onRemoteRevocation(Consumer<String> listener) {
+        // Single instance: there are no remote revocations
+    }
+    
+    private static boolean addIfAbsent(Map<String, Long> entries, String id, Duration ttl) {
+        long now = System.currentTimeMillis();
+        long expiresAt = now + ttl.toMillis();
+        boolean[] added = {false};
+        entries.compute(id, (key, current) -> {
+            if (current != null && current > now) {
+                return current;
+            }
+            added[0] = true;
+            return expiresAt;
+        });
+        return added[0];
+    }
+}
@@ -0,0 +1,69 @@
+package com.hotelbooker.auth.revocation;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.redis.core.Cursor;
+import org.springframework.data.redis.core.ScanOptions;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.function.Consumer;
+
+/**
+ * Revocations as {@code revoked:<id>} keys with a TTL. Every new revocation is
+ * also published on a channel so other instances can update their Bloom filters.
+ */
+@Component
+@ConditionalOnProperty(name = "hotelbooker.auth.revocation.store", havingValue = "redis", matchIfMissing = true)
+public class RedisTokenRevocationStore implements TokenRevocationStore {
+    
+    private static final String PREFIX = "revoked:";
+    private static final String SPENT_PREFIX = "spent:";
+    private static final String CHANNEL = "token-revocations";
+    
+    private final StringRedisTemplate redisTemplate;
+    private final RedisMessageListenerContainer listenerContainer;
+    
+    public RedisTokenRevocationStore(StringRedisTemplate redisTemplate,
+                                     RedisMessageListenerContainer listenerContainer) {
+        this.redisTemplate = redisTemplate;
+        this.listenerContainer = listenerContainer;
+    }
+    
+    @Override
+    public boolean revoke(String id, Duration ttl) {
+        boolean added = Boolean.TRUE.equals(redisTemplate.opsForValue().setIfAbsent(PREFIX + id, "1", ttl));
+        if (added) {
+            redisTemplate.convertAndSend(CHANNEL, id);
+        }
+        return added;
+    }
+    
+    @Override
+    public boolean markSpent(String id, Duration ttl) {
+        return Boolean.TRUE.equals(redisTemplate.opsForValue().setIfAbsent(SPENT_PREFIX + id, "1", ttl));
+    }
+    
+    @Override
+    public boolean isRevoked(String id) {
+        return Boolean.TRUE.equals(redisTemplate.hasKey(PREFIX + id));
+    }
+    
+    @Override
+    public void forEachRevoked(Consumer<String> action) {
+        ScanOptions options = ScanOptions.scanOptions().match(PREFIX + "*").count(1000).build();
+        try (Cursor<String> keys = redisTemplate.scan(options)) {
+            keys.forEachRemaining(key -> action.accept(key.substring(PREFIX.length())));
+        }
+    }
+    
+    @Override
+    public void onRemoteRevocation(Consumer<String> listener) {
+        listenerContainer.addMessageListener(
+                (message, pattern) -> listener.accept(new String(message.getBody(), StandardCharsets.UTF_8)),
+                new ChannelTopic(CHANNEL));
+    }
+}
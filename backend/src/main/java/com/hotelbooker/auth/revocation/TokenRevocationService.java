@@ -0,0 +1,124 @@
+package com.hotelbooker.auth.revocation;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+
+/**
+ * Answers "has this token been revoked?" on every authenticated request.
+ * <p>
+ * Revoked token ids and families are mirrored into a local {@link BloomFilter},
+ * so a token that was never revoked - nearly all of them - is cleared without a
+ * network hop. Only Bloom hits, real or false positive, are confirmed against the
+ * {@link TokenRevocationStore}. The filter is filled from the store on startup,
+ * kept current from local and remote revocations, and rebuilt periodically so
+ * expired entries stop counting against the false-positive rate.
+ */
+@Service
+@Slf4j
+public class TokenRevocationService {
+    
+    private static final String FAMILY_PREFIX = "fam:";
+    
+    private final TokenRevocationStore store;
+    private final long expectedRevocations;
+    private final double falsePositiveRate;
+    private final Duration familyTtl;
+    
+    private volatile BloomFilter filter;
+    private volatile BloomFilter rebuilding;
+    private volatile boolean ready;
+    
+    public TokenRevocationService(TokenRevocationStore store,
+                                  @Value("${hotelbooker.auth.revocation.expected-revocations:1000000}") long expectedRevocations,
+                                  @Value("${hotelbooker.auth.revocation.false-positive-rate:0.01}") double falsePositiveRate,
+                                  @Value("${jwt.refresh-expiration}") long refreshExpiration) {
+        this.store = store;
+        this.expectedRevocations = expectedRevocations;
+        this.falsePositiveRate = falsePositiveRate;
+        this.familyTtl = Duration.ofMillis(refreshExpiration);
+        this.filter = new BloomFilter(expectedRevocations, falsePositiveRate);
+        store.onRemoteRevocation(this::markRevoked);
+    }
+    
+    /**
+     * Returns true if the token itself or its whole family has been revoked.
+     * Fails closed: if the filter hits and the store can't be reached, the
+     * token is treated as revoked.
+     */
+    public boolean isRevoked(String tokenId, String family) {
+        return (tokenId != null && isRevoked(tokenId)) || isFamilyRevoked(family);
+    }
+    
+    public boolean isFamilyRevoked(String family) {
+        return family != null && isRevoked(FAMILY_PREFIX + family);
+    }
+    
+    /**
+     * Marks a single-use token as spent. Returns false if it had already been
+     * spent, which for a refresh token means it was replayed. Spent ids are kept
+     * apart from revocations and out of the filter, so routine rotation doesn't
+     * use up its capacity.
+     */
+    public boolean consume(String tokenId, Duration remainingLifetime) {
+        return store.markSpent(tokenId, remainingLifetime);
+    }
+    
+    public void revokeFamily(String family) {
+        store.revoke(FAMILY_PREFIX + family, familyTtl);
+        markRevoked(FAMILY_PREFIX + family);
+    }
+    
+    @EventListener(ApplicationReadyEvent.class)
+    public void bootstrap() {
+        rebuild();
+    }
+    
+    @Scheduled(
+            initialDelayString = "${hotelbooker.auth.revocation.rebuild-interval:PT1H}",
+            fixedDelayString = "${hotelbooker.auth.revocation.rebuild-interval:PT1H}"
+    )
+    public synchronized void rebuild() {
+        BloomFilter next = new BloomFilter(expectedRevocations, falsePositiveRate);
+        rebuilding = next;
+        try {
+            int[] count = {0};
+            store.forEachRevoked(id -> {
+                next.put(id);
+                count[0]++;
+            });
+            filter = next;
+            ready = true;
+            log.info("Loaded {} revoked tokens into the revocation filter", count[0]);
+        } catch (RuntimeException e) {
+            log.error("Failed to rebuild the token revocation filter", e);
+        } finally {
+            rebuilding = null;
+        }
+    }
+    
+    private boolean isRevoked(String id) {
+        if (ready && !filter.mightContain(id)) {
+            return false;
+        }
+        try {
+            return store.isRevoked(id);
+        } catch (RuntimeException e) {
+            log.warn("Token revocation store unavailable, rejecting token", e);
+            return true;
+        }
+    }
+    
+    private void markRevoked(String id) {
+        filter.put(id);
+        BloomFilter next = rebuilding;
+        if (next != null) {
+            next.put(id);
+        }
+    }
+}
@@ -0,0 +1,33 @@
+package com.hotelbooker.auth.revocation;
+
+import java.time.Duration;
+import java.util.function.Consumer;
+
+/**
+ * Shared set of revoked token ids (jti) and token families, each kept until the
+ * last token it could affect has expired anyway. Spent refresh token ids live in
+ * a separate set: every rotation adds one, so they are never published or
+ * listed, and stay out of the revocation Bloom filter.
+ */
+public interface TokenRevocationStore {
+    
+    /**
+     * Revokes {@code id}; returns false if it was already revoked.
+     */
+    boolean revoke(String id, Duration ttl);
+    
+    /**
+     * Marks a single-use token id as spent; returns false if it already was.
+     * Refresh rotation relies on this being atomic to detect a token being used twice.
+     */
+    boolean markSpent(String id, Duration ttl);
+    
+    boolean isRevoked(String id);
+    
+    void forEachRevoked(Consumer<String> action);
+    
+    /**
+     * Registers a callback for revocations made by other instances.
+     */
+    void onRemoteRevocation(Consumer<String> listener);
+}
@@ -1,5 +1,9 @@
 package com.hotelbooker.auth.security;
 
+import com.hotelbooker.auth.revocation.TokenRevocationService;
+import com.hotelbooker.auth.service.UserCache;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtException;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
@@ -8,8 +12,6 @@ import lombok.RequiredArgsConstructor;
 import org.springframework.lang.NonNull;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.context.SecurityContextHolder;
-import org.springframework.security.core.userdetails.UserDetails;
-import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.web.authentication.WebAuthenticationDetailsSource;
 import org.springframework.stereotype.Component;
 import org.springframework.web.filter.OncePerRequestFilter;
@@ -21,7 +23,8 @@ import java.io.IOException;
 public class JwtAuthenticationFilter extends OncePerRequestFilter {
     
     private final JwtService jwtService;
-    private final UserDetailsService userDetailsService;
+    private final UserCache userCache;
+    private final TokenRevocationService revocationService;
     
     @Override
     protected void doFilterInternal(
@@ -30,25 +33,40 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
             @NonNull FilterChain filterChain
     ) throws ServletException, IOException {
         final String authHeader = request.getHeader("Authorization");
-        final String jwt;
-        final String userEmail;
         
         if (authHeader == null || !authHeader.startsWith("Bearer ")) {
             filterChain.doFilter(request, response);
             return;
         }
         
-        jwt = authHeader.substring(7);
-        userEmail = jwtService.extractUsername(jwt);
-        
-        if (userEmail != null && SecurityContextHolder.getContext().getAuthentication() == null) {
-            UserDetails userDetails = this.userDetailsService.loadUserByUsername(userEmail);
+        if (SecurityContextHolder.getContext().getAuthentication() == null) {
+            Claims claims;
+            try {
+                claims = jwtService.parseVerified(authHeader.substring(7));
+            } catch (JwtException e) {
+                // Invalid or expired tokens leave the request unauthenticated
+                filterChain.doFilter(request, response);
+                return;
+            }
+            
+            // Refresh tokens are only good at /auth/refresh, and revoked tokens not at all
+            if (jwtService.isRefreshToken(claims)
+                    || revocationService.isRevoked(claims.getId(), claims.get(JwtService.FAMILY_CLAIM, String.class))) {
+                filterChain.doFilter(request, response);
+                return;
+            }
+            
+            // Identity comes from the signed claims; only legacy tokens without them hit the user cache
+            UserPrincipal principal = jwtService.extractPrincipal(claims);
+            if (principal == null) {
+                principal = userCache.findByEmail(claims.getSubject()).orElse(null);
+            }
             
-            if (jwtService.isTokenValid(jwt, userDetails)) {
+            if (principal != null) {
                 UsernamePasswordAuthenticationToken authToken = new UsernamePasswordAuthenticationToken(
-                        userDetails,
+                        principal,
                         null,
-                        userDetails.getAuthorities()
+                        principal.getAuthorities()
                 );
                 authToken.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
                 SecurityContextHolder.getContext().setAuthentication(authToken);
@@ -1,51 +1,153 @@
 package com.hotelbooker.auth.security;
 
+import com.hotelbooker.auth.entity.User;
 import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtException;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
-import io.jsonwebtoken.SignatureAlgorithm;
 import io.jsonwebtoken.io.Decoders;
 import io.jsonwebtoken.security.Keys;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.stereotype.Service;
 
-import java.security.Key;
+import javax.crypto.SecretKey;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.Function;
 
 @Service
 public class JwtService {
     
-    @Value("${jwt.secret}")
-    private String secretKey;
+    public static final String USER_ID_CLAIM = "uid";
+    public static final String ROLE_CLAIM = "role";
+    public static final String FAMILY_CLAIM = "fam";
+    public static final String TOKEN_TYPE_CLAIM = "typ";
+    public static final String REFRESH_TOKEN_TYPE = "refresh";
     
-    @Value("${jwt.expiration}")
-    private long jwtExpiration;
+    private static final ThreadLocal<MessageDigest> SHA_256 = ThreadLocal.withInitial(() -> {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    });
     
-    @Value("${jwt.refresh-expiration}")
-    private long refreshExpiration;
+    private final SecretKey signInKey;
+    private final JwtParser parser;
+    private final long jwtExpiration;
+    private final long refreshExpiration;
+    private final int verifiedCacheSize;
+    
+    // Recently verified tokens by SHA-256 digest; entries expire with their token
+    private final Map<String, VerifiedToken> verifiedTokens = new ConcurrentHashMap<>();
+    
+    public JwtService(@Value("${jwt.secret}") String secretKey,
+                      @Value("${jwt.expiration}") long jwtExpiration,
+                      @Value("${jwt.refresh-expiration}") long refreshExpiration,
+                      @Value("${jwt.verified-cache-size:10000}") int verifiedCacheSize) {
+        this.signInKey = Keys.hmacShaKeyFor(Decoders.BASE64.decode(secretKey));
+        this.parser = Jwts.parser().verifyWith(signInKey).build();
+        this.jwtExpiration = jwtExpiration;
+        this.refreshExpiration = refreshExpiration;
+        this.verifiedCacheSize = verifiedCacheSize;
+    }
+    
+    /**
+     * Verifies the signature and expiry of {@code token} and returns its claims.
+     * A token seen recently is answered from the verified-token cache without
+     * parsing it again.
+     *
+     * @throws JwtException if the token is malformed, tampered with or expired
+     */
+    public Claims parseVerified(String token) {
+        String digest = digest(token);
+        long now = System.currentTimeMillis();
+        VerifiedToken cached = verifiedTokens.get(digest);
+        if (cached != null) {
+            if (cached.expiresAt > now) {
+                return cached.claims;
+            }
+            verifiedTokens.remove(digest);
+        }
+        
+        Claims claims = parser.parseSignedClaims(token).getPayload();
+        if (verifiedCacheSize > 0 && claims.getExpiration() != null) {
+            makeRoom(now);
+            verifiedTokens.put(digest, new VerifiedToken(claims, claims.getExpiration().getTime()));
+        }
+        return claims;
+    }
+    
+    /**
+     * Rebuilds the principal from verified claims. Returns null for tokens issued
+     * before the uid/role claims existed, which then need a user lookup.
+     */
+    public UserPrincipal extractPrincipal(Claims claims) {
+        String userId = claims.get(USER_ID_CLAIM, String.class);
+        String role = claims.get(ROLE_CLAIM, String.class);
+        if (userId == null || role == null) {
+            return null;
+        }
+        return new UserPrincipal(userId, claims.getSubject(), User.Role.valueOf(role));
+    }
     
     public String extractUsername(String token) {
         return extractClaim(token, Claims::getSubject);
     }
     
     public <T> T extractClaim(String token, Function<Claims, T> claimsResolver) {
-        final Claims claims = extractAllClaims(token);
-        return claimsResolver.apply(claims);
+        return claimsResolver.apply(parseVerified(token));
+    }
+    
+    public String generateToken(User user) {
+        return generateToken(user, newFamily());
+    }
+    
+    public String generateToken(User user, String family) {
+        return generateToken(new HashMap<>(), user, family);
+    }
+    
+    public String generateToken(Map<String, Object> extraClaims, User user, String family) {
+        return buildToken(withIdentity(extraClaims, user, family), user, jwtExpiration);
+    }
+    
+    public String generateRefreshToken(User user, String family) {
+        Map<String, Object> claims = new HashMap<>();
+        claims.put(TOKEN_TYPE_CLAIM, REFRESH_TOKEN_TYPE);
+        return buildToken(withIdentity(claims, user, family), user, refreshExpiration);
     }
     
-    public String generateToken(UserDetails userDetails) {
-        return generateToken(new HashMap<>(), userDetails);
+    /**
+     * Starts a new token family. Every access and refresh token issued from one
+     * login shares its family, so the whole chain can be revoked at once.
+     */
+    public String newFamily() {
+        return UUID.randomUUID().toString();
     }
     
-    public String generateToken(Map<String, Object> extraClaims, UserDetails userDetails) {
-        return buildToken(extraClaims, userDetails, jwtExpiration);
+    public boolean isRefreshToken(Claims claims) {
+        return REFRESH_TOKEN_TYPE.equals(claims.get(TOKEN_TYPE_CLAIM, String.class));
     }
     
-    public String generateRefreshToken(UserDetails userDetails) {
-        return buildToken(new HashMap<>(), userDetails, refreshExpiration);
+    public long getRefreshExpiration() {
+        return refreshExpiration;
+    }
+    
+    private Map<String, Object> withIdentity(Map<String, Object> claims, User user, String family) {
+        Map<String, Object> identity = new HashMap<>(claims);
+        identity.put(USER_ID_CLAIM, user.getId());
+        identity.put(ROLE_CLAIM, user.getRole().name());
+        identity.put(FAMILY_CLAIM, family);
+        return identity;
     }
     
     private String buildToken(
@@ -55,38 +157,40 @@ public class JwtService {
     ) {
         return Jwts
                 .builder()
-                .setClaims(extraClaims)
-                .setSubject(userDetails.getUsername())
-                .setIssuedAt(new Date(System.currentTimeMillis()))
-                .setExpiration(new Date(System.currentTimeMillis() + expiration))
-                .signWith(getSignInKey(), SignatureAlgorithm.HS256)
+                .claims(extraClaims)
+                .id(UUID.randomUUID().toString())
+                .subject(userDetails.getUsername())
+                .issuedAt(new Date(System.currentTimeMillis()))
+                .expiration(new Date(System.currentTimeMillis() + expiration))
+                .signWith(signInKey, Jwts.SIG.HS256)
                 .compact();
     }
     
     public boolean isTokenValid(String token, UserDetails userDetails) {
-        final String username = extractUsername(token);
-        return (username.equals(userDetails.getUsername())) && !isTokenExpired(token);
+        try {
+            return parseVerified(token).getSubject().equals(userDetails.getUsername());
+        } catch (JwtException e) {
+            return false;
+        }
     }
     
-    private boolean isTokenExpired(String token) {
-        return extractExpiration(token).before(new Date());
+    private void makeRoom(long now) {
+        if (verifiedTokens.size() < verifiedCacheSize) {
+            return;
+        }
+        verifiedTokens.values().removeIf(entry -> entry.expiresAt <= now);
+        Iterator<String> it = verifiedTokens.keySet().iterator();
+        while (verifiedTokens.size() >= verifiedCacheSize && it.hasNext()) {
+            it.next();
+            it.remove();
+        }
     }
     
-    private Date extractExpiration(String token) {
-        return extractClaim(token, Claims::getExpiration);
-    }
-    
-    private Claims extractAllClaims(String token) {
-        return Jwts
-                .parser()
-                .setSigningKey(getSignInKey())
-                .build()
-                .parseClaimsJws(token)
-                .getBody();
+    private static String digest(String token) {
+        byte[] hash = SHA_256.get().digest(token.getBytes(StandardCharsets.US_ASCII));
+        return Base64.getEncoder().withoutPadding().encodeToString(hash);
     }
     
-    private Key getSignInKey() {
-        byte[] keyBytes = Decoders.BASE64.decode(secretKey);
-        return Keys.hmacShaKeyFor(keyBytes);
+    private record VerifiedToken(Claims claims, long expiresAt) {
     }
 }
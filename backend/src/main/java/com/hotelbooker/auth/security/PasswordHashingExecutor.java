@@ -0,0 +1,65 @@
+package com.hotelbooker.auth.security;
+
+import com.hotelbooker.common.exception.ServiceBusyException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.jvm.ExecutorServiceMetrics;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Small, bounded pool that runs BCrypt hashing and verification off the Tomcat
+ * request threads. When every worker is busy and the queue is full, new work is
+ * rejected straight away with {@link ServiceBusyException} rather than queueing
+ * behind a login storm. Queue depth, active workers and rejections are exported
+ * as {@code executor.*{name=password-hashing}} and {@code auth.password.rejected}.
+ */
+@Component
+public class PasswordHashingExecutor {
+    
+    private final ThreadPoolExecutor executor;
+    private final ExecutorService monitored;
+    private final Counter rejected;
+    
+    public PasswordHashingExecutor(MeterRegistry meterRegistry,
+                                   @Value("${hotelbooker.auth.password.threads:4}") int threads,
+                                   @Value("${hotelbooker.auth.password.queue-capacity:64}") int queueCapacity) {
+        AtomicInteger count = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "password-hashing-" + count.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+        this.monitored = ExecutorServiceMetrics.monitor(meterRegistry, executor, "password-hashing");
+        this.rejected = Counter.builder("auth.password.rejected")
+                .description("Password hashing tasks rejected because the pool was saturated")
+                .register(meterRegistry);
+    }
+    
+    public <T> CompletableFuture<T> submit(Supplier<T> task) {
+        try {
+            return CompletableFuture.supplyAsync(task, monitored);
+        } catch (RejectedExecutionException e) {
+            rejected.increment();
+            throw new ServiceBusyException("Too many sign-in requests, please try again shortly");
+        }
+    }
+    
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
+    }
+}
@@ -3,13 +3,21 @@ package com.hotelbooker.auth.service;
 import com.hotelbooker.auth.dto.*;
 import com.hotelbooker.auth.entity.User;
 import com.hotelbooker.auth.repository.UserRepository;
+import com.hotelbooker.auth.revocation.TokenRevocationService;
 import com.hotelbooker.auth.security.JwtService;
+import com.hotelbooker.auth.security.PasswordHashingExecutor;
+import com.hotelbooker.common.exception.InvalidTokenException;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtException;
 import lombok.RequiredArgsConstructor;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+
 @Service
 @RequiredArgsConstructor
 public class AuthService {
@@ -18,8 +26,22 @@ public class AuthService {
     private final PasswordEncoder passwordEncoder;
     private final JwtService jwtService;
     private final AuthenticationManager authenticationManager;
+    private final PasswordHashingExecutor passwordHashingExecutor;
+    private final TokenRevocationService revocationService;
+    
+    /**
+     * Registration and login hash or verify a BCrypt password, so both run on the
+     * bounded {@link PasswordHashingExecutor} instead of the request thread.
+     */
+    public CompletableFuture<AuthResponse> register(RegisterRequest request) {
+        return passwordHashingExecutor.submit(() -> doRegister(request));
+    }
     
-    public AuthResponse register(RegisterRequest request) {
+    public CompletableFuture<AuthResponse> login(LoginRequest request) {
+        return passwordHashingExecutor.submit(() -> doLogin(request));
+    }
+    
+    private AuthResponse doRegister(RegisterRequest request) {
         if (userRepository.existsByEmail(request.getEmail())) {
             throw new RuntimeException("Email already registered");
         }
@@ -34,17 +56,10 @@ public class AuthService {
         
         userRepository.save(user);
         
-        String accessToken = jwtService.generateToken(user);
-        String refreshToken = jwtService.generateRefreshToken(user);
-        
-        return AuthResponse.builder()
-                .accessToken(accessToken)
-                .refreshToken(refreshToken)
-                .user(mapToUserDto(user))
-                .build();
+        return issueTokens(user, jwtService.newFamily());
     }
     
-    public AuthResponse login(LoginRequest request) {
+    private AuthResponse doLogin(LoginRequest request) {
         authenticationManager.authenticate(
                 new UsernamePasswordAuthenticationToken(
                         request.getEmail(),
@@ -55,8 +70,55 @@ public class AuthService {
         User user = userRepository.findByEmail(request.getEmail())
                 .orElseThrow(() -> new RuntimeException("User not found"));
         
-        String accessToken = jwtService.generateToken(user);
-        String refreshToken = jwtService.generateRefreshToken(user);
+        return issueTokens(user, jwtService.newFamily());
+    }
+    
+    /**
+     * Exchanges a refresh token for a new access/refresh pair in the same family.
+     * Each refresh token is single-use: presenting one that was already rotated
+     * means it leaked, so the whole family is revoked and the holder, legitimate
+     * or not, has to log in again.
+     */
+    public AuthResponse refresh(RefreshTokenRequest request) {
+        Claims claims = parseRefreshToken(request.getRefreshToken());
+        String family = claims.get(JwtService.FAMILY_CLAIM, String.class);
+        if (revocationService.isFamilyRevoked(family)) {
+            throw new InvalidTokenException("Refresh token has been revoked");
+        }
+        
+        Duration remaining = Duration.ofMillis(Math.max(1, claims.getExpiration().getTime() - System.currentTimeMillis()));
+        if (!revocationService.consume(claims.getId(), remaining)) {
+            revocationService.revokeFamily(family);
+            throw new InvalidTokenException("Refresh token reuse detected");
+        }
+        
+        User user = userRepository.findById(claims.get(JwtService.USER_ID_CLAIM, String.class))
+                .orElseThrow(() -> new InvalidTokenException("User no longer exists"));
+        return issueTokens(user, family);
+    }
+    
+    public void logout(RefreshTokenRequest request) {
+        Claims claims = parseRefreshToken(request.getRefreshToken());
+        revocationService.revokeFamily(claims.get(JwtService.FAMILY_CLAIM, String.class));
+    }
+    
+    private Claims parseRefreshToken(String token) {
+        Claims claims;
+        try {
+            claims = jwtService.parseVerified(token);
+        } catch (JwtException e) {
+            throw new InvalidTokenException("Invalid or expired refresh token");
+        }
+        if (!jwtService.isRefreshToken(claims) || claims.getId() == null
+                || claims.get(JwtService.FAMILY_CLAIM, String.class) == null) {
+            throw new InvalidTokenException("Invalid or expired refresh token");
+        }
+        return claims;
+    }
+    
+    private AuthResponse issueTokens(User user, String family) {
+        String accessToken = jwtService.generateToken(user, family);
+        String refreshToken = jwtService.generateRefreshToken(user, family);
         
         return AuthResponse.builder()
                 .accessToken(accessToken)
@@ -0,0 +1,59 @@
+package com.hotelbooker.auth.service;
+
+import com.hotelbooker.auth.entity.UserChangedEvent;
+import com.hotelbooker.auth.repository.UserRepository;
+import com.hotelbooker.auth.security.UserPrincipal;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Bounded LRU of identities by email, for tokens that predate the uid/role claims.
+ * Entries are immutable {@link UserPrincipal} snapshots and are dropped as soon as
+ * the user's row changes.
+ */
+@Component
+public class UserCache {
+    
+    private final UserRepository userRepository;
+    private final Map<String, UserPrincipal> principals;
+    
+    public UserCache(UserRepository userRepository,
+                     @Value("${hotelbooker.auth.user-cache.max-size:10000}") int maxSize) {
+        this.userRepository = userRepository;
+        this.principals = new LinkedHashMap<>(256, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, UserPrincipal> eldest) {
+                return size() > maxSize;
+            }
+        };
+    }
+    
+    public Optional<UserPrincipal> findByEmail(String email) {
+        synchronized (principals) {
+            UserPrincipal cached = principals.get(email);
+            if (cached != null) {
+                return Optional.of(cached);
+            }
+        }
+        
+        Optional<UserPrincipal> loaded = userRepository.findByEmail(email).map(UserPrincipal::from);
+        loaded.ifPresent(principal -> {
+            synchronized (principals) {
+                principals.put(email, principal);
+            }
+        });
+        return loaded;
+    }
+    
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onUserChanged(UserChangedEvent event) {
+        synchronized (principals) {
+            principals.values().removeIf(principal -> principal.getId().equals(event.getUserId()));
+        }
+    }
+}
@@ -1,15 +1,19 @@
 package com.hotelbooker.booking.controller;
 
+import com.hotelbooker.booking.dto.BookingBatchDto;
 import com.hotelbooker.booking.dto.BookingDto;
+import com.hotelbooker.booking.dto.CreateBookingBatchRequest;
 import com.hotelbooker.booking.dto.CreateBookingRequest;
 import com.hotelbooker.booking.service.BookingService;
 import com.hotelbooker.common.dto.ApiResponse;
+import com.hotelbooker.common.dto.CursorPage;
+import com.hotelbooker.common.idempotency.IdempotencyService;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
-
-import java.util.List;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 @RestController
 @RequestMapping("/bookings")
@@ -17,18 +21,34 @@ import java.util.List;
 public class BookingController {
     
     private final BookingService bookingService;
+    private final IdempotencyService idempotencyService;
     
     @PostMapping
     public ResponseEntity<ApiResponse<BookingDto>> createBooking(
-            @Valid @RequestBody CreateBookingRequest request
+            @Valid @RequestBody CreateBookingRequest request,
+            @RequestHeader(value = IdempotencyService.HEADER, required = false) String idempotencyKey
     ) {
-        BookingDto booking = bookingService.createBooking(request);
+        BookingDto booking = idempotencyService.execute("create-booking", idempotencyKey, request, BookingDto.class,
+                () -> bookingService.createBooking(request));
         return ResponseEntity.ok(ApiResponse.success("Booking created successfully", booking));
     }
     
+    @PostMapping("/batch")
+    public ResponseEntity<ApiResponse<BookingBatchDto>> createBookings(
+            @Valid @RequestBody CreateBookingBatchRequest request,
+            @RequestHeader(value = IdempotencyService.HEADER, required = false) String idempotencyKey
+    ) {
+        BookingBatchDto bookings = idempotencyService.execute("create-bookings", idempotencyKey, request,
+                BookingBatchDto.class, () -> bookingService.createBookings(request));
+        return ResponseEntity.ok(ApiResponse.success("Bookings created successfully", bookings));
+    }
+    
     @GetMapping
-    public ResponseEntity<ApiResponse<List<BookingDto>>> getUserBookings() {
-        List<BookingDto> bookings = bookingService.getUserBookings();
+    public ResponseEntity<ApiResponse<CursorPage<BookingDto>>> getUserBookings(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "20") int limit
+    ) {
+        CursorPage<BookingDto> bookings = bookingService.getUserBookings(cursor, limit);
         return ResponseEntity.ok(ApiResponse.success(bookings));
     }
     
@@ -40,9 +60,19 @@ public class BookingController {
         return ResponseEntity.ok(ApiResponse.success(booking));
     }
     
+    @GetMapping(value = "/{bookingId}/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter bookingEvents(
+            @PathVariable String bookingId
+    ) {
+        return bookingService.subscribe(bookingId);
+    }
+    
     @GetMapping("/upcoming")
-    public ResponseEntity<ApiResponse<List<BookingDto>>> getUpcomingBookings() {
-        List<BookingDto> bookings = bookingService.getUpcomingBookings();
+    public ResponseEntity<ApiResponse<CursorPage<BookingDto>>> getUpcomingBookings(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "20") int limit
+    ) {
+        CursorPage<BookingDto> bookings = bookingService.getUpcomingBookings(cursor, limit);
         return ResponseEntity.ok(ApiResponse.success(bookings));
     }
     
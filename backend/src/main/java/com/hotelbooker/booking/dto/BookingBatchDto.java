@@ -0,0 +1,18 @@
+package com.hotelbooker.booking.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class BookingBatchDto {
+    private List<BookingDto> bookings;
+    private Integer totalRooms;
+    private Double totalPrice;
+}
@@ -0,0 +1,54 @@
+package com.hotelbooker.booking.dto;
+
+import com.hotelbooker.booking.entity.Booking;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * Flat row selected straight into by the booking list queries, so listing
+ * bookings never hydrates Booking, Hotel, Room or User entities.
+ */
+public record BookingSummary(
+        String id,
+        String userId,
+        String hotelId,
+        String hotelName,
+        String roomId,
+        String roomType,
+        LocalDate checkInDate,
+        LocalDate checkOutDate,
+        Integer numberOfGuests,
+        Integer numberOfRooms,
+        Integer numberOfNights,
+        Double totalPrice,
+        Booking.BookingStatus status,
+        String specialRequests,
+        String guestName,
+        String guestEmail,
+        String guestPhone,
+        LocalDateTime createdAt
+) {
+    
+    public BookingDto toDto() {
+        return BookingDto.builder()
+                .id(id)
+                .userId(userId)
+                .hotelId(hotelId)
+                .hotelName(hotelName)
+                .roomId(roomId)
+                .roomType(roomType)
+                .checkInDate(checkInDate)
+                .checkOutDate(checkOutDate)
+                .numberOfGuests(numberOfGuests)
+                .numberOfRooms(numberOfRooms)
+                .numberOfNights(numberOfNights)
+                .totalPrice(totalPrice)
+                .status(status.name())
+                .specialRequests(specialRequests)
+                .guestName(guestName)
+                .guestEmail(guestEmail)
+                .guestPhone(guestPhone)
+                .build();
+    }
+}
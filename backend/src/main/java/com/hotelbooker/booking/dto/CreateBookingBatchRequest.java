@@ -0,0 +1,16 @@
+package com.hotelbooker.booking.dto;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.Size;
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+public class CreateBookingBatchRequest {
+    
+    @NotEmpty(message = "At least one booking is required")
+    @Size(max = 50, message = "At most 50 bookings can be made at once")
+    private List<@Valid CreateBookingRequest> items;
+}
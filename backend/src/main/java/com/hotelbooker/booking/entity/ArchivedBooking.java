@@ -0,0 +1,74 @@
+package com.hotelbooker.booking.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * A finished booking moved out of the hot {@code bookings} table once it is
+ * older than the retention window. The user, hotel and room are kept as plain
+ * ids so archived rows never hold foreign keys on live tables.
+ */
+@Entity
+@Table(
+        name = "bookings_archive",
+        indexes = @Index(name = "idx_bookings_archive_user_check_out", columnList = "user_id, check_out_date")
+)
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class ArchivedBooking {
+    
+    @Id
+    private String id;
+    
+    @Column(name = "user_id", nullable = false)
+    private String userId;
+    
+    @Column(name = "hotel_id", nullable = false)
+    private String hotelId;
+    
+    @Column(name = "room_id", nullable = false)
+    private String roomId;
+    
+    @Column(nullable = false)
+    private LocalDate checkInDate;
+    
+    @Column(nullable = false)
+    private LocalDate checkOutDate;
+    
+    @Column(nullable = false)
+    private Integer numberOfGuests;
+    
+    @Column(nullable = false)
+    private Integer numberOfRooms;
+    
+    @Column(nullable = false)
+    private Integer numberOfNights;
+    
+    @Column(nullable = false)
+    private Double totalPrice;
+    
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private Booking.BookingStatus status;
+    
+    private String specialRequests;
+    
+    private String guestName;
+    private String guestEmail;
+    private String guestPhone;
+    
+    @Column(nullable = false)
+    private LocalDateTime createdAt;
+    
+    @Column(nullable = false)
+    private LocalDateTime updatedAt;
+    
+    @Column(nullable = false)
+    private LocalDateTime archivedAt;
+}
@@ -8,9 +8,18 @@ import jakarta.persistence.*;
 import lombok.*;
 
 import java.time.LocalDate;
+import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "bookings")
+@Table(
+        name = "bookings",
+        indexes = {
+                @Index(name = "idx_bookings_status_hold_expires", columnList = "status, hold_expires_at"),
+                @Index(name = "idx_bookings_user_created", columnList = "user_id, created_at, id"),
+                @Index(name = "idx_bookings_user_check_in", columnList = "user_id, check_in_date, id"),
+                @Index(name = "idx_bookings_status_check_out", columnList = "status, check_out_date")
+        }
+)
 @Getter
 @Setter
 @NoArgsConstructor
@@ -52,6 +61,10 @@ public class Booking extends BaseEntity {
     @Column(nullable = false)
     private BookingStatus status = BookingStatus.PENDING;
     
+    // Deadline after which an unpaid PENDING booking gives its rooms back; null once settled
+    @Column(name = "hold_expires_at")
+    private LocalDateTime holdExpiresAt;
+    
     private String specialRequests;
     
     private String guestName;
@@ -1,20 +1,174 @@
 package com.hotelbooker.booking.repository;
 
+import com.hotelbooker.booking.dto.BookingSummary;
 import com.hotelbooker.booking.entity.Booking;
+import com.hotelbooker.payment.model.Payment;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.stream.Stream;
 
 @Repository
 public interface BookingRepository extends JpaRepository<Booking, String> {
     
-    List<Booking> findByUserIdOrderByCreatedAtDesc(String userId);
+    String SUMMARY = "SELECT new com.hotelbooker.booking.dto.BookingSummary(" +
+                     "b.id, b.user.id, h.id, h.name, r.id, r.roomType, b.checkInDate, b.checkOutDate, " +
+                     "b.numberOfGuests, b.numberOfRooms, b.numberOfNights, b.totalPrice, b.status, " +
+                     "b.specialRequests, b.guestName, b.guestEmail, b.guestPhone, b.createdAt) " +
+                     "FROM Booking b JOIN b.hotel h JOIN b.room r ";
+    
+    // Booking history, newest first, keyset-paged on (createdAt, id)
+    
+    @Query(SUMMARY + "WHERE b.user.id = :userId ORDER BY b.createdAt DESC, b.id DESC")
+    List<BookingSummary> findHistory(@Param("userId") String userId, Pageable pageable);
+    
+    @Query(SUMMARY + "WHERE b.user.id = :userId " +
+           "AND (b.createdAt < :createdAt OR (b.createdAt = :createdAt AND b.id < :id)) " +
+           "ORDER BY b.createdAt DESC, b.id DESC")
+    List<BookingSummary> findHistoryAfter(@Param("userId") String userId,
+                                          @Param("createdAt") LocalDateTime createdAt,
+                                          @Param("id") String id,
+                                          Pageable pageable);
+    
+    // Upcoming stays, soonest first, keyset-paged on (checkInDate, id)
+    
+    @Query(SUMMARY + "WHERE b.user.id = :userId AND b.checkInDate > :today ORDER BY b.checkInDate, b.id")
+    List<BookingSummary> findUpcoming(@Param("userId") String userId,
+                                      @Param("today") LocalDate today,
+                                      Pageable pageable);
+    
+    @Query(SUMMARY + "WHERE b.user.id = :userId AND b.checkInDate > :today " +
+           "AND (b.checkInDate > :checkIn OR (b.checkInDate = :checkIn AND b.id > :id)) " +
+           "ORDER BY b.checkInDate, b.id")
+    List<BookingSummary> findUpcomingAfter(@Param("userId") String userId,
+                                           @Param("today") LocalDate today,
+                                           @Param("checkIn") LocalDate checkIn,
+                                           @Param("id") String id,
+                                           Pageable pageable);
     
     List<Booking> findByUserIdAndStatusOrderByCheckInDateDesc(String userId, Booking.BookingStatus status);
     
-    List<Booking> findByUserIdAndCheckInDateAfterOrderByCheckInDate(String userId, LocalDate date);
+    /**
+     * Moves a booking to {@code status} only if it is currently in {@code expected};
+     * returns 0 when a concurrent transition got there first.
+     */
+    @Modifying
+    @Query("UPDATE Booking b SET b.status = :status WHERE b.id = :bookingId AND b.status IN :expected")
+    int transitionStatus(@Param("bookingId") String bookingId,
+                         @Param("status") Booking.BookingStatus status,
+                         @Param("expected") Collection<Booking.BookingStatus> expected);
+    
+    @Query("SELECT b.id, b.holdExpiresAt FROM Booking b " +
+           "WHERE b.status = :status AND b.holdExpiresAt IS NOT NULL")
+    Stream<Object[]> streamHolds(@Param("status") Booking.BookingStatus status);
+    
+    @Query("SELECT b.id FROM Booking b WHERE b.status = :status AND b.holdExpiresAt <= :now " +
+           "ORDER BY b.holdExpiresAt")
+    List<String> findExpiredHoldIds(@Param("status") Booking.BookingStatus status,
+                                    @Param("now") LocalDateTime now,
+                                    Pageable pageable);
+    
+    /**
+     * Locks the given holds that have expired, skipping any whose payment already
+     * succeeded but hasn't been applied to the booking yet.
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT b FROM Booking b WHERE b.id IN :ids AND b.status = :status AND b.holdExpiresAt <= :now " +
+           "AND NOT EXISTS (SELECT p.id FROM Payment p WHERE p.bookingId = b.id AND p.status = :paid)")
+    List<Booking> lockExpiredHolds(@Param("ids") Collection<String> ids,
+                                   @Param("status") Booking.BookingStatus status,
+                                   @Param("now") LocalDateTime now,
+                                   @Param("paid") Payment.PaymentStatus paid);
+    
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT b FROM Booking b WHERE b.id IN :ids AND b.status = :status")
+    List<Booking> lockByStatus(@Param("ids") Collection<String> ids,
+                               @Param("status") Booking.BookingStatus status);
+    
+    /**
+     * Ends the hold on the given bookings, moving them to {@code status}.
+     */
+    @Modifying
+    @Query("UPDATE Booking b SET b.status = :status, b.holdExpiresAt = NULL, b.updatedAt = :now " +
+           "WHERE b.id IN :ids")
+    int settleHolds(@Param("ids") Collection<String> ids,
+                    @Param("status") Booking.BookingStatus status,
+                    @Param("now") LocalDateTime now);
+    
+    /**
+     * Bookings still holding rooms although their payment has an outcome, i.e.
+     * outcomes the confirmation pipeline lost (e.g. to a restart) or never saw.
+     */
+    @Query("SELECT b.id, p.status FROM Booking b, Payment p " +
+           "WHERE p.bookingId = b.id AND b.status = :status AND p.status IN :outcomes AND b.id > :afterId " +
+           "ORDER BY b.id")
+    List<Object[]> findHoldsWithPaymentOutcome(@Param("status") Booking.BookingStatus status,
+                                               @Param("outcomes") Collection<Payment.PaymentStatus> outcomes,
+                                               @Param("afterId") String afterId,
+                                               Pageable pageable);
+    
+    @Query("SELECT b.id, b.status FROM Booking b WHERE b.id IN :ids AND b.status <> :status")
+    List<Object[]> findStatusesOtherThan(@Param("ids") Collection<String> ids,
+                                         @Param("status") Booking.BookingStatus status);
+    
+    /**
+     * Ledger repair: one keyset page of ledger nights from {@code from} on that
+     * nobody has touched since {@code quietBefore}, as id, reserved, updatedAt and
+     * the rooms that bookings in {@code holding} account for on that night.
+     */
+    @Query("SELECT i.id, i.reserved, i.updatedAt, " +
+           "(SELECT COALESCE(SUM(b.numberOfRooms), 0) FROM Booking b WHERE b.room = i.room " +
+           "AND b.status IN :holding AND b.checkInDate <= i.stayDate AND b.checkOutDate > i.stayDate) " +
+           "FROM RoomInventory i WHERE i.stayDate >= :from AND i.updatedAt < :quietBefore AND i.id > :afterId " +
+           "ORDER BY i.id")
+    List<Object[]> findLedgerPage(@Param("holding") Collection<Booking.BookingStatus> holding,
+                                  @Param("from") LocalDate from,
+                                  @Param("quietBefore") LocalDateTime quietBefore,
+                                  @Param("afterId") String afterId,
+                                  Pageable pageable);
+    
+    // Lifecycle job: bookings whose stay ended before :date, oldest first
+    
+    @Query("SELECT b.id FROM Booking b WHERE b.status IN :statuses AND b.checkOutDate < :date " +
+           "ORDER BY b.checkOutDate, b.id")
+    List<String> findIdsCheckedOutBefore(@Param("statuses") Collection<Booking.BookingStatus> statuses,
+                                         @Param("date") LocalDate date,
+                                         Pageable pageable);
+    
+    /**
+     * Marks the given stays finished; bookings that left {@code expected}
+     * meanwhile (e.g. were cancelled) are skipped.
+     */
+    @Modifying
+    @Query("UPDATE Booking b SET b.status = :status, b.updatedAt = :now " +
+           "WHERE b.id IN :ids AND b.status = :expected")
+    int completeStays(@Param("ids") Collection<String> ids,
+                      @Param("expected") Booking.BookingStatus expected,
+                      @Param("status") Booking.BookingStatus status,
+                      @Param("now") LocalDateTime now);
+    
+    @Modifying
+    @Query(value = "INSERT INTO bookings_archive (id, user_id, hotel_id, room_id, check_in_date, check_out_date, " +
+                   "number_of_guests, number_of_rooms, number_of_nights, total_price, status, special_requests, " +
+                   "guest_name, guest_email, guest_phone, created_at, updated_at, archived_at) " +
+                   "SELECT id, user_id, hotel_id, room_id, check_in_date, check_out_date, number_of_guests, " +
+                   "number_of_rooms, number_of_nights, total_price, status, special_requests, guest_name, " +
+                   "guest_email, guest_phone, created_at, updated_at, :now " +
+                   "FROM bookings WHERE id IN (:ids)",
+           nativeQuery = true)
+    int copyToArchive(@Param("ids") Collection<String> ids, @Param("now") LocalDateTime now);
     
-    List<Booking> findByUserIdAndCheckOutDateBeforeOrderByCheckOutDateDesc(String userId, LocalDate date);
+    @Modifying
+    @Query("DELETE FROM Booking b WHERE b.id IN :ids")
+    int deleteByIdIn(@Param("ids") Collection<String> ids);
 }
@@ -0,0 +1,217 @@
+package com.hotelbooker.booking.service;
+
+import com.hotelbooker.booking.entity.Booking;
+import com.hotelbooker.booking.repository.BookingRepository;
+import com.hotelbooker.hotel.service.InventoryService;
+import com.hotelbooker.payment.model.Payment;
+import com.hotelbooker.payment.model.PaymentOutcomeEvent;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Moves bookings along with their payment: SUCCEEDED confirms a PENDING booking,
+ * CANCELLED cancels it and releases its nights. A FAILED payment leaves the hold
+ * alone, since the guest can still pay the same intent with another card; if
+ * they never do, the hold expires and {@link BookingHoldSweeper} releases it.
+ * <p>
+ * Payment outcomes are queued after their transaction commits and applied by a
+ * single worker in micro-batches: it waits up to {@code linger} for more
+ * outcomes, then locks and updates the whole batch in one transaction. Outcomes
+ * lost from the queue, e.g. by a restart, are found again by a periodic join of
+ * PENDING bookings against settled payments, walked in pages of
+ * {@code recovery-page-size} and queued without blocking; whatever doesn't fit
+ * waits for the next pass. Applied transitions are pushed to
+ * {@link BookingEventHub} subscribers.
+ */
+@Component
+@Slf4j
+public class BookingConfirmationPipeline {
+    
+    private static final List<Payment.PaymentStatus> OUTCOMES = List.of(
+            Payment.PaymentStatus.SUCCEEDED, Payment.PaymentStatus.CANCELLED);
+    
+    private final BookingRepository bookingRepository;
+    private final InventoryService inventoryService;
+    private final TransactionTemplate transactionTemplate;
+    private final BookingEventHub eventHub;
+    private final int maxBatch;
+    private final int recoveryPageSize;
+    private final long lingerNanos;
+    private final BlockingQueue<Outcome> queue;
+    private final Thread worker;
+    
+    private volatile boolean running = true;
+    
+    public BookingConfirmationPipeline(BookingRepository bookingRepository,
+                                       InventoryService inventoryService,
+                                       TransactionTemplate transactionTemplate,
+                                       BookingEventHub eventHub,
+                                       @Value("${hotelbooker.booking.confirmation.max-batch:200}") int maxBatch,
+                                       @Value("${hotelbooker.booking.confirmation.linger:PT0.02S}") Duration linger,
+                                       @Value("${hotelbooker.booking.confirmation.queue-capacity:10000}") int queueCapacity,
+                                       @Value("${hotelbooker.booking.confirmation.recovery-page-size:500}") int recoveryPageSize) {
+        this.bookingRepository = bookingRepository;
+        this.inventoryService = inventoryService;
+        this.transactionTemplate = transactionTemplate;
+        this.eventHub = eventHub;
+        this.maxBatch = maxBatch;
+        this.recoveryPageSize = recoveryPageSize;
+        this.lingerNanos = linger.toNanos();
+        this.queue = new LinkedBlockingQueue<>(queueCapacity);
+        this.worker = new Thread(this::drain, "booking-confirmation");
+        this.worker.setDaemon(true);
+    }
+    
+    @PostConstruct
+    public void start() {
+        worker.start();
+    }
+    
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onPaymentOutcome(PaymentOutcomeEvent event) {
+        if (OUTCOMES.contains(event.getStatus())) {
+            submit(event.getBookingId(), event.getStatus());
+        }
+    }
+    
+    @Scheduled(fixedDelayString = "${hotelbooker.booking.confirmation.recovery-interval:PT1M}")
+    public void recover() {
+        String afterId = "";
+        List<Object[]> page;
+        do {
+            page = bookingRepository.findHoldsWithPaymentOutcome(Booking.BookingStatus.PENDING, OUTCOMES, afterId,
+                    PageRequest.of(0, recoveryPageSize));
+            for (Object[] row : page) {
+                // Never block the scheduler on a full queue; the next pass finds the rest
+                if (!queue.offer(new Outcome((String) row[0], (Payment.PaymentStatus) row[1]))) {
+                    return;
+                }
+            }
+            if (!page.isEmpty()) {
+                afterId = (String) page.get(page.size() - 1)[0];
+            }
+        } while (page.size() == recoveryPageSize);
+    }
+    
+    private void submit(String bookingId, Payment.PaymentStatus status) {
+        // A full queue pushes back on the webhook workers; anything dropped is found again by recover()
+        try {
+            if (!queue.offer(new Outcome(bookingId, status), 1, TimeUnit.SECONDS)) {
+                log.warn("Booking confirmation queue full, deferring booking {}", bookingId);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+    
+    private void drain() {
+        List<Outcome> batch = new ArrayList<>(maxBatch);
+        while (running) {
+            try {
+                Outcome first = queue.poll(1, TimeUnit.SECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                long deadline = System.nanoTime() + lingerNanos;
+                while (batch.size() < maxBatch) {
+                    Outcome next = queue.poll(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                    queue.drainTo(batch, maxBatch - batch.size());
+                }
+                apply(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (RuntimeException e) {
+                log.error("Failed to apply {} payment outcomes to bookings", batch.size(), e);
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+    
+    private void apply(List<Outcome> batch) {
+        // A success for a booking wins over a failure seen in the same batch
+        Map<String, Booking.BookingStatus> targets = new LinkedHashMap<>();
+        for (Outcome outcome : batch) {
+            Booking.BookingStatus target = outcome.status == Payment.PaymentStatus.SUCCEEDED
+                    ? Booking.BookingStatus.CONFIRMED : Booking.BookingStatus.CANCELLED;
+            targets.merge(outcome.bookingId, target,
+                    (a, b) -> a == Booking.BookingStatus.CONFIRMED ? a : b);
+        }
+        
+        List<String> confirm = new ArrayList<>();
+        List<String> cancel = new ArrayList<>();
+        targets.forEach((id, target) -> (target == Booking.BookingStatus.CONFIRMED ? confirm : cancel).add(id));
+        
+        Map<String, Booking.BookingStatus> applied = transactionTemplate.execute(status -> {
+            LocalDateTime now = LocalDateTime.now();
+            Map<String, Booking.BookingStatus> changed = new LinkedHashMap<>();
+            
+            if (!confirm.isEmpty()) {
+                Set<String> ids = bookingRepository.lockByStatus(confirm, Booking.BookingStatus.PENDING)
+                        .stream().map(Booking::getId).collect(Collectors.toSet());
+                if (!ids.isEmpty()) {
+                    bookingRepository.settleHolds(ids, Booking.BookingStatus.CONFIRMED, now);
+                    ids.forEach(id -> changed.put(id, Booking.BookingStatus.CONFIRMED));
+                }
+                if (ids.size() < confirm.size()) {
+                    // Paid after the hold expired or the guest cancelled; the payment needs refunding
+                    confirm.stream().filter(id -> !ids.contains(id))
+                            .forEach(id -> log.warn("Payment succeeded for booking {} which is no longer pending", id));
+                }
+            }
+            
+            if (!cancel.isEmpty()) {
+                List<Booking> holds = bookingRepository.lockByStatus(cancel, Booking.BookingStatus.PENDING);
+                if (!holds.isEmpty()) {
+                    List<String> ids = holds.stream().map(Booking::getId).collect(Collectors.toList());
+                    bookingRepository.settleHolds(ids, Booking.BookingStatus.CANCELLED, now);
+                    for (Booking booking : holds) {
+                        inventoryService.release(booking.getRoom(), booking.getCheckInDate(),
+                                booking.getCheckOutDate(), booking.getNumberOfRooms());
+                    }
+                    ids.forEach(id -> changed.put(id, Booking.BookingStatus.CANCELLED));
+                }
+            }
+            return changed;
+        });
+        
+        if (applied != null && !applied.isEmpty()) {
+            log.info("Applied {} payment outcomes to bookings", applied.size());
+            applied.forEach(eventHub::publish);
+        }
+    }
+    
+    @PreDestroy
+    public void shutdown() {
+        running = false;
+        worker.interrupt();
+    }
+    
+    private record Outcome(String bookingId, Payment.PaymentStatus status) {
+    }
+}
@@ -0,0 +1,115 @@
+package com.hotelbooker.booking.service;
+
+import com.hotelbooker.booking.entity.Booking;
+import com.hotelbooker.booking.repository.BookingRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Server-sent event streams of booking status, replacing client polling of
+ * {@code /bookings/{id}} while a payment settles. A stream starts with the
+ * current status and ends once the booking is CONFIRMED or CANCELLED.
+ * <p>
+ * Transitions made on this instance are pushed as they commit. Transitions made
+ * elsewhere (another instance, the hold sweeper) are picked up by a periodic
+ * check of all watched bookings, a primary-key lookup per {@value #CHECK_CHUNK}
+ * watched ids so the bound IN list stays small however many clients are
+ * subscribed.
+ */
+@Component
+@Slf4j
+public class BookingEventHub {
+    
+    static final int CHECK_CHUNK = 500;
+    
+    private final BookingRepository bookingRepository;
+    private final long timeoutMillis;
+    private final Map<String, Set<SseEmitter>> subscribers = new ConcurrentHashMap<>();
+    
+    public BookingEventHub(BookingRepository bookingRepository,
+                           @Value("${hotelbooker.booking.events.timeout:PT10M}") Duration timeout) {
+        this.bookingRepository = bookingRepository;
+        this.timeoutMillis = timeout.toMillis();
+    }
+    
+    public SseEmitter subscribe(String bookingId, Booking.BookingStatus current) {
+        SseEmitter emitter = new SseEmitter(timeoutMillis);
+        if (isSettled(current)) {
+            send(emitter, bookingId, current);
+            emitter.complete();
+            return emitter;
+        }
+        
+        Set<SseEmitter> emitters = subscribers.computeIfAbsent(bookingId, id -> ConcurrentHashMap.newKeySet());
+        emitters.add(emitter);
+        Runnable remove = () -> unsubscribe(bookingId, emitter);
+        emitter.onCompletion(remove);
+        emitter.onTimeout(remove);
+        emitter.onError(e -> remove.run());
+        send(emitter, bookingId, current);
+        return emitter;
+    }
+    
+    public void publish(String bookingId, Booking.BookingStatus status) {
+        Set<SseEmitter> emitters = isSettled(status) ? subscribers.remove(bookingId) : subscribers.get(bookingId);
+        if (emitters == null) {
+            return;
+        }
+        for (SseEmitter emitter : emitters) {
+            if (send(emitter, bookingId, status) && isSettled(status)) {
+                emitter.complete();
+            }
+        }
+    }
+    
+    @Scheduled(fixedDelayString = "${hotelbooker.booking.events.check-interval:PT5S}")
+    public void checkWatched() {
+        if (subscribers.isEmpty()) {
+            return;
+        }
+        List<String> watched = new ArrayList<>(subscribers.keySet());
+        for (int from = 0; from < watched.size(); from += CHECK_CHUNK) {
+            List<Object[]> changed = bookingRepository.findStatusesOtherThan(
+                    watched.subList(from, Math.min(from + CHECK_CHUNK, watched.size())),
+                    Booking.BookingStatus.PENDING);
+            for (Object[] row : changed) {
+                publish((String) row[0], (Booking.BookingStatus) row[1]);
+            }
+        }
+    }
+    
+    private void unsubscribe(String bookingId, SseEmitter emitter) {
+        subscribers.computeIfPresent(bookingId, (id, emitters) -> {
+            emitters.remove(emitter);
+            return emitters.isEmpty() ? null : emitters;
+        });
+    }
+    
+    private static boolean send(SseEmitter emitter, String bookingId, Booking.BookingStatus status) {
+        try {
+            emitter.send(SseEmitter.event()
+                    .name("status")
+                    .data(Map.of("bookingId", bookingId, "status", status.name())));
+            return true;
+        } catch (IOException | IllegalStateException e) {
+            // Client went away; the completion callback drops the emitter
+            emitter.completeWithError(e);
+            return false;
+        }
+    }
+    
+    private static boolean isSettled(Booking.BookingStatus status) {
+        return status != Booking.BookingStatus.PENDING;
+    }
+}
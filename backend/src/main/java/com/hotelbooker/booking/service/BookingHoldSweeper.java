@@ -0,0 +1,131 @@
+package com.hotelbooker.booking.service;
+
+import com.hotelbooker.booking.entity.Booking;
+import com.hotelbooker.booking.repository.BookingRepository;
+import com.hotelbooker.hotel.service.InventoryService;
+import com.hotelbooker.payment.model.Payment;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Gives rooms back when a PENDING booking isn't paid before its hold expires.
+ * <p>
+ * Every new hold is scheduled on a {@link HashedTimerWheel}; each tick cancels the
+ * holds that fell due in batches of {@code batch-size}, releasing their nights in
+ * the same transaction. Holds are recovered from the (status, hold_expires_at)
+ * index on startup, and a periodic range scan over the same index catches holds
+ * created by other instances, so no sweep ever reads the whole bookings table.
+ */
+@Component
+@Slf4j
+public class BookingHoldSweeper {
+    
+    private final BookingRepository bookingRepository;
+    private final InventoryService inventoryService;
+    private final TransactionTemplate transactionTemplate;
+    private final Duration holdDuration;
+    private final int batchSize;
+    private final HashedTimerWheel wheel;
+    
+    public BookingHoldSweeper(BookingRepository bookingRepository,
+                              InventoryService inventoryService,
+                              TransactionTemplate transactionTemplate,
+                              @Value("${hotelbooker.booking.hold.duration:PT15M}") Duration holdDuration,
+                              @Value("${hotelbooker.booking.hold.tick:PT1S}") Duration tick,
+                              @Value("${hotelbooker.booking.hold.wheel-size:512}") int wheelSize,
+                              @Value("${hotelbooker.booking.hold.batch-size:200}") int batchSize) {
+        this.bookingRepository = bookingRepository;
+        this.inventoryService = inventoryService;
+        this.transactionTemplate = transactionTemplate;
+        this.holdDuration = holdDuration;
+        this.batchSize = batchSize;
+        this.wheel = new HashedTimerWheel(tick.toMillis(), wheelSize, System.currentTimeMillis());
+    }
+    
+    public LocalDateTime newDeadline() {
+        return LocalDateTime.now().plus(holdDuration);
+    }
+    
+    public void track(Booking booking) {
+        wheel.schedule(booking.getId(), toMillis(booking.getHoldExpiresAt()));
+    }
+    
+    @Scheduled(fixedDelayString = "${hotelbooker.booking.hold.tick:PT1S}")
+    public void tick() {
+        List<String> due = wheel.advance(System.currentTimeMillis());
+        for (int from = 0; from < due.size(); from += batchSize) {
+            expire(due.subList(from, Math.min(from + batchSize, due.size())));
+        }
+    }
+    
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional(readOnly = true)
+    public void recover() {
+        int[] count = {0};
+        try (Stream<Object[]> holds = bookingRepository.streamHolds(Booking.BookingStatus.PENDING)) {
+            holds.forEach(row -> {
+                wheel.schedule((String) row[0], toMillis((LocalDateTime) row[1]));
+                count[0]++;
+            });
+        }
+        log.info("Recovered {} pending booking holds", count[0]);
+    }
+    
+    @Scheduled(
+            initialDelayString = "${hotelbooker.booking.hold.scan-interval:PT5M}",
+            fixedDelayString = "${hotelbooker.booking.hold.scan-interval:PT5M}"
+    )
+    public void scan() {
+        List<String> due;
+        do {
+            due = bookingRepository.findExpiredHoldIds(Booking.BookingStatus.PENDING, LocalDateTime.now(),
+                    PageRequest.of(0, batchSize));
+        } while (!due.isEmpty() && expire(due) > 0);
+    }
+    
+    private int expire(List<String> ids) {
+        try {
+            Integer expired = transactionTemplate.execute(status -> {
+                LocalDateTime now = LocalDateTime.now();
+                List<Booking> holds = bookingRepository.lockExpiredHolds(ids, Booking.BookingStatus.PENDING, now,
+                        Payment.PaymentStatus.SUCCEEDED);
+                if (holds.isEmpty()) {
+                    return 0;
+                }
+                
+                List<String> holdIds = holds.stream().map(Booking::getId).collect(Collectors.toList());
+                bookingRepository.settleHolds(holdIds, Booking.BookingStatus.CANCELLED, now);
+                for (Booking booking : holds) {
+                    inventoryService.release(booking.getRoom(), booking.getCheckInDate(),
+                            booking.getCheckOutDate(), booking.getNumberOfRooms());
+                }
+                return holds.size();
+            });
+            if (expired != null && expired > 0) {
+                log.info("Released {} expired booking holds", expired);
+            }
+            return expired == null ? 0 : expired;
+        } catch (RuntimeException e) {
+            log.error("Failed to release {} expired booking holds", ids.size(), e);
+            return 0;
+        }
+    }
+    
+    private static long toMillis(LocalDateTime time) {
+        return time.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+}
@@ -0,0 +1,153 @@
+package com.hotelbooker.booking.service;
+
+import com.hotelbooker.booking.entity.Booking;
+import com.hotelbooker.booking.repository.BookingRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Nightly housekeeping for finished stays. First every CONFIRMED booking whose
+ * check-out date has passed becomes COMPLETED; then COMPLETED and CANCELLED
+ * bookings that checked out more than {@code retention} ago are copied to
+ * {@code bookings_archive} and deleted from {@code bookings}.
+ * <p>
+ * Both phases work in chunks of {@code chunk-size} ids, one short transaction
+ * and one set-based statement per chunk, off the (status, check_out_date)
+ * index. A run stops after {@code max-duration}; since every chunk removes its
+ * rows from the next chunk's query, the following run simply carries on where
+ * this one stopped. Runs happen on the job's own thread so they never hold the
+ * shared scheduler, which drives the one-second hold sweeper tick.
+ */
+@Component
+@Slf4j
+public class BookingLifecycleJob {
+    
+    private static final Set<Booking.BookingStatus> FINISHED = Set.of(
+            Booking.BookingStatus.COMPLETED, Booking.BookingStatus.CANCELLED);
+    
+    private final BookingRepository bookingRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final int chunkSize;
+    private final Duration retention;
+    private final Duration maxDuration;
+    private final Counter completed;
+    private final Counter archived;
+    private final ExecutorService runner;
+    private final AtomicBoolean running = new AtomicBoolean();
+    
+    public BookingLifecycleJob(BookingRepository bookingRepository,
+                               TransactionTemplate transactionTemplate,
+                               MeterRegistry meterRegistry,
+                               @Value("${hotelbooker.booking.lifecycle.chunk-size:500}") int chunkSize,
+                               @Value("${hotelbooker.booking.lifecycle.retention:P365D}") Duration retention,
+                               @Value("${hotelbooker.booking.lifecycle.max-duration:PT30M}") Duration maxDuration) {
+        this.bookingRepository = bookingRepository;
+        this.transactionTemplate = transactionTemplate;
+        this.chunkSize = chunkSize;
+        this.retention = retention;
+        this.maxDuration = maxDuration;
+        this.completed = Counter.builder("booking.lifecycle.completed")
+                .description("Bookings moved to COMPLETED after check-out")
+                .register(meterRegistry);
+        this.archived = Counter.builder("booking.lifecycle.archived")
+                .description("Finished bookings moved to bookings_archive")
+                .register(meterRegistry);
+        this.runner = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "booking-lifecycle");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+    
+    @Scheduled(cron = "${hotelbooker.booking.lifecycle.cron:0 30 3 * * *}")
+    public void scheduleRun() {
+        if (!running.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            runner.execute(() -> {
+                try {
+                    run();
+                } catch (RuntimeException e) {
+                    log.error("Booking lifecycle run failed", e);
+                } finally {
+                    running.set(false);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            running.set(false);
+        }
+    }
+    
+    public void run() {
+        long deadline = System.nanoTime() + maxDuration.toNanos();
+        LocalDate today = LocalDate.now();
+        int done = completeStays(today, deadline);
+        int moved = archive(today.minusDays(retention.toDays()), deadline);
+        log.info("Booking lifecycle run completed {} stays and archived {} bookings", done, moved);
+    }
+    
+    int completeStays(LocalDate today, long deadline) {
+        int total = 0;
+        while (System.nanoTime() < deadline) {
+            Integer count = transactionTemplate.execute(status -> {
+                List<String> ids = bookingRepository.findIdsCheckedOutBefore(
+                        Set.of(Booking.BookingStatus.CONFIRMED), today, PageRequest.of(0, chunkSize));
+                if (ids.isEmpty()) {
+                    return null;
+                }
+                return bookingRepository.completeStays(ids, Booking.BookingStatus.CONFIRMED,
+                        Booking.BookingStatus.COMPLETED, LocalDateTime.now());
+            });
+            if (count == null) {
+                break;
+            }
+            completed.increment(count);
+            total += count;
+        }
+        return total;
+    }
+    
+    int archive(LocalDate checkedOutBefore, long deadline) {
+        int total = 0;
+        while (System.nanoTime() < deadline) {
+            Integer count = transactionTemplate.execute(status -> {
+                List<String> ids = bookingRepository.findIdsCheckedOutBefore(FINISHED, checkedOutBefore,
+                        PageRequest.of(0, chunkSize));
+                if (ids.isEmpty()) {
+                    return null;
+                }
+                bookingRepository.copyToArchive(ids, LocalDateTime.now());
+                return bookingRepository.deleteByIdIn(ids);
+            });
+            if (count == null) {
+                break;
+            }
+            archived.increment(count);
+            total += count;
+        }
+        return total;
+    }
+    
+    @PreDestroy
+    public void shutdown() {
+        runner.shutdownNow();
+    }
+}
@@ -2,38 +2,69 @@ package com.hotelbooker.booking.service;
 
 import com.hotelbooker.auth.entity.User;
 import com.hotelbooker.auth.repository.UserRepository;
+import com.hotelbooker.auth.security.UserPrincipal;
+import com.hotelbooker.booking.dto.BookingBatchDto;
 import com.hotelbooker.booking.dto.BookingDto;
+import com.hotelbooker.booking.dto.BookingSummary;
+import com.hotelbooker.booking.dto.CreateBookingBatchRequest;
 import com.hotelbooker.booking.dto.CreateBookingRequest;
 import com.hotelbooker.booking.entity.Booking;
 import com.hotelbooker.booking.repository.BookingRepository;
+import com.hotelbooker.common.dto.CursorPage;
+import com.hotelbooker.common.exception.BadRequestException;
 import com.hotelbooker.common.exception.ResourceNotFoundException;
 import com.hotelbooker.hotel.entity.Hotel;
 import com.hotelbooker.hotel.entity.Room;
 import com.hotelbooker.hotel.repository.HotelRepository;
 import com.hotelbooker.hotel.repository.RoomRepository;
+import com.hotelbooker.hotel.service.InventoryService;
+import com.hotelbooker.hotel.service.ReservationEngine;
 import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
 import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Base64;
 import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 @Service
 @RequiredArgsConstructor
 public class BookingService {
     
+    private static final int MAX_PAGE_SIZE = 100;
+    
     private final BookingRepository bookingRepository;
     private final HotelRepository hotelRepository;
     private final RoomRepository roomRepository;
     private final UserRepository userRepository;
+    private final InventoryService inventoryService;
+    private final ReservationEngine reservationEngine;
+    private final BookingHoldSweeper holdSweeper;
+    private final TransactionTemplate transactionTemplate;
+    private final BookingEventHub eventHub;
     
-    @Transactional
+    /**
+     * Not transactional on purpose: the reservation is queued on the room's shard
+     * without holding a connection, and is released again if the booking can't be saved.
+     * The shard commits before the booking is saved, so a crash in between leaks the
+     * nights until {@link LedgerRepairJob} gives them back.
+     */
     public BookingDto createBooking(CreateBookingRequest request) {
-        User user = getCurrentUser();
+        UserPrincipal user = getCurrentUser();
         
         Hotel hotel = hotelRepository.findById(request.getHotelId())
                 .orElseThrow(() -> new ResourceNotFoundException("Hotel not found"));
@@ -41,55 +72,94 @@ public class BookingService {
         Room room = roomRepository.findById(request.getRoomId())
                 .orElseThrow(() -> new ResourceNotFoundException("Room not found"));
         
-        // Validate dates
-        if (request.getCheckOutDate().isBefore(request.getCheckInDate())) {
-            throw new RuntimeException("Check-out date must be after check-in date");
-        }
+        validateDates(request);
+        Booking booking = newBooking(userRepository.getReferenceById(user.getId()), hotel, room, request);
+        
+        // Atomically reserve the room for each night of the stay; fails if any night is full
+        reservationEngine.reserve(room, request.getCheckInDate(), request.getCheckOutDate(),
+                request.getNumberOfRooms());
         
-        // Check room availability
-        if (room.getAvailableRooms() < request.getNumberOfRooms()) {
-            throw new RuntimeException("Not enough rooms available");
+        try {
+            booking = bookingRepository.save(booking);
+        } catch (RuntimeException e) {
+            inventoryService.release(room, request.getCheckInDate(), request.getCheckOutDate(),
+                    request.getNumberOfRooms());
+            throw e;
         }
+        holdSweeper.track(booking);
+        return mapToDto(booking);
+    }
+    
+    /**
+     * Books every line of a cart or fails them all. Rooms and hotels are loaded in
+     * two queries, every night of every line is reserved with one multi-row ledger
+     * update, and the bookings are written as a single JDBC batch.
+     */
+    public BookingBatchDto createBookings(CreateBookingBatchRequest request) {
+        UserPrincipal user = getCurrentUser();
+        List<CreateBookingRequest> items = request.getItems();
+        items.forEach(this::validateDates);
         
-        // Calculate nights and total price
-        long nights = ChronoUnit.DAYS.between(request.getCheckInDate(), request.getCheckOutDate());
-        double totalPrice = room.getPricePerNight() * nights * request.getNumberOfRooms();
+        Map<String, Hotel> hotels = hotelRepository.findAllById(
+                        items.stream().map(CreateBookingRequest::getHotelId).collect(Collectors.toSet()))
+                .stream()
+                .collect(Collectors.toMap(Hotel::getId, Function.identity()));
+        Map<String, Room> rooms = roomRepository.findAllById(
+                        items.stream().map(CreateBookingRequest::getRoomId).collect(Collectors.toSet()))
+                .stream()
+                .collect(Collectors.toMap(Room::getId, Function.identity()));
         
-        Booking booking = Booking.builder()
-                .user(user)
-                .hotel(hotel)
-                .room(room)
-                .checkInDate(request.getCheckInDate())
-                .checkOutDate(request.getCheckOutDate())
-                .numberOfGuests(request.getNumberOfGuests())
-                .numberOfRooms(request.getNumberOfRooms())
-                .numberOfNights((int) nights)
-                .totalPrice(totalPrice)
-                .status(Booking.BookingStatus.PENDING)
-                .specialRequests(request.getSpecialRequests())
-                .guestName(request.getGuestName())
-                .guestEmail(request.getGuestEmail())
-                .guestPhone(request.getGuestPhone())
-                .build();
+        User bookedBy = userRepository.getReferenceById(user.getId());
+        List<Booking> bookings = new ArrayList<>(items.size());
+        List<InventoryService.Reservation> reservations = new ArrayList<>(items.size());
+        for (CreateBookingRequest item : items) {
+            Hotel hotel = hotels.get(item.getHotelId());
+            if (hotel == null) {
+                throw new ResourceNotFoundException("Hotel not found");
+            }
+            Room room = rooms.get(item.getRoomId());
+            if (room == null) {
+                throw new ResourceNotFoundException("Room not found");
+            }
+            if (!room.getHotel().getId().equals(hotel.getId())) {
+                throw new RuntimeException("Room " + room.getId() + " does not belong to hotel " + hotel.getId());
+            }
+            bookings.add(newBooking(bookedBy, hotel, room, item));
+            reservations.add(new InventoryService.Reservation(room, item.getCheckInDate(),
+                    item.getCheckOutDate(), item.getNumberOfRooms()));
+        }
         
-        // Update room availability
-        room.setAvailableRooms(room.getAvailableRooms() - request.getNumberOfRooms());
-        roomRepository.save(room);
+        List<Booking> saved = transactionTemplate.execute(status -> {
+            inventoryService.reserveAll(reservations);
+            return bookingRepository.saveAll(bookings);
+        });
+        saved.forEach(holdSweeper::track);
         
-        booking = bookingRepository.save(booking);
-        return mapToDto(booking);
+        List<BookingDto> dtos = saved.stream().map(this::mapToDto).collect(Collectors.toList());
+        return BookingBatchDto.builder()
+                .bookings(dtos)
+                .totalRooms(dtos.stream().mapToInt(BookingDto::getNumberOfRooms).sum())
+                .totalPrice(dtos.stream().mapToDouble(BookingDto::getTotalPrice).sum())
+                .build();
     }
     
-    public List<BookingDto> getUserBookings() {
-        User user = getCurrentUser();
-        return bookingRepository.findByUserIdOrderByCreatedAtDesc(user.getId())
-                .stream()
-                .map(this::mapToDto)
-                .collect(Collectors.toList());
+    public CursorPage<BookingDto> getUserBookings(String cursor, int limit) {
+        UserPrincipal user = getCurrentUser();
+        int size = pageSize(limit);
+        Pageable page = PageRequest.of(0, size + 1);
+        
+        List<BookingSummary> rows;
+        if (cursor == null) {
+            rows = bookingRepository.findHistory(user.getId(), page);
+        } else {
+            CursorPosition<LocalDateTime> after = decodeCursor(cursor, LocalDateTime::parse);
+            rows = bookingRepository.findHistoryAfter(user.getId(), after.key(), after.id(), page);
+        }
+        return toPage(rows, size, last -> encodeCursor(last.createdAt().toString(), last.id()));
     }
     
     public BookingDto getBookingById(String bookingId) {
-        User user = getCurrentUser();
+        UserPrincipal user = getCurrentUser();
         Booking booking = bookingRepository.findById(bookingId)
                 .orElseThrow(() -> new ResourceNotFoundException("Booking not found"));
         
@@ -100,18 +170,40 @@ public class BookingService {
         return mapToDto(booking);
     }
     
-    public List<BookingDto> getUpcomingBookings() {
-        User user = getCurrentUser();
-        return bookingRepository.findByUserIdAndCheckInDateAfterOrderByCheckInDate(
-                        user.getId(), LocalDate.now())
-                .stream()
-                .map(this::mapToDto)
-                .collect(Collectors.toList());
+    public CursorPage<BookingDto> getUpcomingBookings(String cursor, int limit) {
+        UserPrincipal user = getCurrentUser();
+        int size = pageSize(limit);
+        Pageable page = PageRequest.of(0, size + 1);
+        LocalDate today = LocalDate.now();
+        
+        List<BookingSummary> rows;
+        if (cursor == null) {
+            rows = bookingRepository.findUpcoming(user.getId(), today, page);
+        } else {
+            CursorPosition<LocalDate> after = decodeCursor(cursor, LocalDate::parse);
+            rows = bookingRepository.findUpcomingAfter(user.getId(), today, after.key(), after.id(), page);
+        }
+        return toPage(rows, size, last -> encodeCursor(last.checkInDate().toString(), last.id()));
+    }
+    
+    /**
+     * Opens a status stream for one of the current user's bookings.
+     */
+    public SseEmitter subscribe(String bookingId) {
+        UserPrincipal user = getCurrentUser();
+        Booking booking = bookingRepository.findById(bookingId)
+                .orElseThrow(() -> new ResourceNotFoundException("Booking not found"));
+        
+        if (!booking.getUser().getId().equals(user.getId())) {
+            throw new RuntimeException("Unauthorized access to booking");
+        }
+        
+        return eventHub.subscribe(bookingId, booking.getStatus());
     }
     
     @Transactional
     public BookingDto cancelBooking(String bookingId) {
-        User user = getCurrentUser();
+        UserPrincipal user = getCurrentUser();
         Booking booking = bookingRepository.findById(bookingId)
                 .orElseThrow(() -> new ResourceNotFoundException("Booking not found"));
         
@@ -123,22 +215,92 @@ public class BookingService {
             throw new RuntimeException("Booking is already cancelled");
         }
         
+        // Conditional transition so two concurrent cancels cannot both release inventory
+        int cancelled = bookingRepository.transitionStatus(bookingId, Booking.BookingStatus.CANCELLED,
+                List.of(Booking.BookingStatus.PENDING, Booking.BookingStatus.CONFIRMED));
+        if (cancelled == 0) {
+            throw new RuntimeException("Booking can no longer be cancelled");
+        }
         booking.setStatus(Booking.BookingStatus.CANCELLED);
         
-        // Restore room availability
-        Room room = booking.getRoom();
-        room.setAvailableRooms(room.getAvailableRooms() + booking.getNumberOfRooms());
-        roomRepository.save(room);
+        // Release the reserved nights
+        inventoryService.release(booking.getRoom(), booking.getCheckInDate(), booking.getCheckOutDate(),
+                booking.getNumberOfRooms());
         
         booking = bookingRepository.save(booking);
         return mapToDto(booking);
     }
     
-    private User getCurrentUser() {
+    private void validateDates(CreateBookingRequest request) {
+        if (!request.getCheckOutDate().isAfter(request.getCheckInDate())) {
+            throw new RuntimeException("Check-out date must be after check-in date");
+        }
+    }
+    
+    private Booking newBooking(User user, Hotel hotel, Room room, CreateBookingRequest request) {
+        // Calculate nights and total price
+        long nights = ChronoUnit.DAYS.between(request.getCheckInDate(), request.getCheckOutDate());
+        double totalPrice = room.getPricePerNight() * nights * request.getNumberOfRooms();
+        
+        return Booking.builder()
+                .user(user)
+                .hotel(hotel)
+                .room(room)
+                .checkInDate(request.getCheckInDate())
+                .checkOutDate(request.getCheckOutDate())
+                .numberOfGuests(request.getNumberOfGuests())
+                .numberOfRooms(request.getNumberOfRooms())
+                .numberOfNights((int) nights)
+                .totalPrice(totalPrice)
+                .status(Booking.BookingStatus.PENDING)
+                .holdExpiresAt(holdSweeper.newDeadline())
+                .specialRequests(request.getSpecialRequests())
+                .guestName(request.getGuestName())
+                .guestEmail(request.getGuestEmail())
+                .guestPhone(request.getGuestPhone())
+                .build();
+    }
+    
+    private static int pageSize(int limit) {
+        return Math.max(1, Math.min(limit, MAX_PAGE_SIZE));
+    }
+    
+    // One row past the page tells whether another page follows without a count query
+    private static CursorPage<BookingDto> toPage(List<BookingSummary> rows, int size,
+                                                 Function<BookingSummary, String> cursorOf) {
+        boolean hasMore = rows.size() > size;
+        List<BookingSummary> items = hasMore ? rows.subList(0, size) : rows;
+        return CursorPage.<BookingDto>builder()
+                .items(items.stream().map(BookingSummary::toDto).collect(Collectors.toList()))
+                .nextCursor(hasMore ? cursorOf.apply(items.get(size - 1)) : null)
+                .build();
+    }
+    
+    private static String encodeCursor(String sortKey, String id) {
+        String position = sortKey + "|" + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(position.getBytes(StandardCharsets.UTF_8));
+    }
+    
+    private static <K> CursorPosition<K> decodeCursor(String cursor, Function<String, K> keyParser) {
+        try {
+            String position = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int separator = position.lastIndexOf('|');
+            if (separator < 0) {
+                throw new IllegalArgumentException(cursor);
+            }
+            return new CursorPosition<>(keyParser.apply(position.substring(0, separator)),
+                    position.substring(separator + 1));
+        } catch (IllegalArgumentException | DateTimeParseException e) {
+            throw new BadRequestException("Invalid cursor");
+        }
+    }
+    
+    private record CursorPosition<K>(K key, String id) {
+    }
+    
+    private UserPrincipal getCurrentUser() {
         Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
-        String email = authentication.getName();
-        return userRepository.findByEmail(email)
-                .orElseThrow(() -> new ResourceNotFoundException("User not found"));
+        return (UserPrincipal) authentication.getPrincipal();
     }
     
     private BookingDto mapToDto(Booking booking) {
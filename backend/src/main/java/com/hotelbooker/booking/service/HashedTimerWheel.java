@@ -0,0 +1,79 @@
+package com.hotelbooker.booking.service;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Hashed timer wheel of string keys. Deadlines are hashed into {@code size} buckets
+ * by tick, so advancing the wheel only visits the buckets for the ticks that passed
+ * instead of every scheduled key. Entries more than one revolution away stay in
+ * their bucket until their tick comes round again.
+ * <p>
+ * {@link #schedule} may be called from any thread; {@link #advance} must only be
+ * called from a single ticking thread, which owns the buckets.
+ */
+class HashedTimerWheel {
+    
+    private final long tickMillis;
+    private final int mask;
+    private final List<Queue<Timeout>> buckets;
+    private final Queue<Timeout> pending = new ConcurrentLinkedQueue<>();
+    
+    private long currentTick;
+    
+    HashedTimerWheel(long tickMillis, int size, long nowMillis) {
+        if (Integer.bitCount(size) != 1) {
+            throw new IllegalArgumentException("Wheel size must be a power of two");
+        }
+        this.tickMillis = tickMillis;
+        this.mask = size - 1;
+        this.buckets = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            buckets.add(new ArrayDeque<>());
+        }
+        this.currentTick = nowMillis / tickMillis;
+    }
+    
+    void schedule(String key, long deadlineMillis) {
+        pending.add(new Timeout(key, deadlineMillis / tickMillis));
+    }
+    
+    /**
+     * Moves the wheel up to {@code nowMillis} and returns the keys whose deadline passed.
+     */
+    List<String> advance(long nowMillis) {
+        Timeout timeout;
+        while ((timeout = pending.poll()) != null) {
+            long tick = Math.max(timeout.deadlineTick, currentTick);
+            buckets.get((int) (tick & mask)).add(timeout);
+        }
+        
+        List<String> expired = new ArrayList<>();
+        long targetTick = nowMillis / tickMillis;
+        if (targetTick < currentTick) {
+            return expired;
+        }
+        
+        // After a long pause every bucket may hold due entries, but none needs visiting twice
+        long ticks = Math.min(targetTick - currentTick + 1, buckets.size());
+        for (long tick = currentTick; tick < currentTick + ticks; tick++) {
+            Iterator<Timeout> it = buckets.get((int) (tick & mask)).iterator();
+            while (it.hasNext()) {
+                Timeout candidate = it.next();
+                if (candidate.deadlineTick <= targetTick) {
+                    expired.add(candidate.key);
+                    it.remove();
+                }
+            }
+        }
+        currentTick = targetTick + 1;
+        return expired;
+    }
+    
+    private record Timeout(String key, long deadlineTick) {
+    }
+}
@@ -0,0 +1,154 @@
+package com.hotelbooker.booking.service;
+
+import com.hotelbooker.booking.entity.Booking;
+import com.hotelbooker.booking.repository.BookingRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Gives back ledger nights that no booking holds. A single booking reserves its
+ * nights on the reservation engine's shard, which commits before the booking row
+ * is saved; a crash in between leaves the nights reserved with nothing to
+ * release them.
+ * <p>
+ * Every night from today on whose ledger row has been quiet for {@code grace}
+ * is compared, in keyset pages of {@code page-size}, with the rooms PENDING and
+ * CONFIRMED bookings hold on it. Rows reserving more are lowered to that count
+ * in one JDBC batch per page. Each update is conditional on the reserved count
+ * and updated_at read, so a reservation or release made meanwhile wins, and the
+ * grace is far longer than the gap between a reservation and its booking save.
+ */
+@Component
+@Slf4j
+public class LedgerRepairJob {
+    
+    private static final Set<Booking.BookingStatus> HOLDING = Set.of(
+            Booking.BookingStatus.PENDING, Booking.BookingStatus.CONFIRMED);
+    
+    private final BookingRepository bookingRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final int pageSize;
+    private final Duration grace;
+    private final Counter repaired;
+    private final ExecutorService runner;
+    private final AtomicBoolean running = new AtomicBoolean();
+    
+    public LedgerRepairJob(BookingRepository bookingRepository,
+                           JdbcTemplate jdbcTemplate,
+                           MeterRegistry meterRegistry,
+                           @Value("${hotelbooker.booking.ledger-repair.page-size:500}") int pageSize,
+                           @Value("${hotelbooker.booking.ledger-repair.grace:PT10M}") Duration grace) {
+        this.bookingRepository = bookingRepository;
+        this.jdbcTemplate = jdbcTemplate;
+        this.pageSize = pageSize;
+        this.grace = grace;
+        this.repaired = Counter.builder("booking.ledger.repaired")
+                .description("Ledger nights lowered to what bookings actually hold")
+                .register(meterRegistry);
+        this.runner = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "ledger-repair");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+    
+    @Scheduled(cron = "${hotelbooker.booking.ledger-repair.cron:0 0 4 * * *}")
+    public void scheduleRun() {
+        if (!running.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            runner.execute(() -> {
+                try {
+                    run();
+                } catch (RuntimeException e) {
+                    log.error("Ledger repair run failed", e);
+                } finally {
+                    running.set(false);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            running.set(false);
+        }
+    }
+    
+    public int run() {
+        LocalDate today = LocalDate.now();
+        LocalDateTime quietBefore = LocalDateTime.now().minus(grace);
+        String afterId = "";
+        int total = 0;
+        List<Object[]> page;
+        do {
+            page = bookingRepository.findLedgerPage(HOLDING, today, quietBefore, afterId,
+                    PageRequest.of(0, pageSize));
+            if (page.isEmpty()) {
+                break;
+            }
+            afterId = (String) page.get(page.size() - 1)[0];
+            total += repair(page);
+        } while (page.size() == pageSize);
+        
+        if (total > 0) {
+            log.warn("Ledger repair released rooms on {} nights no booking held", total);
+        }
+        return total;
+    }
+    
+    private int repair(List<Object[]> page) {
+        List<Object[]> leaked = new ArrayList<>();
+        for (Object[] row : page) {
+            int held = ((Number) row[3]).intValue();
+            if ((Integer) row[1] > held) {
+                leaked.add(new Object[]{held, row[0], row[1], Timestamp.valueOf((LocalDateTime) row[2])});
+            }
+        }
+        if (leaked.isEmpty()) {
+            return 0;
+        }
+        
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        int[][] counts = jdbcTemplate.batchUpdate(
+                "UPDATE room_inventory SET reserved = ?, updated_at = ? WHERE id = ? AND reserved = ? " +
+                "AND updated_at = ?",
+                leaked,
+                leaked.size(),
+                (ps, row) -> {
+                    ps.setInt(1, (Integer) row[0]);
+                    ps.setTimestamp(2, now);
+                    ps.setString(3, (String) row[1]);
+                    ps.setInt(4, (Integer) row[2]);
+                    ps.setTimestamp(5, (Timestamp) row[3]);
+                });
+        
+        int changed = 0;
+        for (int count : counts[0]) {
+            changed += count;
+        }
+        repaired.increment(changed);
+        return changed;
+    }
+    
+    @PreDestroy
+    public void shutdown() {
+        runner.shutdownNow();
+    }
+}
@@ -0,0 +1,7 @@
+package com.hotelbooker.common.exception;
+
+public class IdempotencyException extends RuntimeException {
+    public IdempotencyException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,16 @@
+package com.hotelbooker.common.exception;
+
+public class PaymentGatewayException extends RuntimeException {
+    
+    // True for outages and timeouts, which count against the gateway's circuit breaker
+    private final boolean transientFailure;
+    
+    public PaymentGatewayException(String message, boolean transientFailure, Throwable cause) {
+        super(message, cause);
+        this.transientFailure = transientFailure;
+    }
+    
+    public boolean isTransientFailure() {
+        return transientFailure;
+    }
+}
@@ -0,0 +1,152 @@
+package com.hotelbooker.common.idempotency;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.hotelbooker.common.exception.IdempotencyException;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Service;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.HexFormat;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.function.Supplier;
+
+/**
+ * Runs a request at most once per {@code Idempotency-Key}. The first request locks
+ * the key and stores its response; replays return the stored response, and a
+ * concurrent duplicate waits for the first to finish instead of executing again.
+ * Keys are scoped per operation and per user, and a failed execution unlocks the
+ * key so the client can retry. The stored response carries a fingerprint of the
+ * request body, so reusing a key for a different request is rejected with a
+ * conflict instead of replaying a response that belongs to another payload.
+ */
+@Service
+@Slf4j
+public class IdempotencyService {
+    
+    public static final String HEADER = "Idempotency-Key";
+    
+    private static final long MAX_POLL_MILLIS = 500;
+    
+    private final IdempotencyStore store;
+    private final ObjectMapper objectMapper;
+    private final Duration ttl;
+    private final Duration lockTtl;
+    private final Duration waitTimeout;
+    
+    public IdempotencyService(IdempotencyStore store,
+                              ObjectMapper objectMapper,
+                              @Value("${hotelbooker.idempotency.ttl:PT24H}") Duration ttl,
+                              @Value("${hotelbooker.idempotency.lock-ttl:PT30S}") Duration lockTtl,
+                              @Value("${hotelbooker.idempotency.wait-timeout:PT10S}") Duration waitTimeout) {
+        this.store = store;
+        this.objectMapper = objectMapper;
+        this.ttl = ttl;
+        this.lockTtl = lockTtl;
+        this.waitTimeout = waitTimeout;
+    }
+    
+    public <T> T execute(String operation, String idempotencyKey, Object request, Class<T> responseType,
+                         Supplier<T> action) {
+        if (idempotencyKey == null || idempotencyKey.isBlank()) {
+            return action.get();
+        }
+        
+        String key = operation + ":" + currentUser() + ":" + idempotencyKey;
+        String fingerprint = fingerprint(request);
+        long deadline = System.currentTimeMillis() + waitTimeout.toMillis();
+        long pollMillis = 20;
+        while (true) {
+            Optional<String> stored = store.getResponse(key);
+            if (stored.isPresent()) {
+                return read(stored.get(), fingerprint, responseType);
+            }
+            String token = UUID.randomUUID().toString();
+            if (store.tryLock(key, token, lockTtl)) {
+                return executeLocked(key, token, fingerprint, action);
+            }
+            if (System.currentTimeMillis() >= deadline) {
+                throw new IdempotencyException("A request with this Idempotency-Key is still in progress");
+            }
+            sleep(pollMillis);
+            pollMillis = Math.min(pollMillis * 2, MAX_POLL_MILLIS);
+        }
+    }
+    
+    private <T> T executeLocked(String key, String token, String fingerprint, Supplier<T> action) {
+        T response;
+        try {
+            response = action.get();
+        } catch (RuntimeException e) {
+            store.unlock(key, token);
+            throw e;
+        }
+        String json;
+        try {
+            json = objectMapper.writeValueAsString(
+                    new StoredResponse(fingerprint, objectMapper.valueToTree(response)));
+        } catch (JsonProcessingException e) {
+            store.unlock(key, token);
+            throw new IllegalStateException("Could not store idempotent response", e);
+        }
+        if (!store.complete(key, token, json, ttl)) {
+            // Ran past the lock TTL, so a duplicate may have executed too; its response stays stored
+            log.warn("Idempotency lock for {} expired before the response was stored", key);
+        }
+        return response;
+    }
+    
+    private <T> T read(String json, String fingerprint, Class<T> responseType) {
+        StoredResponse stored;
+        try {
+            stored = objectMapper.readValue(json, StoredResponse.class);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Could not read stored idempotent response", e);
+        }
+        if (!fingerprint.equals(stored.fingerprint())) {
+            throw new IdempotencyException("This Idempotency-Key was already used with a different request");
+        }
+        try {
+            return objectMapper.treeToValue(stored.response(), responseType);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Could not read stored idempotent response", e);
+        }
+    }
+    
+    // SHA-256 of the request as JSON, with map entries sorted so equal requests hash alike
+    private String fingerprint(Object request) {
+        try {
+            byte[] json = objectMapper.writer()
+                    .with(SerializationFeature.ORDER_MAP_ENTRIES_BY_KEYS)
+                    .writeValueAsBytes(request);
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(json));
+        } catch (JsonProcessingException | NoSuchAlgorithmException e) {
+            throw new IllegalStateException("Could not fingerprint idempotent request", e);
+        }
+    }
+    
+    private static String currentUser() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        return authentication == null ? "anonymous" : authentication.getName();
+    }
+    
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IdempotencyException("Interrupted while waiting for an in-flight request");
+        }
+    }
+    
+    private record StoredResponse(String fingerprint, JsonNode response) {
+    }
+}
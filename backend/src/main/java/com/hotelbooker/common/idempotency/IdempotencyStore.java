@@ -0,0 +1,37 @@
+package com.hotelbooker.common.idempotency;
+
+import java.time.Duration;
+import java.util.Optional;
+
+/**
+ * Key to stored-response map backing {@link IdempotencyService}. A key is either
+ * absent, locked by the request currently executing it, or holds that request's
+ * serialized response until its TTL runs out. Each lock carries a token unique
+ * to the attempt holding it, so an attempt whose lock expired and was taken over
+ * can neither release nor overwrite its successor's.
+ */
+public interface IdempotencyStore {
+    
+    /**
+     * Claims {@code key} for execution under {@code token}; returns false if it is
+     * already locked or completed.
+     */
+    boolean tryLock(String key, String token, Duration lockTtl);
+    
+    /**
+     * Returns the stored response, or empty while the key is absent or still in flight.
+     */
+    Optional<String> getResponse(String key);
+    
+    /**
+     * Stores the response if {@code token} still holds the lock; returns false if
+     * the lock expired in the meantime.
+     */
+    boolean complete(String key, String token, String response, Duration ttl);
+    
+    /**
+     * Drops the lock after a failed execution so a retry can run again, unless
+     * {@code token} no longer holds it.
+     */
+    void unlock(String key, String token);
+}
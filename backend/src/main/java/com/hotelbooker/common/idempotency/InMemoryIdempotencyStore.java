@@ -0,0 +1,64 @@
+package com.hotelbooker.common.idempotency;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Single-instance store for tests and local runs without Redis.
+ */
+@Component
+@ConditionalOnProperty(name = "hotelbooker.idempotency.store", havingValue = "memory")
+public class InMemoryIdempotencyStore implements IdempotencyStore {
+    
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+    
+    @Override
+    public boolean tryLock(String key, String token, Duration lockTtl) {
+        Entry locked = new Entry(null, token, expiresAt(lockTtl));
+        long now = System.currentTimeMillis();
+        return entries.compute(key, (k, current) ->
+                current == null || current.expiresAt <= now ? locked : current) == locked;
+    }
+    
+    @Override
+    public Optional<String> getResponse(String key) {
+        Entry entry = entries.get(key);
+        if (entry == null || entry.expiresAt <= System.currentTimeMillis()) {
+            return Optional.empty();
+        }
+        return Optional.ofNullable(entry.response);
+    }
+    
+    @Override
+    public boolean complete(String key, String token, String response, Duration ttl) {
+        Entry completed = new Entry(response, null, expiresAt(ttl));
+        boolean stored = entries.computeIfPresent(key, (k, current) ->
+                isLockedBy(current, token) ? completed : current) == completed;
+        if (entries.size() % 1024 == 0) {
+            long now = System.currentTimeMillis();
+            entries.values().removeIf(entry -> entry.expiresAt <= now);
+        }
+        return stored;
+    }
+    
+    @Override
+    public void unlock(String key, String token) {
+        entries.computeIfPresent(key, (k, current) -> isLockedBy(current, token) ? null : current);
+    }
+    
+    private static boolean isLockedBy(Entry entry, String token) {
+        return token.equals(entry.token) && entry.expiresAt > System.currentTimeMillis();
+    }
+    
+    private static long expiresAt(Duration ttl) {
+        return System.currentTimeMillis() + ttl.toMillis();
+    }
+    
+    private record Entry(String response, String token, long expiresAt) {
+    }
+}
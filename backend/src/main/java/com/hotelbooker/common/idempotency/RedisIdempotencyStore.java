@@ -0,0 +1,62 @@
+package com.hotelbooker.common.idempotency;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+
+@Component
+@ConditionalOnProperty(name = "hotelbooker.idempotency.store", havingValue = "redis", matchIfMissing = true)
+@RequiredArgsConstructor
+public class RedisIdempotencyStore implements IdempotencyStore {
+    
+    private static final String PREFIX = "idempotency:";
+    private static final String IN_FLIGHT = "\u0000in-flight:";
+    
+    // Both only touch KEYS[1] while it still holds this attempt's lock value (ARGV[1])
+    private static final RedisScript<Long> COMPLETE = new DefaultRedisScript<>("""
+            if redis.call('GET', KEYS[1]) == ARGV[1] then
+                redis.call('SET', KEYS[1], ARGV[2], 'PX', ARGV[3])
+                return 1
+            end
+            return 0
+            """, Long.class);
+    
+    private static final RedisScript<Long> UNLOCK = new DefaultRedisScript<>("""
+            if redis.call('GET', KEYS[1]) == ARGV[1] then
+                return redis.call('DEL', KEYS[1])
+            end
+            return 0
+            """, Long.class);
+    
+    private final StringRedisTemplate redisTemplate;
+    
+    @Override
+    public boolean tryLock(String key, String token, Duration lockTtl) {
+        return Boolean.TRUE.equals(redisTemplate.opsForValue().setIfAbsent(PREFIX + key, IN_FLIGHT + token, lockTtl));
+    }
+    
+    @Override
+    public Optional<String> getResponse(String key) {
+        String value = redisTemplate.opsForValue().get(PREFIX + key);
+        return value == null || value.startsWith(IN_FLIGHT) ? Optional.empty() : Optional.of(value);
+    }
+    
+    @Override
+    public boolean complete(String key, String token, String response, Duration ttl) {
+        Long stored = redisTemplate.execute(COMPLETE, List.of(PREFIX + key), IN_FLIGHT + token, response,
+                Long.toString(ttl.toMillis()));
+        return stored != null && stored == 1;
+    }
+    
+    @Override
+    public void unlock(String key, String token) {
+        redisTemplate.execute(UNLOCK, List.of(PREFIX + key), IN_FLIGHT + token);
+    }
+}
@@ -0,0 +1,41 @@
+package com.hotelbooker.common.ratelimit;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Buckets held in this instance. Each node enforces the limits on its own, so
+ * behind a load balancer the effective limit is roughly per node.
+ */
+@Component
+@ConditionalOnProperty(name = "hotelbooker.rate-limit.store", havingValue = "local", matchIfMissing = true)
+public class LocalRateLimiter implements RateLimiter {
+    
+    private final Map<String, Map<String, TokenBucket>> buckets = new ConcurrentHashMap<>();
+    
+    @Override
+    public long tryAcquire(RateLimitRoute route, String key) {
+        long now = System.nanoTime();
+        Map<String, TokenBucket> routeBuckets = buckets.computeIfAbsent(route.name(), name -> new ConcurrentHashMap<>());
+        TokenBucket bucket = routeBuckets.get(key);
+        if (bucket == null) {
+            bucket = routeBuckets.computeIfAbsent(key, k -> new TokenBucket(now));
+        }
+        return bucket.tryAcquire(now, route.intervalNanos(), route.burstNanos());
+    }
+    
+    /**
+     * Drops buckets that have refilled completely; a new one starts full anyway.
+     */
+    @Scheduled(fixedDelayString = "${hotelbooker.rate-limit.evict-interval:PT1M}")
+    public void evictIdle() {
+        long now = System.nanoTime();
+        for (Map<String, TokenBucket> routeBuckets : buckets.values()) {
+            routeBuckets.values().removeIf(bucket -> bucket.isFull(now));
+        }
+    }
+}
@@ -0,0 +1,123 @@
+package com.hotelbooker.common.ratelimit;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.hotelbooker.auth.security.UserPrincipal;
+import com.hotelbooker.common.dto.ApiResponse;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.lang.NonNull;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.UrlPathHelper;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throttles the routes listed under {@code hotelbooker.rate-limit.policies}, such
+ * as login, registration and search, which are open to anonymous callers and
+ * expensive to serve. Runs after {@code JwtAuthenticationFilter} so per-user
+ * policies can key on the signed-in user. Requests over the limit get 429 with
+ * Retry-After. Requests on other routes only pay for the route match.
+ */
+@Component
+public class RateLimitFilter extends OncePerRequestFilter {
+    
+    private static final UrlPathHelper PATH_HELPER = new UrlPathHelper();
+    
+    private final RateLimiter rateLimiter;
+    private final ObjectMapper objectMapper;
+    private final boolean enabled;
+    private final List<RateLimitRoute> routes = new ArrayList<>();
+    
+    public RateLimitFilter(RateLimiter rateLimiter,
+                           RateLimitProperties properties,
+                           ObjectMapper objectMapper,
+                           MeterRegistry meterRegistry) {
+        this.rateLimiter = rateLimiter;
+        this.objectMapper = objectMapper;
+        this.enabled = properties.isEnabled();
+        for (RateLimitProperties.Policy policy : properties.getPolicies()) {
+            if (policy.getCapacity() <= 0 || policy.getPeriod() == null || policy.getPeriod().isZero()) {
+                throw new IllegalArgumentException("Rate limit policy " + policy.getName()
+                        + " needs a positive capacity and period");
+            }
+            Counter rejected = Counter.builder("rate.limit.rejected")
+                    .description("Requests rejected by rate limiting")
+                    .tag("policy", policy.getName())
+                    .register(meterRegistry);
+            routes.add(new RateLimitRoute(
+                    policy.getName(),
+                    List.copyOf(policy.getPaths()),
+                    new HashSet<>(policy.getMethods().stream().map(String::toUpperCase).toList()),
+                    policy.getKey(),
+                    policy.getCapacity(),
+                    policy.getPeriod().toNanos() / policy.getCapacity(),
+                    rejected));
+        }
+    }
+    
+    @Override
+    protected boolean shouldNotFilter(@NonNull HttpServletRequest request) {
+        return !enabled || routes.isEmpty();
+    }
+    
+    @Override
+    protected void doFilterInternal(
+            @NonNull HttpServletRequest request,
+            @NonNull HttpServletResponse response,
+            @NonNull FilterChain filterChain
+    ) throws ServletException, IOException {
+        RateLimitRoute route = match(request);
+        if (route != null) {
+            long waitNanos = rateLimiter.tryAcquire(route, clientKey(route, request));
+            if (waitNanos > 0) {
+                route.rejected().increment();
+                reject(response, waitNanos);
+                return;
+            }
+        }
+        filterChain.doFilter(request, response);
+    }
+    
+    private RateLimitRoute match(HttpServletRequest request) {
+        String path = PATH_HELPER.getPathWithinApplication(request);
+        for (RateLimitRoute route : routes) {
+            if (route.matches(request.getMethod(), path)) {
+                return route;
+            }
+        }
+        return null;
+    }
+    
+    private String clientKey(RateLimitRoute route, HttpServletRequest request) {
+        if (route.keyType() == RateLimitProperties.KeyType.USER) {
+            Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+            if (authentication != null && authentication.getPrincipal() instanceof UserPrincipal principal) {
+                return principal.getId();
+            }
+        }
+        // Behind a proxy, set server.forward-headers-strategy so this is the client address
+        return request.getRemoteAddr();
+    }
+    
+    private void reject(HttpServletResponse response, long waitNanos) throws IOException {
+        long retryAfterSeconds = Math.max(1, TimeUnit.NANOSECONDS.toSeconds(waitNanos + TimeUnit.SECONDS.toNanos(1) - 1));
+        response.setStatus(HttpStatus.TOO_MANY_REQUESTS.value());
+        response.setHeader(HttpHeaders.RETRY_AFTER, Long.toString(retryAfterSeconds));
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        objectMapper.writeValue(response.getOutputStream(), ApiResponse.error("Too many requests, please try again later"));
+    }
+}
@@ -0,0 +1,39 @@
+package com.hotelbooker.common.ratelimit;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+@Data
+@Component
+@ConfigurationProperties(prefix = "hotelbooker.rate-limit")
+public class RateLimitProperties {
+    
+    private boolean enabled = true;
+    private List<Policy> policies = new ArrayList<>();
+    
+    /**
+     * A bucket of {@code capacity} requests that refills completely over
+     * {@code period}, kept per client IP or per signed-in user.
+     */
+    @Data
+    public static class Policy {
+        private String name;
+        private List<String> paths = new ArrayList<>();
+        // Empty means every method
+        private List<String> methods = new ArrayList<>();
+        private KeyType key = KeyType.IP;
+        private int capacity;
+        private Duration period;
+    }
+    
+    public enum KeyType {
+        IP,
+        // Signed-in user, falling back to IP for anonymous requests
+        USER
+    }
+}
@@ -0,0 +1,41 @@
+package com.hotelbooker.common.ratelimit;
+
+import io.micrometer.core.instrument.Counter;
+import org.springframework.util.AntPathMatcher;
+
+import java.util.List;
+import java.util.Set;
+
+/**
+ * A {@link RateLimitProperties.Policy} prepared for the request path: patterns
+ * and methods are resolved once and the refill rate is expressed as the
+ * interval between tokens.
+ */
+record RateLimitRoute(
+        String name,
+        List<String> paths,
+        Set<String> methods,
+        RateLimitProperties.KeyType keyType,
+        int capacity,
+        long intervalNanos,
+        Counter rejected
+) {
+    
+    private static final AntPathMatcher MATCHER = new AntPathMatcher();
+    
+    boolean matches(String method, String path) {
+        if (!methods.isEmpty() && !methods.contains(method)) {
+            return false;
+        }
+        for (String pattern : paths) {
+            if (pattern.equals(path) || MATCHER.match(pattern, path)) {
+                return true;
+            }
+        }
+        return false;
+    }
+    
+    long burstNanos() {
+        return capacity * intervalNanos;
+    }
+}
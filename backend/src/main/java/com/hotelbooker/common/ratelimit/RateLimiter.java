@@ -0,0 +1,10 @@
+package com.hotelbooker.common.ratelimit;
+
+public interface RateLimiter {
+    
+    /**
+     * Takes one token from the bucket of {@code key} under {@code route}. Returns 0
+     * if the request is allowed, otherwise the nanoseconds until it would be.
+     */
+    long tryAcquire(RateLimitRoute route, String key);
+}
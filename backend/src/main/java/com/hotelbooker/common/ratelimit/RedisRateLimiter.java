@@ -0,0 +1,65 @@
+package com.hotelbooker.common.ratelimit;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * Buckets shared by every instance through Redis. The bucket update runs as one
+ * Lua script on the Redis clock, so concurrent nodes can't race each other and
+ * their clock skew doesn't matter. If Redis is unreachable the limiter falls back
+ * to per-node buckets rather than rejecting or waving through all traffic.
+ */
+@Component
+@ConditionalOnProperty(name = "hotelbooker.rate-limit.store", havingValue = "redis")
+@Slf4j
+public class RedisRateLimiter implements RateLimiter {
+    
+    private static final String PREFIX = "rate-limit:";
+    
+    // Same algorithm as TokenBucket, in microseconds: KEYS[1] holds the arrival time
+    private static final RedisScript<Long> ACQUIRE = new DefaultRedisScript<>("""
+            local time = redis.call('TIME')
+            local now = tonumber(time[1]) * 1000000 + tonumber(time[2])
+            local interval = tonumber(ARGV[1])
+            local burst = tonumber(ARGV[2])
+            local current = tonumber(redis.call('GET', KEYS[1]) or now)
+            local nextArrival = math.max(current, now) + interval
+            local wait = nextArrival - now - burst
+            if wait > 0 then
+                return wait
+            end
+            redis.call('SET', KEYS[1], nextArrival, 'PX', math.ceil((nextArrival - now) / 1000))
+            return 0
+            """, Long.class);
+    
+    private final StringRedisTemplate redisTemplate;
+    private final LocalRateLimiter fallback = new LocalRateLimiter();
+    
+    public RedisRateLimiter(StringRedisTemplate redisTemplate) {
+        this.redisTemplate = redisTemplate;
+    }
+    
+    @Override
+    public long tryAcquire(RateLimitRoute route, String key) {
+        try {
+            Long waitMicros = redisTemplate.execute(ACQUIRE, List.of(PREFIX + route.name() + ":" + key),
+                    Long.toString(route.intervalNanos() / 1000), Long.toString(route.burstNanos() / 1000));
+            return waitMicros == null ? 0 : waitMicros * 1000;
+        } catch (RuntimeException e) {
+            log.debug("Redis rate limiter unavailable, using local buckets", e);
+            return fallback.tryAcquire(route, key);
+        }
+    }
+    
+    @Scheduled(fixedDelayString = "${hotelbooker.rate-limit.evict-interval:PT1M}")
+    public void evictIdle() {
+        fallback.evictIdle();
+    }
+}
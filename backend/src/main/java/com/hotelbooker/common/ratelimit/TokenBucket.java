@@ -0,0 +1,39 @@
+package com.hotelbooker.common.ratelimit;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Lock-free token bucket kept as a single "theoretical arrival time" (the GCRA
+ * formulation): the bucket is full once the clock has caught up with it, and a
+ * request is admitted if taking one more token keeps it within {@code burst} of
+ * now. Acquiring is one CAS, with no timer refilling tokens in the background.
+ */
+final class TokenBucket {
+    
+    private final AtomicLong arrivalTime;
+    
+    TokenBucket(long now) {
+        this.arrivalTime = new AtomicLong(now);
+    }
+    
+    /**
+     * Takes a token and returns 0, or returns the nanoseconds until one is available.
+     */
+    long tryAcquire(long now, long intervalNanos, long burstNanos) {
+        while (true) {
+            long current = arrivalTime.get();
+            long next = Math.max(current, now) + intervalNanos;
+            long wait = next - now - burstNanos;
+            if (wait > 0) {
+                return wait;
+            }
+            if (arrivalTime.compareAndSet(current, next)) {
+                return 0;
+            }
+        }
+    }
+    
+    boolean isFull(long now) {
+        return arrivalTime.get() <= now;
+    }
+}
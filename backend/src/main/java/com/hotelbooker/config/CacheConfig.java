@@ -0,0 +1,55 @@
+package com.hotelbooker.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.cache.RedisCacheManagerBuilderCustomizer;
+import org.springframework.cache.annotation.CachingConfigurer;
+import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.cache.interceptor.CacheErrorHandler;
+import org.springframework.cache.interceptor.LoggingCacheErrorHandler;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.redis.cache.RedisCacheConfiguration;
+import org.springframework.data.redis.serializer.GenericJackson2JsonRedisSerializer;
+import org.springframework.data.redis.serializer.RedisSerializationContext;
+
+import java.time.Duration;
+
+@Configuration
+@EnableCaching
+public class CacheConfig implements CachingConfigurer {
+    
+    public static final String HOTELS = "hotels";
+    public static final String FEATURED_HOTELS = "featuredHotels";
+    public static final String DESTINATIONS = "destinations";
+    
+    @Value("${hotelbooker.cache.ttl.hotels:PT10M}")
+    private Duration hotelsTtl;
+    
+    @Value("${hotelbooker.cache.ttl.featured-hotels:PT5M}")
+    private Duration featuredHotelsTtl;
+    
+    @Value("${hotelbooker.cache.ttl.destinations:PT1H}")
+    private Duration destinationsTtl;
+    
+    @Bean
+    public RedisCacheManagerBuilderCustomizer redisCacheManagerBuilderCustomizer() {
+        RedisCacheConfiguration base = RedisCacheConfiguration.defaultCacheConfig()
+                .disableCachingNullValues()
+                .serializeValuesWith(RedisSerializationContext.SerializationPair
+                        .fromSerializer(new GenericJackson2JsonRedisSerializer()));
+        
+        return builder -> builder
+                .cacheDefaults(base)
+                .withCacheConfiguration(HOTELS, base.entryTtl(hotelsTtl))
+                .withCacheConfiguration(FEATURED_HOTELS, base.entryTtl(featuredHotelsTtl))
+                .withCacheConfiguration(DESTINATIONS, base.entryTtl(destinationsTtl));
+    }
+    
+    /**
+     * A Redis outage degrades to database reads instead of failing the request.
+     */
+    @Override
+    public CacheErrorHandler errorHandler() {
+        return new LoggingCacheErrorHandler();
+    }
+}
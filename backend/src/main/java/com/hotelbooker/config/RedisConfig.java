@@ -0,0 +1,23 @@
+package com.hotelbooker.config;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+
+@Configuration
+public class RedisConfig {
+    
+    /**
+     * Pub/sub listener container, started and stopped with the application context.
+     * Only token revocations listen on Redis channels so far.
+     */
+    @Bean
+    @ConditionalOnProperty(name = "hotelbooker.auth.revocation.store", havingValue = "redis", matchIfMissing = true)
+    public RedisMessageListenerContainer redisMessageListenerContainer(RedisConnectionFactory connectionFactory) {
+        RedisMessageListenerContainer container = new RedisMessageListenerContainer();
+        container.setConnectionFactory(connectionFactory);
+        return container;
+    }
+}
@@ -3,12 +3,15 @@ package com.hotelbooker.hotel.controller;
 import com.hotelbooker.common.dto.ApiResponse;
 import com.hotelbooker.hotel.dto.HotelDto;
 import com.hotelbooker.hotel.dto.HotelSearchRequest;
+import com.hotelbooker.hotel.dto.HotelSearchResponse;
 import com.hotelbooker.hotel.dto.RoomDto;
 import com.hotelbooker.hotel.service.HotelService;
 import lombok.RequiredArgsConstructor;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.time.LocalDate;
 import java.util.List;
 
 @RestController
@@ -19,11 +22,37 @@ public class HotelController {
     private final HotelService hotelService;
     
     @PostMapping("/search")
-    public ResponseEntity<ApiResponse<List<HotelDto>>> searchHotels(
+    public ResponseEntity<ApiResponse<HotelSearchResponse>> searchHotels(
             @RequestBody HotelSearchRequest request
     ) {
-        List<HotelDto> hotels = hotelService.searchHotels(request);
-        return ResponseEntity.ok(ApiResponse.success(hotels));
+        HotelSearchResponse response = hotelService.searchHotels(request);
+        return ResponseEntity.ok(ApiResponse.success(response));
+    }
+    
+    @GetMapping("/nearby")
+    public ResponseEntity<ApiResponse<HotelSearchResponse>> searchNearby(
+            @RequestParam double latitude,
+            @RequestParam double longitude,
+            @RequestParam(defaultValue = "10") double radiusKm,
+            @RequestParam(required = false) Integer pageSize,
+            @RequestParam(required = false) String pageToken
+    ) {
+        HotelSearchResponse response = hotelService.searchNearby(latitude, longitude, radiusKm, pageSize, pageToken);
+        return ResponseEntity.ok(ApiResponse.success(response));
+    }
+    
+    @GetMapping("/within")
+    public ResponseEntity<ApiResponse<HotelSearchResponse>> searchWithin(
+            @RequestParam double minLatitude,
+            @RequestParam double minLongitude,
+            @RequestParam double maxLatitude,
+            @RequestParam double maxLongitude,
+            @RequestParam(required = false) Integer pageSize,
+            @RequestParam(required = false) String pageToken
+    ) {
+        HotelSearchResponse response = hotelService.searchWithin(
+                minLatitude, minLongitude, maxLatitude, maxLongitude, pageSize, pageToken);
+        return ResponseEntity.ok(ApiResponse.success(response));
     }
     
     @GetMapping("/{hotelId}")
@@ -36,9 +65,11 @@ public class HotelController {
     
     @GetMapping("/{hotelId}/rooms")
     public ResponseEntity<ApiResponse<List<RoomDto>>> getHotelRooms(
-            @PathVariable String hotelId
+            @PathVariable String hotelId,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate checkInDate,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate checkOutDate
     ) {
-        List<RoomDto> rooms = hotelService.getHotelRooms(hotelId);
+        List<RoomDto> rooms = hotelService.getHotelRooms(hotelId, checkInDate, checkOutDate);
         return ResponseEntity.ok(ApiResponse.success(rooms));
     }
     
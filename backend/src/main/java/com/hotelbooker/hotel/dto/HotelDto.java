@@ -28,4 +28,5 @@ public class HotelDto {
     private List<String> amenities;
     private boolean featured;
     private boolean available;
+    private Double distanceKm;
 }
@@ -0,0 +1,19 @@
+package com.hotelbooker.hotel.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.Map;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class HotelSearchFacets {
+    private Map<String, Integer> starRating;
+    private Map<String, Integer> price;
+    private Map<String, Integer> guestRating;
+    private Map<String, Integer> amenities;
+}
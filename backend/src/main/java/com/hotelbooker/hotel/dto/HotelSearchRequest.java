@@ -1,6 +1,10 @@
 package com.hotelbooker.hotel.dto;
 
 import lombok.Data;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+import java.util.List;
 
 @Data
 public class HotelSearchRequest {
@@ -13,4 +17,31 @@ public class HotelSearchRequest {
     private Double maxPrice;
     private Integer minStarRating;
     private Double minGuestRating;
+    private List<String> amenities;
+    private Double latitude;
+    private Double longitude;
+    private SortBy sortBy;
+    private Integer pageSize;
+    private String pageToken;
+    private Boolean includeFacets;
+    
+    @Getter
+    @RequiredArgsConstructor
+    public enum SortBy {
+        PRICE_ASC("pricePerNight", true),
+        PRICE_DESC("pricePerNight", false),
+        GUEST_RATING("guestRating", false),
+        STAR_RATING("starRating", false),
+        // Ranked in memory by HotelColumnStore; requires latitude/longitude
+        DISTANCE(null, true),
+        // Ranked in memory by HotelColumnStore from rating, review count and price
+        RECOMMENDED(null, false);
+        
+        private final String property;
+        private final boolean ascending;
+        
+        public boolean isRanked() {
+            return property == null;
+        }
+    }
 }
@@ -0,0 +1,18 @@
+package com.hotelbooker.hotel.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class HotelSearchResponse {
+    private List<HotelDto> hotels;
+    private String nextPageToken;
+    private HotelSearchFacets facets;
+}
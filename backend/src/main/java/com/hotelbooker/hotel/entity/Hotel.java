@@ -1,14 +1,17 @@
 package com.hotelbooker.hotel.entity;
 
 import com.hotelbooker.common.entity.BaseEntity;
+import com.hotelbooker.hotel.index.HotelEntityListener;
 import jakarta.persistence.*;
 import lombok.*;
+import org.hibernate.annotations.BatchSize;
 
 import java.util.ArrayList;
 import java.util.List;
 
 @Entity
 @Table(name = "hotels")
+@EntityListeners(HotelEntityListener.class)
 @Getter
 @Setter
 @NoArgsConstructor
@@ -47,11 +50,13 @@ public class Hotel extends BaseEntity {
     private Integer starRating;
     
     @ElementCollection
+    @BatchSize(size = 100)
     @CollectionTable(name = "hotel_images", joinColumns = @JoinColumn(name = "hotel_id"))
     @Column(name = "image_url")
     private List<String> images = new ArrayList<>();
     
     @ElementCollection
+    @BatchSize(size = 100)
     @CollectionTable(name = "hotel_amenities", joinColumns = @JoinColumn(name = "hotel_id"))
     @Column(name = "amenity")
     private List<String> amenities = new ArrayList<>();
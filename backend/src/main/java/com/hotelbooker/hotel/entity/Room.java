@@ -1,14 +1,17 @@
 package com.hotelbooker.hotel.entity;
 
 import com.hotelbooker.common.entity.BaseEntity;
+import com.hotelbooker.hotel.index.RoomEntityListener;
 import jakarta.persistence.*;
 import lombok.*;
+import org.hibernate.annotations.BatchSize;
 
 import java.util.ArrayList;
 import java.util.List;
 
 @Entity
 @Table(name = "rooms")
+@EntityListeners(RoomEntityListener.class)
 @Getter
 @Setter
 @NoArgsConstructor
@@ -41,11 +44,13 @@ public class Room extends BaseEntity {
     private Double size; // in square meters
     
     @ElementCollection
+    @BatchSize(size = 100)
     @CollectionTable(name = "room_images", joinColumns = @JoinColumn(name = "room_id"))
     @Column(name = "image_url")
     private List<String> images = new ArrayList<>();
     
     @ElementCollection
+    @BatchSize(size = 100)
     @CollectionTable(name = "room_amenities", joinColumns = @JoinColumn(name = "room_id"))
     @Column(name = "amenity")
     private List<String> amenities = new ArrayList<>();
@@ -0,0 +1,40 @@
+package com.hotelbooker.hotel.entity;
+
+import com.hotelbooker.common.entity.BaseEntity;
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDate;
+
+/**
+ * One row per room type per night that has at least one reservation.
+ * A missing row means nothing is reserved for that night, so the free count is
+ * {@code room.totalRooms - reserved}. The (room_id, stay_date) unique key doubles
+ * as the index for "max reserved over [checkIn, checkOut)" range queries.
+ */
+@Entity
+@Table(
+        name = "room_inventory",
+        uniqueConstraints = @UniqueConstraint(
+                name = "uk_room_inventory_room_date",
+                columnNames = {"room_id", "stay_date"}
+        )
+)
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class RoomInventory extends BaseEntity {
+    
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "room_id", nullable = false)
+    private Room room;
+    
+    @Column(name = "stay_date", nullable = false)
+    private LocalDate stayDate;
+    
+    @Builder.Default
+    @Column(nullable = false)
+    private Integer reserved = 0;
+}
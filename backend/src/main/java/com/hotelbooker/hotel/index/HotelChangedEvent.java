@@ -0,0 +1,15 @@
+package com.hotelbooker.hotel.index;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Published whenever a hotel row is inserted, updated or deleted through JPA.
+ * In-memory indexes listen for it after commit and refresh the affected hotel.
+ */
+@Getter
+@RequiredArgsConstructor
+public class HotelChangedEvent {
+    private final String hotelId;
+    private final boolean removed;
+}
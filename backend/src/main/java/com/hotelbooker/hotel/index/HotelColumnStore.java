@@ -0,0 +1,474 @@
+package com.hotelbooker.hotel.index;
+
+import com.hotelbooker.hotel.dto.HotelSearchFacets;
+import com.hotelbooker.hotel.dto.HotelSearchRequest.SortBy;
+import com.hotelbooker.hotel.entity.Hotel;
+import com.hotelbooker.hotel.repository.HotelRepository;
+import com.hotelbooker.hotel.repository.RoomRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.roaringbitmap.RoaringBitmap;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.*;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Stream;
+
+/**
+ * Column-oriented copy of the hotel attributes used for facet counting and
+ * ranking. Each hotel has a stable ordinal into primitive arrays, and amenities
+ * are stored as ids into a shared dictionary, so counting the star, price and
+ * rating facets over a candidate set is a single pass of array increments.
+ * <p>
+ * Each dictionary amenity also keeps Roaring bitmaps of the ordinals offering
+ * it at hotel level and in at least one room type, so a multi-amenity filter is
+ * a handful of bitmap ORs and ANDs rather than one SQL join per amenity, and
+ * the amenity facets are the same unions intersected with the candidates.
+ * <p>
+ * Sort modes that SQL cannot index (distance, recommended score) are ranked
+ * here with a bounded top-K heap over the candidate ordinals, so a first page
+ * never sorts or materializes the rest of the matches.
+ * <p>
+ * Hotels changed while a rebuild streams its snapshot are recorded and re-read
+ * onto the new columns just before the swap, so their update isn't lost with
+ * the outgoing ones.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class HotelColumnStore {
+    
+    static final double[] PRICE_BOUNDS = {100, 200, 300};
+    static final String[] PRICE_LABELS = {"0-100", "100-200", "200-300", "300+"};
+    static final double[] RATING_BANDS = {4.5, 4.0, 3.5, 3.0};
+    
+    static final double PRIOR_RATING = 3.5;
+    static final int PRIOR_REVIEWS = 50;
+    static final double REFERENCE_PRICE = 100;
+    static final double RATING_WEIGHT = 0.7;
+    static final double PRICE_WEIGHT = 0.3;
+    
+    private final HotelRepository hotelRepository;
+    private final RoomRepository roomRepository;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    
+    private Columns columns = new Columns();
+    private volatile boolean ready;
+    // Guarded by the write lock; non-null while a rebuild is streaming
+    private Set<String> changedDuringRebuild;
+    
+    public boolean isReady() {
+        return ready;
+    }
+    
+    /**
+     * Ordinals of hotels offering every named amenity, either hotel-wide or in
+     * one of their room types. Names are matched case-insensitively.
+     */
+    public RoaringBitmap hotelsWithAllAmenities(Collection<String> names) {
+        lock.readLock().lock();
+        try {
+            RoaringBitmap result = null;
+            for (String name : names) {
+                Integer amenity = columns.amenityIds.get(name.toLowerCase(Locale.ROOT));
+                if (amenity == null) {
+                    return new RoaringBitmap();
+                }
+                RoaringBitmap offering = RoaringBitmap.or(
+                        columns.hotelAmenityBitmaps.get(amenity), columns.roomAmenityBitmaps.get(amenity));
+                if (result == null) {
+                    result = offering;
+                } else {
+                    result.and(offering);
+                }
+            }
+            return result != null ? result : new RoaringBitmap();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+    
+    public RoaringBitmap toOrdinals(Collection<String> hotelIds) {
+        lock.readLock().lock();
+        try {
+            RoaringBitmap ordinals = new RoaringBitmap();
+            for (String id : hotelIds) {
+                Integer ordinal = columns.ordinals.get(id);
+                if (ordinal != null) {
+                    ordinals.add(ordinal);
+                }
+            }
+            return ordinals;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+    
+    public List<String> toIds(RoaringBitmap ordinals) {
+        lock.readLock().lock();
+        try {
+            List<String> ids = new ArrayList<>(ordinals.getCardinality());
+            ordinals.forEach((int ordinal) -> {
+                if (columns.ids[ordinal] != null) {
+                    ids.add(columns.ids[ordinal]);
+                }
+            });
+            return ids;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+    
+    public HotelSearchFacets countFacets(Collection<String> hotelIds) {
+        lock.readLock().lock();
+        try {
+            Columns c = columns;
+            int[] stars = new int[6];
+            int[] prices = new int[PRICE_LABELS.length];
+            int[] ratings = new int[RATING_BANDS.length];
+            RoaringBitmap candidates = new RoaringBitmap();
+            
+            for (String id : hotelIds) {
+                Integer ordinal = c.ordinals.get(id);
+                if (ordinal == null) {
+                    continue;
+                }
+                candidates.add(ordinal);
+                int star = c.stars[ordinal];
+                if (star >= 0 && star < stars.length) {
+                    stars[star]++;
+                }
+                prices[priceBucket(c.prices[ordinal])]++;
+                for (int band = 0; band < RATING_BANDS.length; band++) {
+                    if (c.ratings[ordinal] >= RATING_BANDS[band]) {
+                        ratings[band]++;
+                    }
+                }
+            }
+            
+            Map<String, Integer> starFacet = new LinkedHashMap<>();
+            for (int star = 1; star < stars.length; star++) {
+                starFacet.put(String.valueOf(star), stars[star]);
+            }
+            Map<String, Integer> priceFacet = new LinkedHashMap<>();
+            for (int bucket = 0; bucket < PRICE_LABELS.length; bucket++) {
+                priceFacet.put(PRICE_LABELS[bucket], prices[bucket]);
+            }
+            Map<String, Integer> ratingFacet = new LinkedHashMap<>();
+            for (int band = 0; band < RATING_BANDS.length; band++) {
+                ratingFacet.put(RATING_BANDS[band] + "+", ratings[band]);
+            }
+            // Same hotel-or-room sets the amenity filter matches on
+            Map<String, Integer> amenityFacet = new TreeMap<>();
+            for (int amenity = 0; amenity < c.amenityNames.size(); amenity++) {
+                RoaringBitmap offering = RoaringBitmap.or(
+                        c.hotelAmenityBitmaps.get(amenity), c.roomAmenityBitmaps.get(amenity));
+                int count = RoaringBitmap.andCardinality(offering, candidates);
+                if (count > 0) {
+                    amenityFacet.put(c.amenityNames.get(amenity), count);
+                }
+            }
+            
+            return HotelSearchFacets.builder()
+                    .starRating(starFacet)
+                    .price(priceFacet)
+                    .guestRating(ratingFacet)
+                    .amenities(amenityFacet)
+                    .build();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+    
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(
+            initialDelayString = "${hotelbooker.search.column-store.rebuild-interval:PT30M}",
+            fixedDelayString = "${hotelbooker.search.column-store.rebuild-interval:PT30M}"
+    )
+    @Transactional(readOnly = true)
+    public synchronized void rebuild() {
+        trackChanges(new HashSet<>());
+        Columns rebuilt = new Columns();
+        try {
+            try (Stream<Object[]> rows = hotelRepository.streamColumnFields()) {
+                rows.forEach(row -> rebuilt.set((String) row[0], (Double) row[1], (Integer) row[2],
+                        (Double) row[3], (Integer) row[4], (Double) row[5], (Double) row[6]));
+            }
+            Map<String, List<String>> amenitiesByHotel = new HashMap<>();
+            try (Stream<Object[]> rows = hotelRepository.streamAmenities()) {
+                rows.forEach(row -> amenitiesByHotel.computeIfAbsent((String) row[0], k -> new ArrayList<>())
+                        .add((String) row[1]));
+            }
+            amenitiesByHotel.forEach(rebuilt::setAmenities);
+            
+            Map<String, List<String>> roomAmenitiesByHotel = new HashMap<>();
+            try (Stream<Object[]> rows = roomRepository.streamAmenitiesByHotel()) {
+                rows.forEach(row -> roomAmenitiesByHotel.computeIfAbsent((String) row[0], k -> new ArrayList<>())
+                        .add((String) row[1]));
+            }
+            roomAmenitiesByHotel.forEach(rebuilt::setRoomAmenities);
+            rebuilt.optimize();
+            
+            lock.writeLock().lock();
+            try {
+                for (String id : changedDuringRebuild) {
+                    apply(rebuilt, id, load(id));
+                }
+                columns = rebuilt;
+                ready = true;
+                changedDuringRebuild = null;
+            } finally {
+                lock.writeLock().unlock();
+            }
+        } catch (RuntimeException e) {
+            trackChanges(null);
+            throw e;
+        }
+        log.info("Column store built with {} hotels and {} amenities", rebuilt.ordinals.size(),
+                rebuilt.amenityNames.size());
+    }
+    
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onHotelChanged(HotelChangedEvent event) {
+        HotelColumns updated = event.isRemoved() ? null : load(event.getHotelId());
+        
+        lock.writeLock().lock();
+        try {
+            recordChange(event.getHotelId());
+            apply(columns, event.getHotelId(), updated);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+    
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onRoomChanged(RoomChangedEvent event) {
+        List<String> roomAmenities = roomRepository.findAmenitiesByHotelId(event.getHotelId());
+        
+        lock.writeLock().lock();
+        try {
+            recordChange(event.getHotelId());
+            columns.setRoomAmenities(event.getHotelId(), roomAmenities);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+    
+    private void recordChange(String hotelId) {
+        if (changedDuringRebuild != null) {
+            changedDuringRebuild.add(hotelId);
+        }
+    }
+    
+    private void trackChanges(Set<String> changed) {
+        lock.writeLock().lock();
+        try {
+            changedDuringRebuild = changed;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+    
+    private HotelColumns load(String hotelId) {
+        return hotelRepository.findById(hotelId)
+                .map(hotel -> new HotelColumns(hotel, hotelRepository.findAmenities(hotelId),
+                        roomRepository.findAmenitiesByHotelId(hotelId)))
+                .orElse(null);
+    }
+    
+    private static void apply(Columns columns, String hotelId, HotelColumns updated) {
+        if (updated == null) {
+            columns.remove(hotelId);
+            return;
+        }
+        Hotel h = updated.hotel();
+        columns.set(h.getId(), h.getPricePerNight(), h.getStarRating(), h.getGuestRating(),
+                h.getTotalReviews(), h.getLatitude(), h.getLongitude());
+        columns.setAmenities(h.getId(), updated.amenities());
+        columns.setRoomAmenities(h.getId(), updated.roomAmenities());
+    }
+    
+    /**
+     * Selects the best {@code limit} candidates strictly after {@code after} in
+     * (key, id) order, where a lower key ranks first: distance in kilometres for
+     * {@link SortBy#DISTANCE}, the negated score for {@link SortBy#RECOMMENDED}.
+     */
+    public List<RankedHotel> rank(Collection<String> hotelIds, SortBy sortBy, Double latitude, Double longitude,
+                                  RankedHotel after, int limit) {
+        // Max-heap on (key, id): the worst kept candidate is evicted first
+        PriorityQueue<RankedHotel> heap = new PriorityQueue<>(limit + 1, RankedHotel.ORDER.reversed());
+        
+        lock.readLock().lock();
+        try {
+            Columns c = columns;
+            for (String id : hotelIds) {
+                Integer ordinal = c.ordinals.get(id);
+                if (ordinal == null) {
+                    continue;
+                }
+                double key;
+                if (sortBy == SortBy.DISTANCE) {
+                    if (Double.isNaN(c.latitudes[ordinal]) || Double.isNaN(c.longitudes[ordinal])) {
+                        continue;
+                    }
+                    key = HotelGeoIndex.haversineKm(latitude, longitude, c.latitudes[ordinal], c.longitudes[ordinal]);
+                } else {
+                    key = -recommendedScore(c.ratings[ordinal], c.reviews[ordinal], c.prices[ordinal]);
+                }
+                
+                RankedHotel candidate = new RankedHotel(id, key);
+                if (after != null && RankedHotel.ORDER.compare(candidate, after) <= 0) {
+                    continue;
+                }
+                if (heap.size() < limit) {
+                    heap.add(candidate);
+                } else if (RankedHotel.ORDER.compare(candidate, heap.peek()) < 0) {
+                    heap.poll();
+                    heap.add(candidate);
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        
+        List<RankedHotel> result = new ArrayList<>(heap);
+        result.sort(RankedHotel.ORDER);
+        return result;
+    }
+    
+    /**
+     * Bayesian-averaged guest rating (shrunk toward {@link #PRIOR_RATING} for
+     * hotels with few reviews) blended with a price score that decays with cost.
+     */
+    static double recommendedScore(double rating, int reviews, double price) {
+        double bayesianRating = (reviews * rating + PRIOR_REVIEWS * PRIOR_RATING) / (reviews + PRIOR_REVIEWS);
+        double ratingScore = bayesianRating / 5.0;
+        double priceScore = 1.0 / (1.0 + Math.log1p(Math.max(0, price) / REFERENCE_PRICE));
+        return RATING_WEIGHT * ratingScore + PRICE_WEIGHT * priceScore;
+    }
+    
+    private static int priceBucket(double price) {
+        int bucket = 0;
+        while (bucket < PRICE_BOUNDS.length && price >= PRICE_BOUNDS[bucket]) {
+            bucket++;
+        }
+        return bucket;
+    }
+    
+    private record HotelColumns(Hotel hotel, List<String> amenities, List<String> roomAmenities) {
+    }
+    
+    private static final class Columns {
+        private static final int[] NO_AMENITIES = new int[0];
+        
+        private final Map<String, Integer> ordinals = new HashMap<>();
+        private final List<String> amenityNames = new ArrayList<>();
+        private final Map<String, Integer> amenityIds = new HashMap<>();
+        private final List<RoaringBitmap> hotelAmenityBitmaps = new ArrayList<>();
+        private final List<RoaringBitmap> roomAmenityBitmaps = new ArrayList<>();
+        private String[] ids = new String[16];
+        private double[] prices = new double[16];
+        private byte[] stars = new byte[16];
+        private double[] ratings = new double[16];
+        private int[] reviews = new int[16];
+        private double[] latitudes = new double[16];
+        private double[] longitudes = new double[16];
+        private int[][] amenities = new int[16][];
+        private int[][] roomAmenities = new int[16][];
+        private int size;
+        
+        void set(String id, Double price, Integer star, Double rating, Integer reviewCount,
+                 Double latitude, Double longitude) {
+            Integer ordinal = ordinals.get(id);
+            if (ordinal == null) {
+                ordinal = size++;
+                ensureCapacity(size);
+                ordinals.put(id, ordinal);
+                ids[ordinal] = id;
+                amenities[ordinal] = NO_AMENITIES;
+                roomAmenities[ordinal] = NO_AMENITIES;
+            }
+            prices[ordinal] = price != null ? price : 0;
+            stars[ordinal] = star != null ? star.byteValue() : 0;
+            ratings[ordinal] = rating != null ? rating : 0;
+            reviews[ordinal] = reviewCount != null ? reviewCount : 0;
+            latitudes[ordinal] = latitude != null ? latitude : Double.NaN;
+            longitudes[ordinal] = longitude != null ? longitude : Double.NaN;
+        }
+        
+        void setAmenities(String id, List<String> names) {
+            Integer ordinal = ordinals.get(id);
+            if (ordinal != null) {
+                amenities[ordinal] = replace(ordinal, amenities[ordinal], names, hotelAmenityBitmaps);
+            }
+        }
+        
+        void setRoomAmenities(String id, List<String> names) {
+            Integer ordinal = ordinals.get(id);
+            if (ordinal != null) {
+                roomAmenities[ordinal] = replace(ordinal, roomAmenities[ordinal], names, roomAmenityBitmaps);
+            }
+        }
+        
+        void remove(String id) {
+            // The ordinal slot stays allocated until the next rebuild
+            Integer ordinal = ordinals.remove(id);
+            if (ordinal != null) {
+                replace(ordinal, amenities[ordinal], Collections.emptyList(), hotelAmenityBitmaps);
+                replace(ordinal, roomAmenities[ordinal], Collections.emptyList(), roomAmenityBitmaps);
+                ids[ordinal] = null;
+                amenities[ordinal] = NO_AMENITIES;
+                roomAmenities[ordinal] = NO_AMENITIES;
+            }
+        }
+        
+        void optimize() {
+            hotelAmenityBitmaps.forEach(RoaringBitmap::runOptimize);
+            roomAmenityBitmaps.forEach(RoaringBitmap::runOptimize);
+        }
+        
+        private int[] replace(int ordinal, int[] previous, List<String> names, List<RoaringBitmap> bitmaps) {
+            for (int amenity : previous) {
+                bitmaps.get(amenity).remove(ordinal);
+            }
+            int[] current = names.stream()
+                    .mapToInt(this::amenityId)
+                    .distinct()
+                    .toArray();
+            for (int amenity : current) {
+                bitmaps.get(amenity).add(ordinal);
+            }
+            return current;
+        }
+        
+        private int amenityId(String name) {
+            return amenityIds.computeIfAbsent(name.toLowerCase(Locale.ROOT), k -> {
+                amenityNames.add(name);
+                hotelAmenityBitmaps.add(new RoaringBitmap());
+                roomAmenityBitmaps.add(new RoaringBitmap());
+                return amenityNames.size() - 1;
+            });
+        }
+        
+        private void ensureCapacity(int capacity) {
+            if (capacity > ids.length) {
+                int length = Math.max(capacity, ids.length * 2);
+                ids = Arrays.copyOf(ids, length);
+                prices = Arrays.copyOf(prices, length);
+                stars = Arrays.copyOf(stars, length);
+                ratings = Arrays.copyOf(ratings, length);
+                reviews = Arrays.copyOf(reviews, length);
+                latitudes = Arrays.copyOf(latitudes, length);
+                longitudes = Arrays.copyOf(longitudes, length);
+                amenities = Arrays.copyOf(amenities, length);
+                roomAmenities = Arrays.copyOf(roomAmenities, length);
+            }
+        }
+    }
+}
@@ -0,0 +1,27 @@
+package com.hotelbooker.hotel.index;
+
+import com.hotelbooker.hotel.entity.Hotel;
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.PostRemove;
+import jakarta.persistence.PostUpdate;
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Component;
+
+@Component
+@RequiredArgsConstructor
+public class HotelEntityListener {
+    
+    private final ApplicationEventPublisher eventPublisher;
+    
+    @PostPersist
+    @PostUpdate
+    public void onSaved(Hotel hotel) {
+        eventPublisher.publishEvent(new HotelChangedEvent(hotel.getId(), false));
+    }
+    
+    @PostRemove
+    public void onRemoved(Hotel hotel) {
+        eventPublisher.publishEvent(new HotelChangedEvent(hotel.getId(), true));
+    }
+}
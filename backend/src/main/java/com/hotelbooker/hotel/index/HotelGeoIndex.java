@@ -0,0 +1,281 @@
+package com.hotelbooker.hotel.index;
+
+import com.hotelbooker.hotel.repository.HotelRepository;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.*;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Stream;
+
+/**
+ * Fixed-size lat/lng grid over available hotels with coordinates. Radius and
+ * viewport queries visit only the cells overlapping the search area and keep
+ * the closest matches in a bounded heap, so a map pan costs a handful of cell
+ * lookups instead of a table scan.
+ * <p>
+ * Hotels changed while a rebuild streams its snapshot are recorded and re-read
+ * onto the new grid just before the swap, so their update isn't lost with the
+ * outgoing one.
+ */
+@Component
+@Slf4j
+public class HotelGeoIndex {
+    
+    private static final double EARTH_RADIUS_KM = 6371.0;
+    private static final double KM_PER_DEGREE = 111.32;
+    
+    private final HotelRepository hotelRepository;
+    private final double cellDegrees;
+    private final int lngCells;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    
+    private Map<Long, List<Entry>> cells = new HashMap<>();
+    private Map<String, Entry> entries = new HashMap<>();
+    // Guarded by the write lock; non-null while a rebuild is streaming
+    private Set<String> changedDuringRebuild;
+    
+    public HotelGeoIndex(HotelRepository hotelRepository,
+                         @Value("${hotelbooker.search.geo-index.cell-degrees:0.1}") double cellDegrees) {
+        this.hotelRepository = hotelRepository;
+        this.cellDegrees = cellDegrees;
+        this.lngCells = (int) Math.ceil(360 / cellDegrees);
+    }
+    
+    /**
+     * Hotels within {@code radiusKm} of the point, closest first, strictly after
+     * the (distance, id) cursor when one is given.
+     */
+    public List<Match> nearby(double latitude, double longitude, double radiusKm, Match after, int limit) {
+        double latDelta = radiusKm / KM_PER_DEGREE;
+        double cosLat = Math.cos(Math.toRadians(latitude));
+        double lngDelta = cosLat < 1e-6 ? 180 : Math.min(180, radiusKm / (KM_PER_DEGREE * cosLat));
+        
+        return query(latitude - latDelta, longitude - lngDelta, latitude + latDelta, longitude + lngDelta,
+                latitude, longitude, radiusKm, after, limit);
+    }
+    
+    /**
+     * Hotels inside the viewport, ordered by distance from its center. A box with
+     * {@code minLongitude > maxLongitude} crosses the antimeridian.
+     */
+    public List<Match> within(double minLatitude, double minLongitude, double maxLatitude, double maxLongitude,
+                              Match after, int limit) {
+        double centerLat = (minLatitude + maxLatitude) / 2;
+        double lngSpan = maxLongitude >= minLongitude
+                ? maxLongitude - minLongitude
+                : maxLongitude + 360 - minLongitude;
+        double centerLng = normalizeLongitude(minLongitude + lngSpan / 2);
+        
+        return query(minLatitude, minLongitude, maxLatitude, minLongitude + lngSpan,
+                centerLat, centerLng, Double.MAX_VALUE, after, limit);
+    }
+    
+    private List<Match> query(double minLat, double minLng, double maxLat, double maxLng,
+                              double originLat, double originLng, double radiusKm, Match after, int limit) {
+        // Max-heap on (distance, id): the worst kept match is evicted first
+        PriorityQueue<Match> heap = new PriorityQueue<>(limit + 1, Match.ORDER.reversed());
+        
+        lock.readLock().lock();
+        try {
+            int minRow = latCell(Math.max(-90, minLat));
+            int maxRow = latCell(Math.min(90, maxLat));
+            long minCol = (long) Math.floor((minLng + 180) / cellDegrees);
+            long maxCol = (long) Math.floor((maxLng + 180) / cellDegrees);
+            long span = Math.min(lngCells, maxCol - minCol + 1);
+            
+            // Walk the occupied cells directly when the box covers more cells than exist
+            if ((long) (maxRow - minRow + 1) * span > cells.size()) {
+                for (List<Entry> cell : cells.values()) {
+                    collect(cell, minLat, minLng, maxLat, maxLng, originLat, originLng, radiusKm, after, limit, heap);
+                }
+            } else {
+                for (int row = minRow; row <= maxRow; row++) {
+                    for (long col = minCol; col < minCol + span; col++) {
+                        List<Entry> cell = cells.get(cellKey(row, Math.floorMod(col, lngCells)));
+                        if (cell != null) {
+                            collect(cell, minLat, minLng, maxLat, maxLng, originLat, originLng, radiusKm, after,
+                                    limit, heap);
+                        }
+                    }
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        
+        List<Match> result = new ArrayList<>(heap);
+        result.sort(Match.ORDER);
+        return result;
+    }
+    
+    private void collect(List<Entry> cell, double minLat, double minLng, double maxLat, double maxLng,
+                         double originLat, double originLng, double radiusKm, Match after, int limit,
+                         PriorityQueue<Match> heap) {
+        for (Entry entry : cell) {
+            if (entry.latitude < minLat || entry.latitude > maxLat || !inLongitudeRange(entry.longitude, minLng, maxLng)) {
+                continue;
+            }
+            double distance = haversineKm(originLat, originLng, entry.latitude, entry.longitude);
+            if (distance > radiusKm) {
+                continue;
+            }
+            Match match = new Match(entry.id, distance);
+            if (after != null && Match.ORDER.compare(match, after) <= 0) {
+                continue;
+            }
+            if (heap.size() < limit) {
+                heap.add(match);
+            } else if (Match.ORDER.compare(match, heap.peek()) < 0) {
+                heap.poll();
+                heap.add(match);
+            }
+        }
+    }
+    
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(
+            initialDelayString = "${hotelbooker.search.geo-index.rebuild-interval:PT30M}",
+            fixedDelayString = "${hotelbooker.search.geo-index.rebuild-interval:PT30M}"
+    )
+    @Transactional(readOnly = true)
+    public synchronized void rebuild() {
+        trackChanges(new HashSet<>());
+        Map<Long, List<Entry>> rebuiltCells = new HashMap<>();
+        Map<String, Entry> rebuiltEntries = new HashMap<>();
+        try {
+            try (Stream<Object[]> rows = hotelRepository.streamCoordinates()) {
+                rows.forEach(row -> {
+                    Entry entry = new Entry((String) row[0], (Double) row[1], (Double) row[2]);
+                    rebuiltEntries.put(entry.id, entry);
+                    rebuiltCells.computeIfAbsent(cellKey(entry), k -> new ArrayList<>()).add(entry);
+                });
+            }
+            
+            lock.writeLock().lock();
+            try {
+                for (String id : changedDuringRebuild) {
+                    apply(rebuiltCells, rebuiltEntries, id, load(id));
+                }
+                cells = rebuiltCells;
+                entries = rebuiltEntries;
+                changedDuringRebuild = null;
+            } finally {
+                lock.writeLock().unlock();
+            }
+        } catch (RuntimeException e) {
+            trackChanges(null);
+            throw e;
+        }
+        log.info("Geo index built with {} hotels in {} cells", rebuiltEntries.size(), rebuiltCells.size());
+    }
+    
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onHotelChanged(HotelChangedEvent event) {
+        Entry updated = event.isRemoved() ? null : load(event.getHotelId());
+        
+        lock.writeLock().lock();
+        try {
+            if (changedDuringRebuild != null) {
+                changedDuringRebuild.add(event.getHotelId());
+            }
+            apply(cells, entries, event.getHotelId(), updated);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+    
+    private void trackChanges(Set<String> changed) {
+        lock.writeLock().lock();
+        try {
+            changedDuringRebuild = changed;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+    
+    private Entry load(String hotelId) {
+        return hotelRepository.findById(hotelId)
+                .filter(hotel -> hotel.isAvailable() && hotel.getLatitude() != null && hotel.getLongitude() != null)
+                .map(hotel -> new Entry(hotel.getId(), hotel.getLatitude(), hotel.getLongitude()))
+                .orElse(null);
+    }
+    
+    private void apply(Map<Long, List<Entry>> cells, Map<String, Entry> entries, String id, Entry updated) {
+        Entry previous = entries.remove(id);
+        if (previous != null) {
+            List<Entry> cell = cells.get(cellKey(previous));
+            cell.remove(previous);
+            if (cell.isEmpty()) {
+                cells.remove(cellKey(previous));
+            }
+        }
+        if (updated != null) {
+            entries.put(updated.id, updated);
+            cells.computeIfAbsent(cellKey(updated), k -> new ArrayList<>()).add(updated);
+        }
+    }
+    
+    private int latCell(double latitude) {
+        return (int) Math.floor((latitude + 90) / cellDegrees);
+    }
+    
+    private long cellKey(Entry entry) {
+        return cellKey(latCell(entry.latitude), Math.floorMod(
+                (long) Math.floor((normalizeLongitude(entry.longitude) + 180) / cellDegrees), lngCells));
+    }
+    
+    private static long cellKey(int row, int col) {
+        return ((long) row << 32) | col;
+    }
+    
+    private static boolean inLongitudeRange(double longitude, double minLng, double maxLng) {
+        if (maxLng - minLng >= 360) {
+            return true;
+        }
+        double offset = normalizeLongitude(longitude - minLng);
+        if (offset < 0) {
+            offset += 360;
+        }
+        return offset <= maxLng - minLng;
+    }
+    
+    private static double normalizeLongitude(double longitude) {
+        return ((longitude + 180) % 360 + 360) % 360 - 180;
+    }
+    
+    public static double haversineKm(double lat1, double lng1, double lat2, double lng2) {
+        double dLat = Math.toRadians(lat2 - lat1);
+        double dLng = Math.toRadians(lng2 - lng1);
+        double a = Math.sin(dLat / 2) * Math.sin(dLat / 2)
+                + Math.cos(Math.toRadians(lat1)) * Math.cos(Math.toRadians(lat2))
+                * Math.sin(dLng / 2) * Math.sin(dLng / 2);
+        return 2 * EARTH_RADIUS_KM * Math.asin(Math.min(1, Math.sqrt(a)));
+    }
+    
+    @RequiredArgsConstructor
+    private static final class Entry {
+        private final String id;
+        private final double latitude;
+        private final double longitude;
+    }
+    
+    @Getter
+    @RequiredArgsConstructor
+    public static final class Match {
+        static final Comparator<Match> ORDER = Comparator.comparingDouble(Match::getDistanceKm)
+                .thenComparing(Match::getHotelId);
+        
+        private final String hotelId;
+        private final double distanceKm;
+    }
+}
@@ -0,0 +1,250 @@
+package com.hotelbooker.hotel.index;
+
+import com.hotelbooker.hotel.repository.HotelRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.*;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Stream;
+
+/**
+ * Trigram inverted index over hotel name, city and country, answering the same
+ * case-insensitive "contains" question as {@link HotelRepository#searchByLocation}
+ * without a sequential scan of the hotels table.
+ * <p>
+ * Every hotel gets an ordinal; each trigram maps to the sorted ordinals whose
+ * fields contain it. A query intersects the postings of its trigrams and then
+ * verifies the candidates against the stored text. Queries shorter than three
+ * characters scan the in-memory texts instead. Updated hotels are re-appended
+ * under a new ordinal and the old one is tombstoned until the next rebuild.
+ * <p>
+ * A rebuild streams its snapshot without holding the lock, so hotels changed in
+ * the meantime are recorded and re-read onto the new state just before the swap;
+ * otherwise their update would be applied to the outgoing state and lost.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class HotelLocationIndex {
+    
+    private static final int GRAM = 3;
+    private static final char FIELD_SEPARATOR = '\u0000';
+    
+    private final HotelRepository hotelRepository;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    
+    private volatile State state;
+    // Guarded by the write lock; non-null while a rebuild is streaming
+    private Set<String> changedDuringRebuild;
+    
+    public boolean isReady() {
+        return state != null;
+    }
+    
+    /**
+     * Returns the ids of hotels whose name, city or country contains the query.
+     */
+    public List<String> search(String location) {
+        String query = location.trim().toLowerCase(Locale.ROOT);
+        lock.readLock().lock();
+        try {
+            return state.search(query);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+    
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(
+            initialDelayString = "${hotelbooker.search.location-index.rebuild-interval:PT30M}",
+            fixedDelayString = "${hotelbooker.search.location-index.rebuild-interval:PT30M}"
+    )
+    @Transactional(readOnly = true)
+    public synchronized void rebuild() {
+        long start = System.currentTimeMillis();
+        trackChanges(new HashSet<>());
+        State rebuilt = new State();
+        try {
+            try (Stream<Object[]> rows = hotelRepository.streamLocationFields()) {
+                rows.forEach(row -> rebuilt.add((String) row[0], text(row[1], row[2], row[3])));
+            }
+            
+            lock.writeLock().lock();
+            try {
+                for (String id : changedDuringRebuild) {
+                    apply(rebuilt, id, load(id));
+                }
+                state = rebuilt;
+                changedDuringRebuild = null;
+            } finally {
+                lock.writeLock().unlock();
+            }
+        } catch (RuntimeException e) {
+            trackChanges(null);
+            throw e;
+        }
+        log.info("Location index built with {} hotels in {} ms", rebuilt.size(),
+                System.currentTimeMillis() - start);
+    }
+    
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onHotelChanged(HotelChangedEvent event) {
+        String text = event.isRemoved() ? null : load(event.getHotelId());
+        
+        lock.writeLock().lock();
+        try {
+            if (changedDuringRebuild != null) {
+                changedDuringRebuild.add(event.getHotelId());
+            }
+            if (state != null) {
+                apply(state, event.getHotelId(), text);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+    
+    private void trackChanges(Set<String> changed) {
+        lock.writeLock().lock();
+        try {
+            changedDuringRebuild = changed;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+    
+    private String load(String hotelId) {
+        return hotelRepository.findById(hotelId)
+                .map(hotel -> text(hotel.getName(), hotel.getCity(), hotel.getCountry()))
+                .orElse(null);
+    }
+    
+    private static void apply(State state, String id, String text) {
+        state.remove(id);
+        if (text != null) {
+            state.add(id, text);
+        }
+    }
+    
+    private static String text(Object name, Object city, Object country) {
+        return (String.valueOf(name) + FIELD_SEPARATOR + city + FIELD_SEPARATOR + country)
+                .toLowerCase(Locale.ROOT);
+    }
+    
+    private static long gramKey(CharSequence text, int offset) {
+        return ((long) text.charAt(offset) << 32)
+                | ((long) text.charAt(offset + 1) << 16)
+                | text.charAt(offset + 2);
+    }
+    
+    private static boolean spansFields(String text, int offset) {
+        for (int i = offset; i < offset + GRAM; i++) {
+            if (text.charAt(i) == FIELD_SEPARATOR) {
+                return true;
+            }
+        }
+        return false;
+    }
+    
+    private static final class State {
+        private final List<String> ids = new ArrayList<>();
+        private final List<String> texts = new ArrayList<>();
+        private final Map<String, Integer> ordinals = new HashMap<>();
+        private final Map<Long, IntList> postings = new HashMap<>();
+        
+        int size() {
+            return ordinals.size();
+        }
+        
+        void add(String id, String text) {
+            int ordinal = ids.size();
+            ids.add(id);
+            texts.add(text);
+            ordinals.put(id, ordinal);
+            
+            Set<Long> grams = new HashSet<>();
+            for (int i = 0; i + GRAM <= text.length(); i++) {
+                if (!spansFields(text, i)) {
+                    grams.add(gramKey(text, i));
+                }
+            }
+            for (Long gram : grams) {
+                postings.computeIfAbsent(gram, k -> new IntList()).add(ordinal);
+            }
+        }
+        
+        void remove(String id) {
+            Integer ordinal = ordinals.remove(id);
+            if (ordinal != null) {
+                texts.set(ordinal, null);
+            }
+        }
+        
+        List<String> search(String query) {
+            List<String> result = new ArrayList<>();
+            if (query.length() < GRAM) {
+                for (int ordinal = 0; ordinal < texts.size(); ordinal++) {
+                    collect(ordinal, query, result);
+                }
+                return result;
+            }
+            
+            List<IntList> lists = new ArrayList<>();
+            for (int i = 0; i + GRAM <= query.length(); i++) {
+                IntList posting = postings.get(gramKey(query, i));
+                if (posting == null) {
+                    return result;
+                }
+                lists.add(posting);
+            }
+            lists.sort(Comparator.comparingInt(list -> list.size));
+            
+            IntList smallest = lists.get(0);
+            outer:
+            for (int i = 0; i < smallest.size; i++) {
+                int ordinal = smallest.values[i];
+                for (int j = 1; j < lists.size(); j++) {
+                    if (!lists.get(j).contains(ordinal)) {
+                        continue outer;
+                    }
+                }
+                collect(ordinal, query, result);
+            }
+            return result;
+        }
+        
+        private void collect(int ordinal, String query, List<String> result) {
+            String text = texts.get(ordinal);
+            if (text != null && text.contains(query)) {
+                result.add(ids.get(ordinal));
+            }
+        }
+    }
+    
+    /**
+     * Append-only sorted int list; ordinals are assigned in increasing order.
+     */
+    private static final class IntList {
+        private int[] values = new int[4];
+        private int size;
+        
+        void add(int value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+        
+        boolean contains(int value) {
+            return Arrays.binarySearch(values, 0, size, value) >= 0;
+        }
+    }
+}
@@ -0,0 +1,20 @@
+package com.hotelbooker.hotel.index;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+import java.util.Comparator;
+
+/**
+ * A hotel id with its ranking key; lower keys rank first and ties break on id.
+ */
+@Getter
+@RequiredArgsConstructor
+public class RankedHotel {
+    
+    static final Comparator<RankedHotel> ORDER = Comparator.comparingDouble(RankedHotel::getKey)
+            .thenComparing(RankedHotel::getHotelId);
+    
+    private final String hotelId;
+    private final double key;
+}
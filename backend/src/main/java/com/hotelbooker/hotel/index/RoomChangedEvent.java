@@ -0,0 +1,14 @@
+package com.hotelbooker.hotel.index;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Published whenever a room type is inserted, updated or deleted through JPA.
+ */
+@Getter
+@RequiredArgsConstructor
+public class RoomChangedEvent {
+    private final String roomId;
+    private final String hotelId;
+}
@@ -0,0 +1,23 @@
+package com.hotelbooker.hotel.index;
+
+import com.hotelbooker.hotel.entity.Room;
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.PostRemove;
+import jakarta.persistence.PostUpdate;
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Component;
+
+@Component
+@RequiredArgsConstructor
+public class RoomEntityListener {
+    
+    private final ApplicationEventPublisher eventPublisher;
+    
+    @PostPersist
+    @PostUpdate
+    @PostRemove
+    public void onChanged(Room room) {
+        eventPublisher.publishEvent(new RoomChangedEvent(room.getId(), room.getHotel().getId()));
+    }
+}
@@ -2,14 +2,17 @@ package com.hotelbooker.hotel.repository;
 
 import com.hotelbooker.hotel.entity.Hotel;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
+import java.util.stream.Stream;
 
 @Repository
-public interface HotelRepository extends JpaRepository<Hotel, String> {
+public interface HotelRepository extends JpaRepository<Hotel, String>, JpaSpecificationExecutor<Hotel>,
+        HotelRepositoryCustom {
     
     List<Hotel> findByCityContainingIgnoreCaseAndAvailableTrue(String city);
     
@@ -25,6 +28,23 @@ public interface HotelRepository extends JpaRepository<Hotel, String> {
     
     List<Hotel> findByFeaturedTrueAndAvailableTrue();
     
+    @Query("SELECT h.id, h.name, h.city, h.country FROM Hotel h")
+    Stream<Object[]> streamLocationFields();
+    
+    @Query("SELECT h.id, h.latitude, h.longitude FROM Hotel h WHERE h.available = true " +
+           "AND h.latitude IS NOT NULL AND h.longitude IS NOT NULL")
+    Stream<Object[]> streamCoordinates();
+    
+    @Query("SELECT h.id, h.pricePerNight, h.starRating, h.guestRating, h.totalReviews, " +
+           "h.latitude, h.longitude FROM Hotel h")
+    Stream<Object[]> streamColumnFields();
+    
+    @Query("SELECT h.id, a FROM Hotel h JOIN h.amenities a")
+    Stream<Object[]> streamAmenities();
+    
+    @Query("SELECT a FROM Hotel h JOIN h.amenities a WHERE h.id = :hotelId")
+    List<String> findAmenities(@Param("hotelId") String hotelId);
+    
     @Query("SELECT DISTINCT h.city FROM Hotel h WHERE h.available = true ORDER BY h.city")
     List<String> findAllCities();
 }
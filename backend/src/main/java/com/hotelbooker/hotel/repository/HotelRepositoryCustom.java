@@ -0,0 +1,14 @@
+package com.hotelbooker.hotel.repository;
+
+import com.hotelbooker.hotel.entity.Hotel;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.util.List;
+
+public interface HotelRepositoryCustom {
+    
+    /**
+     * Ids of all hotels matching the specification, without hydrating entities.
+     */
+    List<String> findIds(Specification<Hotel> spec);
+}
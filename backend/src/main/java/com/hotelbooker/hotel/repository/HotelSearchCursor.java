@@ -0,0 +1,70 @@
+package com.hotelbooker.hotel.repository;
+
+import com.hotelbooker.common.exception.BadRequestException;
+import com.hotelbooker.hotel.dto.HotelSearchRequest.SortBy;
+import com.hotelbooker.hotel.entity.Hotel;
+import com.hotelbooker.hotel.index.RankedHotel;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * Opaque keyset page token: the sort mode plus the sort value and id of the
+ * last hotel on the previous page.
+ */
+@Getter
+@RequiredArgsConstructor
+public class HotelSearchCursor {
+    
+    private static final String SEPARATOR = "|";
+    
+    private final SortBy sortBy;
+    // Integer for STAR_RATING, Double for every other sort
+    private final Number value;
+    private final String id;
+    
+    public static HotelSearchCursor of(SortBy sortBy, Hotel last) {
+        Number value = switch (sortBy) {
+            case PRICE_ASC, PRICE_DESC -> last.getPricePerNight();
+            case GUEST_RATING -> last.getGuestRating();
+            case STAR_RATING -> last.getStarRating();
+            case DISTANCE, RECOMMENDED -> throw new IllegalArgumentException("Ranked sort " + sortBy);
+        };
+        return new HotelSearchCursor(sortBy, value, last.getId());
+    }
+    
+    public static HotelSearchCursor of(SortBy sortBy, RankedHotel last) {
+        return new HotelSearchCursor(sortBy, last.getKey(), last.getHotelId());
+    }
+    
+    public RankedHotel toRankedHotel() {
+        return new RankedHotel(id, value.doubleValue());
+    }
+    
+    public static HotelSearchCursor decode(String token, SortBy expectedSortBy) {
+        try {
+            String decoded = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            String[] parts = decoded.split("\\|", 3);
+            SortBy sortBy = SortBy.valueOf(parts[0]);
+            if (sortBy != expectedSortBy) {
+                throw new IllegalArgumentException("Sort mismatch");
+            }
+            Number value;
+            if (sortBy == SortBy.STAR_RATING) {
+                value = Integer.valueOf(parts[1]);
+            } else {
+                value = Double.valueOf(parts[1]);
+            }
+            return new HotelSearchCursor(sortBy, value, parts[2]);
+        } catch (RuntimeException e) {
+            throw new BadRequestException("Invalid page token");
+        }
+    }
+    
+    public String encode() {
+        String raw = sortBy.name() + SEPARATOR + value + SEPARATOR + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,149 @@
+package com.hotelbooker.hotel.repository;
+
+import com.hotelbooker.hotel.dto.HotelSearchRequest.SortBy;
+import com.hotelbooker.hotel.entity.Hotel;
+import com.hotelbooker.hotel.entity.Room;
+import com.hotelbooker.hotel.entity.RoomInventory;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.Expression;
+import jakarta.persistence.criteria.Join;
+import jakarta.persistence.criteria.Path;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+import jakarta.persistence.criteria.Subquery;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.Locale;
+
+/**
+ * Composable SQL predicates for hotel search. Each factory returns {@code null}
+ * when its filter is not set, which {@link Specification#and} ignores.
+ */
+public final class HotelSpecifications {
+    
+    private HotelSpecifications() {
+    }
+    
+    public static Specification<Hotel> idIn(Collection<String> ids) {
+        return ids == null ? null : (root, query, cb) -> root.get("id").in(ids);
+    }
+    
+    public static Specification<Hotel> locationContains(String location) {
+        if (location == null || location.isEmpty()) {
+            return null;
+        }
+        String pattern = "%" + location.toLowerCase(Locale.ROOT) + "%";
+        return (root, query, cb) -> cb.or(
+                cb.like(cb.lower(root.get("city")), pattern),
+                cb.like(cb.lower(root.get("name")), pattern),
+                cb.like(cb.lower(root.get("country")), pattern)
+        );
+    }
+    
+    public static Specification<Hotel> minPrice(Double minPrice) {
+        return minPrice == null ? null : (root, query, cb) -> cb.ge(root.get("pricePerNight"), minPrice);
+    }
+    
+    public static Specification<Hotel> maxPrice(Double maxPrice) {
+        return maxPrice == null ? null : (root, query, cb) -> cb.le(root.get("pricePerNight"), maxPrice);
+    }
+    
+    public static Specification<Hotel> minStarRating(Integer minStarRating) {
+        return minStarRating == null ? null : (root, query, cb) -> cb.ge(root.get("starRating"), minStarRating);
+    }
+    
+    public static Specification<Hotel> minGuestRating(Double minGuestRating) {
+        return minGuestRating == null ? null : (root, query, cb) -> cb.ge(root.get("guestRating"), minGuestRating);
+    }
+    
+    /**
+     * SQL fallback for the amenity bitmap filter: every amenity must be offered
+     * hotel-wide or by at least one room type, compared case-insensitively.
+     */
+    public static Specification<Hotel> hasAllAmenities(Collection<String> amenities) {
+        if (amenities == null || amenities.isEmpty()) {
+            return null;
+        }
+        return (root, query, cb) -> cb.and(amenities.stream()
+                .map(name -> {
+                    String amenity = name.toLowerCase(Locale.ROOT);
+                    
+                    Subquery<Integer> hotelLevel = query.subquery(Integer.class);
+                    Root<Hotel> hotel = hotelLevel.from(Hotel.class);
+                    Join<Hotel, String> hotelAmenity = hotel.join("amenities");
+                    hotelLevel.select(cb.literal(1))
+                            .where(cb.equal(hotel, root), cb.equal(cb.lower(hotelAmenity), amenity));
+                    
+                    Subquery<Integer> roomLevel = query.subquery(Integer.class);
+                    Root<Room> room = roomLevel.from(Room.class);
+                    Join<Room, String> roomAmenity = room.join("amenities");
+                    roomLevel.select(cb.literal(1))
+                            .where(cb.equal(room.get("hotel"), root), cb.equal(cb.lower(roomAmenity), amenity));
+                    
+                    return cb.or(cb.exists(hotelLevel), cb.exists(roomLevel));
+                })
+                .toArray(Predicate[]::new));
+    }
+    
+    /**
+     * Hotels with at least one room type that has {@code rooms} free on every
+     * night of [checkIn, checkOut), evaluated against the room_inventory ledger.
+     */
+    public static Specification<Hotel> hasFreeRooms(LocalDate checkIn, LocalDate checkOut, int rooms) {
+        if (checkIn == null || checkOut == null) {
+            return null;
+        }
+        return (root, query, cb) -> {
+            Subquery<Integer> roomQuery = query.subquery(Integer.class);
+            Root<Room> room = roomQuery.from(Room.class);
+            
+            Subquery<Integer> reservedQuery = roomQuery.subquery(Integer.class);
+            Root<RoomInventory> night = reservedQuery.from(RoomInventory.class);
+            reservedQuery.select(cb.max(night.get("reserved")))
+                    .where(
+                            cb.equal(night.get("room"), room),
+                            cb.greaterThanOrEqualTo(night.get("stayDate"), checkIn),
+                            cb.lessThan(night.get("stayDate"), checkOut)
+                    );
+            
+            Expression<Integer> free = cb.diff(room.get("totalRooms"), cb.coalesce(reservedQuery, 0));
+            roomQuery.select(cb.literal(1))
+                    .where(
+                            cb.equal(room.get("hotel"), root),
+                            cb.ge(free, rooms)
+                    );
+            return cb.exists(roomQuery);
+        };
+    }
+    
+    /**
+     * Keyset predicate: rows strictly after the cursor in (sort value, id) order.
+     */
+    public static Specification<Hotel> after(HotelSearchCursor cursor) {
+        if (cursor == null) {
+            return null;
+        }
+        SortBy sortBy = cursor.getSortBy();
+        return (root, query, cb) -> switch (sortBy) {
+            case PRICE_ASC, PRICE_DESC, GUEST_RATING -> after(cb, root, root.<Double>get(sortBy.getProperty()),
+                    cursor.getValue().doubleValue(), sortBy.isAscending(), cursor.getId());
+            case STAR_RATING -> after(cb, root, root.<Integer>get(sortBy.getProperty()),
+                    cursor.getValue().intValue(), sortBy.isAscending(), cursor.getId());
+            case DISTANCE, RECOMMENDED -> throw new IllegalArgumentException("Ranked sort " + sortBy);
+        };
+    }
+    
+    private static <T extends Comparable<? super T>> Predicate after(CriteriaBuilder cb, Root<Hotel> root,
+                                                                     Path<T> value, T last, boolean ascending,
+                                                                     String id) {
+        return cb.or(
+                ascending ? cb.greaterThan(value, last) : cb.lessThan(value, last),
+                cb.and(
+                        cb.equal(value, last),
+                        cb.greaterThan(root.get("id"), id)
+                )
+        );
+    }
+}
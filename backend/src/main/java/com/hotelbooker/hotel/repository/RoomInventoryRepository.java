@@ -0,0 +1,49 @@
+package com.hotelbooker.hotel.repository;
+
+import com.hotelbooker.hotel.entity.RoomInventory;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface RoomInventoryRepository extends JpaRepository<RoomInventory, String> {
+    
+    @Query("SELECT COALESCE(MAX(i.reserved), 0) FROM RoomInventory i WHERE i.room.id = :roomId " +
+           "AND i.stayDate >= :checkIn AND i.stayDate < :checkOut")
+    int findMaxReserved(@Param("roomId") String roomId,
+                        @Param("checkIn") LocalDate checkIn,
+                        @Param("checkOut") LocalDate checkOut);
+    
+    @Query("SELECT i.room.id, MAX(i.reserved) FROM RoomInventory i WHERE i.room.hotel.id = :hotelId " +
+           "AND i.stayDate >= :checkIn AND i.stayDate < :checkOut GROUP BY i.room.id")
+    List<Object[]> findMaxReservedByHotel(@Param("hotelId") String hotelId,
+                                          @Param("checkIn") LocalDate checkIn,
+                                          @Param("checkOut") LocalDate checkOut);
+    
+    @Modifying
+    @Query("UPDATE RoomInventory i SET i.reserved = i.reserved + :count, i.updatedAt = :now " +
+           "WHERE i.room.id = :roomId AND i.stayDate >= :checkIn AND i.stayDate < :checkOut " +
+           "AND i.reserved + :count <= :capacity")
+    int reserve(@Param("roomId") String roomId,
+                @Param("checkIn") LocalDate checkIn,
+                @Param("checkOut") LocalDate checkOut,
+                @Param("count") int count,
+                @Param("capacity") int capacity,
+                @Param("now") LocalDateTime now);
+    
+    @Modifying
+    @Query("UPDATE RoomInventory i SET i.reserved = i.reserved - :count, i.updatedAt = :now " +
+           "WHERE i.room.id = :roomId AND i.stayDate >= :checkIn AND i.stayDate < :checkOut " +
+           "AND i.reserved >= :count")
+    int release(@Param("roomId") String roomId,
+                @Param("checkIn") LocalDate checkIn,
+                @Param("checkOut") LocalDate checkOut,
+                @Param("count") int count,
+                @Param("now") LocalDateTime now);
+}
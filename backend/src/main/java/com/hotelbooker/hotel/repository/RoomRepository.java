@@ -2,11 +2,20 @@ package com.hotelbooker.hotel.repository;
 
 import com.hotelbooker.hotel.entity.Room;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
+import java.util.stream.Stream;
 
 @Repository
 public interface RoomRepository extends JpaRepository<Room, String> {
-    List<Room> findByHotelIdAndAvailableRoomsGreaterThan(String hotelId, Integer minAvailable);
+    List<Room> findByHotelId(String hotelId);
+    
+    @Query("SELECT DISTINCT r.hotel.id, a FROM Room r JOIN r.amenities a")
+    Stream<Object[]> streamAmenitiesByHotel();
+    
+    @Query("SELECT DISTINCT a FROM Room r JOIN r.amenities a WHERE r.hotel.id = :hotelId")
+    List<String> findAmenitiesByHotelId(@Param("hotelId") String hotelId);
 }
@@ -0,0 +1,56 @@
+package com.hotelbooker.hotel.service;
+
+import com.hotelbooker.config.CacheConfig;
+import com.hotelbooker.hotel.index.HotelChangedEvent;
+import com.hotelbooker.hotel.index.RoomChangedEvent;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+/**
+ * Evicts cached hotel DTOs once a hotel or room write has committed.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class HotelCacheInvalidator {
+    
+    private final CacheManager cacheManager;
+    
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onHotelChanged(HotelChangedEvent event) {
+        evict(CacheConfig.HOTELS, event.getHotelId());
+        clear(CacheConfig.FEATURED_HOTELS);
+        clear(CacheConfig.DESTINATIONS);
+    }
+    
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onRoomChanged(RoomChangedEvent event) {
+        evict(CacheConfig.HOTELS, event.getHotelId());
+    }
+    
+    private void evict(String cacheName, String key) {
+        Cache cache = cacheManager.getCache(cacheName);
+        if (cache != null) {
+            try {
+                cache.evict(key);
+            } catch (RuntimeException e) {
+                log.warn("Failed to evict {} from cache {}", key, cacheName, e);
+            }
+        }
+    }
+    
+    private void clear(String cacheName) {
+        Cache cache = cacheManager.getCache(cacheName);
+        if (cache != null) {
+            try {
+                cache.clear();
+            } catch (RuntimeException e) {
+                log.warn("Failed to clear cache {}", cacheName, e);
+            }
+        }
+    }
+}
@@ -1,17 +1,39 @@
 package com.hotelbooker.hotel.service;
 
+import com.hotelbooker.common.exception.BadRequestException;
 import com.hotelbooker.common.exception.ResourceNotFoundException;
+import com.hotelbooker.config.CacheConfig;
 import com.hotelbooker.hotel.dto.HotelDto;
+import com.hotelbooker.hotel.dto.HotelSearchFacets;
 import com.hotelbooker.hotel.dto.HotelSearchRequest;
+import com.hotelbooker.hotel.dto.HotelSearchRequest.SortBy;
+import com.hotelbooker.hotel.dto.HotelSearchResponse;
 import com.hotelbooker.hotel.dto.RoomDto;
 import com.hotelbooker.hotel.entity.Hotel;
 import com.hotelbooker.hotel.entity.Room;
+import com.hotelbooker.hotel.index.HotelColumnStore;
+import com.hotelbooker.hotel.index.HotelGeoIndex;
+import com.hotelbooker.hotel.index.HotelLocationIndex;
+import com.hotelbooker.hotel.index.RankedHotel;
 import com.hotelbooker.hotel.repository.HotelRepository;
+import com.hotelbooker.hotel.repository.HotelSearchCursor;
+import com.hotelbooker.hotel.repository.HotelSpecifications;
 import com.hotelbooker.hotel.repository.RoomRepository;
 import lombok.RequiredArgsConstructor;
+import org.roaringbitmap.RoaringBitmap;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
 import org.springframework.stereotype.Service;
 
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Base64;
 import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 @Service
@@ -20,43 +42,262 @@ public class HotelService {
     
     private final HotelRepository hotelRepository;
     private final RoomRepository roomRepository;
+    private final InventoryService inventoryService;
+    private final HotelLocationIndex locationIndex;
+    private final HotelGeoIndex geoIndex;
+    private final HotelColumnStore columnStore;
     
-    public List<HotelDto> searchHotels(HotelSearchRequest request) {
-        List<Hotel> hotels;
+    private static final int DEFAULT_PAGE_SIZE = 20;
+    private static final int MAX_PAGE_SIZE = 100;
+    private static final int MAX_ID_FILTER = 10_000;
+    private static final double MAX_RADIUS_KM = 500;
+    
+    public HotelSearchResponse searchHotels(HotelSearchRequest request) {
+        SortBy sortBy = request.getSortBy() != null ? request.getSortBy() : SortBy.GUEST_RATING;
+        int pageSize = pageSize(request.getPageSize());
+        HotelSearchCursor cursor = request.getPageToken() != null && !request.getPageToken().isEmpty()
+                ? HotelSearchCursor.decode(request.getPageToken(), sortBy)
+                : null;
         
-        if (request.getLocation() != null && !request.getLocation().isEmpty()) {
-            hotels = hotelRepository.searchByLocation(request.getLocation());
-        } else {
-            hotels = hotelRepository.findAll();
+        Specification<Hotel> filters = buildSearchSpecification(request);
+        boolean includeFacets = Boolean.TRUE.equals(request.getIncludeFacets());
+        if (sortBy.isRanked()) {
+            return searchRanked(request, sortBy, filters, cursor, pageSize, includeFacets);
         }
         
-        // Apply filters
-        return hotels.stream()
-                .filter(h -> request.getMinPrice() == null || h.getPricePerNight() >= request.getMinPrice())
-                .filter(h -> request.getMaxPrice() == null || h.getPricePerNight() <= request.getMaxPrice())
-                .filter(h -> request.getMinStarRating() == null || h.getStarRating() >= request.getMinStarRating())
-                .filter(h -> request.getMinGuestRating() == null || h.getGuestRating() >= request.getMinGuestRating())
-                .map(this::mapToDto)
+        Specification<Hotel> spec = filters.and(HotelSpecifications.after(cursor));
+        Sort sort = Sort.by(sortBy.isAscending() ? Sort.Direction.ASC : Sort.Direction.DESC, sortBy.getProperty())
+                .and(Sort.by(Sort.Direction.ASC, "id"));
+        
+        // Fetch one extra row to learn whether another page exists
+        List<Hotel> hotels = hotelRepository.findBy(spec, query -> query.sortBy(sort).limit(pageSize + 1).all());
+        String nextPageToken = null;
+        if (hotels.size() > pageSize) {
+            hotels = hotels.subList(0, pageSize);
+            nextPageToken = HotelSearchCursor.of(sortBy, hotels.get(pageSize - 1)).encode();
+        }
+        
+        // Facets cover the whole candidate set: one id query, then one pass over the column store
+        HotelSearchFacets facets = includeFacets
+                ? columnStore.countFacets(hotelRepository.findIds(filters))
+                : null;
+        
+        return HotelSearchResponse.builder()
+                .hotels(hotels.stream().map(this::mapToDto).collect(Collectors.toList()))
+                .nextPageToken(nextPageToken)
+                .facets(facets)
+                .build();
+    }
+    
+    private HotelSearchResponse searchRanked(HotelSearchRequest request, SortBy sortBy, Specification<Hotel> filters,
+                                             HotelSearchCursor cursor, int pageSize, boolean includeFacets) {
+        if (sortBy == SortBy.DISTANCE && (request.getLatitude() == null || request.getLongitude() == null)) {
+            throw new RuntimeException("Latitude and longitude are required to sort by distance");
+        }
+        if (!columnStore.isReady()) {
+            throw new RuntimeException("Search ranking is not available yet, please retry shortly");
+        }
+        
+        // Select the page with a bounded heap over the candidate ids instead of sorting them all
+        List<String> candidates = hotelRepository.findIds(filters);
+        List<RankedHotel> ranked = columnStore.rank(candidates, sortBy, request.getLatitude(), request.getLongitude(),
+                cursor != null ? cursor.toRankedHotel() : null, pageSize + 1);
+        String nextPageToken = null;
+        if (ranked.size() > pageSize) {
+            ranked = ranked.subList(0, pageSize);
+            nextPageToken = HotelSearchCursor.of(sortBy, ranked.get(pageSize - 1)).encode();
+        }
+        
+        Map<String, Hotel> hotels = loadByIds(ranked.stream().map(RankedHotel::getHotelId).collect(Collectors.toList()));
+        List<HotelDto> dtos = ranked.stream()
+                .filter(match -> hotels.containsKey(match.getHotelId()))
+                .map(match -> {
+                    HotelDto dto = mapToDto(hotels.get(match.getHotelId()));
+                    if (sortBy == SortBy.DISTANCE) {
+                        dto.setDistanceKm(match.getKey());
+                    }
+                    return dto;
+                })
                 .collect(Collectors.toList());
+        
+        return HotelSearchResponse.builder()
+                .hotels(dtos)
+                .nextPageToken(nextPageToken)
+                .facets(includeFacets ? columnStore.countFacets(candidates) : null)
+                .build();
     }
     
+    private Map<String, Hotel> loadByIds(List<String> ids) {
+        return hotelRepository.findAllById(ids)
+                .stream()
+                .collect(Collectors.toMap(Hotel::getId, Function.identity()));
+    }
+    
+    private Specification<Hotel> buildSearchSpecification(HotelSearchRequest request) {
+        Specification<Hotel> spec = Specification.where(
+                candidateSpecification(request.getLocation(), request.getAmenities()));
+        
+        LocalDate checkIn = parseDate(request.getCheckInDate());
+        LocalDate checkOut = parseDate(request.getCheckOutDate());
+        if (checkIn != null && checkOut != null) {
+            validateStay(checkIn, checkOut);
+            int rooms = request.getRooms() != null ? request.getRooms() : 1;
+            spec = spec.and(HotelSpecifications.hasFreeRooms(checkIn, checkOut, rooms));
+        }
+        
+        return spec
+                .and(HotelSpecifications.minPrice(request.getMinPrice()))
+                .and(HotelSpecifications.maxPrice(request.getMaxPrice()))
+                .and(HotelSpecifications.minStarRating(request.getMinStarRating()))
+                .and(HotelSpecifications.minGuestRating(request.getMinGuestRating()));
+    }
+    
+    private Specification<Hotel> candidateSpecification(String location, List<String> amenities) {
+        boolean hasLocation = location != null && !location.isEmpty();
+        boolean hasAmenities = amenities != null && !amenities.isEmpty();
+        if (!hasLocation && !hasAmenities) {
+            return null;
+        }
+        
+        // Resolve ids from the in-memory indexes; fall back to SQL until they are built
+        // or when the match set is too large to bind as an IN list
+        if ((!hasLocation || locationIndex.isReady()) && (!hasAmenities || columnStore.isReady())) {
+            List<String> ids;
+            if (hasAmenities) {
+                RoaringBitmap matches = columnStore.hotelsWithAllAmenities(amenities);
+                if (hasLocation) {
+                    matches.and(columnStore.toOrdinals(locationIndex.search(location)));
+                }
+                ids = matches.getCardinality() <= MAX_ID_FILTER ? columnStore.toIds(matches) : null;
+            } else {
+                ids = locationIndex.search(location);
+            }
+            if (ids != null && ids.size() <= MAX_ID_FILTER) {
+                return HotelSpecifications.idIn(ids);
+            }
+        }
+        return Specification.where(HotelSpecifications.locationContains(location))
+                .and(HotelSpecifications.hasAllAmenities(amenities));
+    }
+    
+    public HotelSearchResponse searchNearby(double latitude, double longitude, double radiusKm,
+                                            Integer pageSize, String pageToken) {
+        requireCoordinates(latitude, longitude);
+        if (radiusKm <= 0 || radiusKm > MAX_RADIUS_KM) {
+            throw new BadRequestException("Radius must be between 0 and " + MAX_RADIUS_KM + " km");
+        }
+        int limit = pageSize(pageSize);
+        List<HotelGeoIndex.Match> matches = geoIndex.nearby(latitude, longitude, radiusKm,
+                decodeGeoCursor(pageToken), limit + 1);
+        return toGeoResponse(matches, limit);
+    }
+    
+    public HotelSearchResponse searchWithin(double minLatitude, double minLongitude,
+                                            double maxLatitude, double maxLongitude,
+                                            Integer pageSize, String pageToken) {
+        requireCoordinates(minLatitude, minLongitude);
+        requireCoordinates(maxLatitude, maxLongitude);
+        if (minLatitude > maxLatitude) {
+            throw new BadRequestException("minLatitude must not exceed maxLatitude");
+        }
+        int limit = pageSize(pageSize);
+        List<HotelGeoIndex.Match> matches = geoIndex.within(minLatitude, minLongitude, maxLatitude, maxLongitude,
+                decodeGeoCursor(pageToken), limit + 1);
+        return toGeoResponse(matches, limit);
+    }
+    
+    // Negated so NaN is rejected as well
+    private static void requireCoordinates(double latitude, double longitude) {
+        if (!(latitude >= -90 && latitude <= 90)) {
+            throw new BadRequestException("Latitude must be between -90 and 90");
+        }
+        if (!(longitude >= -180 && longitude <= 180)) {
+            throw new BadRequestException("Longitude must be between -180 and 180");
+        }
+    }
+    
+    private HotelSearchResponse toGeoResponse(List<HotelGeoIndex.Match> matches, int limit) {
+        String nextPageToken = null;
+        if (matches.size() > limit) {
+            matches = matches.subList(0, limit);
+            HotelGeoIndex.Match last = matches.get(limit - 1);
+            nextPageToken = Base64.getUrlEncoder().withoutPadding().encodeToString(
+                    (last.getDistanceKm() + "|" + last.getHotelId()).getBytes(StandardCharsets.UTF_8));
+        }
+        
+        // Load the page and restore distance order
+        Map<String, Hotel> hotels = loadByIds(
+                matches.stream().map(HotelGeoIndex.Match::getHotelId).collect(Collectors.toList()));
+        List<HotelDto> dtos = matches.stream()
+                .filter(match -> hotels.containsKey(match.getHotelId()))
+                .map(match -> {
+                    HotelDto dto = mapToDto(hotels.get(match.getHotelId()));
+                    dto.setDistanceKm(match.getDistanceKm());
+                    return dto;
+                })
+                .collect(Collectors.toList());
+        
+        return HotelSearchResponse.builder()
+                .hotels(dtos)
+                .nextPageToken(nextPageToken)
+                .build();
+    }
+    
+    private HotelGeoIndex.Match decodeGeoCursor(String pageToken) {
+        if (pageToken == null || pageToken.isEmpty()) {
+            return null;
+        }
+        try {
+            String[] parts = new String(Base64.getUrlDecoder().decode(pageToken), StandardCharsets.UTF_8)
+                    .split("\\|", 2);
+            return new HotelGeoIndex.Match(parts[1], Double.parseDouble(parts[0]));
+        } catch (RuntimeException e) {
+            throw new BadRequestException("Invalid page token");
+        }
+    }
+    
+    private int pageSize(Integer pageSize) {
+        return pageSize != null ? Math.max(1, Math.min(pageSize, MAX_PAGE_SIZE)) : DEFAULT_PAGE_SIZE;
+    }
+    
+    @Cacheable(cacheNames = CacheConfig.HOTELS, key = "#hotelId")
     public HotelDto getHotelById(String hotelId) {
         Hotel hotel = hotelRepository.findById(hotelId)
                 .orElseThrow(() -> new ResourceNotFoundException("Hotel not found with id: " + hotelId));
         return mapToDto(hotel);
     }
     
-    public List<RoomDto> getHotelRooms(String hotelId) {
+    public List<RoomDto> getHotelRooms(String hotelId, LocalDate checkIn, LocalDate checkOut) {
         if (!hotelRepository.existsById(hotelId)) {
             throw new ResourceNotFoundException("Hotel not found with id: " + hotelId);
         }
         
-        List<Room> rooms = roomRepository.findByHotelIdAndAvailableRoomsGreaterThan(hotelId, 0);
+        List<Room> rooms = roomRepository.findByHotelId(hotelId);
+        if (checkIn == null || checkOut == null) {
+            // Without a stay the ledger has nothing to say, so report each room type's capacity
+            return rooms.stream()
+                    .map(room -> {
+                        RoomDto dto = mapToRoomDto(room);
+                        dto.setAvailableRooms(room.getTotalRooms());
+                        return dto;
+                    })
+                    .collect(Collectors.toList());
+        }
+        
+        // Report per-stay availability and drop room types sold out on any night
+        validateStay(checkIn, checkOut);
+        Map<String, Integer> freeRooms = inventoryService.getFreeRoomsByRoom(hotelId, rooms, checkIn, checkOut);
         return rooms.stream()
-                .map(this::mapToRoomDto)
+                .filter(room -> freeRooms.get(room.getId()) > 0)
+                .map(room -> {
+                    RoomDto dto = mapToRoomDto(room);
+                    dto.setAvailableRooms(freeRooms.get(room.getId()));
+                    return dto;
+                })
                 .collect(Collectors.toList());
     }
     
+    @Cacheable(cacheNames = CacheConfig.FEATURED_HOTELS, key = "'all'")
     public List<HotelDto> getFeaturedHotels() {
         return hotelRepository.findByFeaturedTrueAndAvailableTrue()
                 .stream()
@@ -64,10 +305,28 @@ public class HotelService {
                 .collect(Collectors.toList());
     }
     
+    @Cacheable(cacheNames = CacheConfig.DESTINATIONS, key = "'all'")
     public List<String> getPopularDestinations() {
         return hotelRepository.findAllCities();
     }
     
+    private LocalDate parseDate(String date) {
+        if (date == null || date.isEmpty()) {
+            return null;
+        }
+        try {
+            return LocalDate.parse(date.length() > 10 ? date.substring(0, 10) : date);
+        } catch (DateTimeParseException e) {
+            throw new RuntimeException("Invalid date: " + date);
+        }
+    }
+    
+    private void validateStay(LocalDate checkIn, LocalDate checkOut) {
+        if (!checkOut.isAfter(checkIn)) {
+            throw new RuntimeException("Check-out date must be after check-in date");
+        }
+    }
+    
     private HotelDto mapToDto(Hotel hotel) {
         return HotelDto.builder()
                 .id(hotel.getId())
@@ -82,8 +341,8 @@ public class HotelService {
                 .guestRating(hotel.getGuestRating())
                 .totalReviews(hotel.getTotalReviews())
                 .starRating(hotel.getStarRating())
-                .images(hotel.getImages())
-                .amenities(hotel.getAmenities())
+                .images(new ArrayList<>(hotel.getImages()))
+                .amenities(new ArrayList<>(hotel.getAmenities()))
                 .featured(hotel.isFeatured())
                 .available(hotel.isAvailable())
                 .build();
@@ -100,8 +359,8 @@ public class HotelService {
                 .totalRooms(room.getTotalRooms())
                 .availableRooms(room.getAvailableRooms())
                 .size(room.getSize())
-                .images(room.getImages())
-                .amenities(room.getAmenities())
+                .images(new ArrayList<>(room.getImages()))
+                .amenities(new ArrayList<>(room.getAmenities()))
                 .bedType(room.getBedType())
                 .hasBreakfast(room.isHasBreakfast())
                 .freeCancellation(room.isFreeCancellation())
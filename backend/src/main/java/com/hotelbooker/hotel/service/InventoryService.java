@@ -0,0 +1,180 @@
+package com.hotelbooker.hotel.service;
+
+import com.hotelbooker.hotel.entity.Room;
+import com.hotelbooker.hotel.repository.RoomInventoryRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.StringJoiner;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+@Service
+@RequiredArgsConstructor
+public class InventoryService {
+    
+    // Keeps the bind parameters of one multi-row update well under the driver limit
+    private static final int MAX_NIGHTS_PER_UPDATE = 5_000;
+    
+    private final RoomInventoryRepository inventoryRepository;
+    private final JdbcTemplate jdbcTemplate;
+    
+    public int getFreeRooms(Room room, LocalDate checkIn, LocalDate checkOut) {
+        return room.getTotalRooms() - inventoryRepository.findMaxReserved(room.getId(), checkIn, checkOut);
+    }
+    
+    /**
+     * Returns the free count for every room of a hotel over [checkIn, checkOut),
+     * keyed by room id. Rooms with no ledger rows in the range are fully free.
+     */
+    public Map<String, Integer> getFreeRoomsByRoom(String hotelId, List<Room> rooms,
+                                                   LocalDate checkIn, LocalDate checkOut) {
+        Map<String, Integer> maxReserved = new HashMap<>();
+        for (Object[] row : inventoryRepository.findMaxReservedByHotel(hotelId, checkIn, checkOut)) {
+            maxReserved.put((String) row[0], ((Number) row[1]).intValue());
+        }
+        return rooms.stream().collect(Collectors.toMap(
+                Room::getId,
+                room -> room.getTotalRooms() - maxReserved.getOrDefault(room.getId(), 0)
+        ));
+    }
+    
+    /**
+     * Atomically reserves {@code count} rooms for every night of [checkIn, checkOut).
+     * Missing ledger rows are created first, then one conditional UPDATE increments
+     * only nights that stay within capacity. If any night is short, the caller's
+     * transaction is rolled back, so concurrent requests can never oversell.
+     */
+    @Transactional
+    public void reserve(Room room, LocalDate checkIn, LocalDate checkOut, int count) {
+        ensureNights(room.getId(), checkIn, checkOut);
+        
+        int nights = (int) ChronoUnit.DAYS.between(checkIn, checkOut);
+        int reserved = inventoryRepository.reserve(room.getId(), checkIn, checkOut, count,
+                room.getTotalRooms(), LocalDateTime.now());
+        if (reserved < nights) {
+            throw new RuntimeException("Not enough rooms available");
+        }
+    }
+    
+    /**
+     * Admits, in order, every requested count that still fits and reserves their sum
+     * with one ledger write. Returns which requests were admitted. Throws if another
+     * writer changed the ledger in between, rolling back the whole batch.
+     */
+    @Transactional
+    public boolean[] reserveBatch(Room room, LocalDate checkIn, LocalDate checkOut, int[] counts) {
+        ensureNights(room.getId(), checkIn, checkOut);
+        
+        int free = getFreeRooms(room, checkIn, checkOut);
+        boolean[] admitted = new boolean[counts.length];
+        int total = 0;
+        for (int i = 0; i < counts.length; i++) {
+            if (counts[i] <= free - total) {
+                admitted[i] = true;
+                total += counts[i];
+            }
+        }
+        if (total == 0) {
+            return admitted;
+        }
+        
+        int nights = (int) ChronoUnit.DAYS.between(checkIn, checkOut);
+        int reserved = inventoryRepository.reserve(room.getId(), checkIn, checkOut, total,
+                room.getTotalRooms(), LocalDateTime.now());
+        if (reserved < nights) {
+            throw new RuntimeException("Inventory changed concurrently");
+        }
+        return admitted;
+    }
+    
+    /**
+     * Reserves every line of a cart, all-or-nothing. Demand is summed per room and
+     * night, then one UPDATE ... FROM (VALUES ...) increments every night that stays
+     * within its room's capacity; if any night is short, the transaction rolls back.
+     */
+    @Transactional
+    public void reserveAll(List<Reservation> reservations) {
+        Map<Night, Integer> demand = new LinkedHashMap<>();
+        Map<String, Integer> capacity = new HashMap<>();
+        for (Reservation reservation : reservations) {
+            String roomId = reservation.room().getId();
+            capacity.put(roomId, reservation.room().getTotalRooms());
+            reservation.checkIn().datesUntil(reservation.checkOut())
+                    .forEach(date -> demand.merge(new Night(roomId, date), reservation.count(), Integer::sum));
+        }
+        if (demand.size() > MAX_NIGHTS_PER_UPDATE) {
+            throw new RuntimeException("Too many room nights in one booking request");
+        }
+        
+        ensureNights(demand.keySet());
+        
+        List<Object> params = new ArrayList<>(demand.size() * 4 + 1);
+        params.add(Timestamp.valueOf(LocalDateTime.now()));
+        StringJoiner values = new StringJoiner(", ");
+        demand.forEach((night, count) -> {
+            values.add("(CAST(? AS VARCHAR), CAST(? AS DATE), CAST(? AS INTEGER), CAST(? AS INTEGER))");
+            params.add(night.roomId());
+            params.add(night.date());
+            params.add(count);
+            params.add(capacity.get(night.roomId()));
+        });
+        
+        int updated = jdbcTemplate.update(
+                "UPDATE room_inventory SET reserved = room_inventory.reserved + v.count, updated_at = ? " +
+                "FROM (VALUES " + values + ") AS v(room_id, stay_date, count, capacity) " +
+                "WHERE room_inventory.room_id = v.room_id AND room_inventory.stay_date = v.stay_date " +
+                "AND room_inventory.reserved + v.count <= v.capacity",
+                params.toArray()
+        );
+        if (updated < demand.size()) {
+            throw new RuntimeException("Not enough rooms available");
+        }
+    }
+    
+    @Transactional
+    public void release(Room room, LocalDate checkIn, LocalDate checkOut, int count) {
+        inventoryRepository.release(room.getId(), checkIn, checkOut, count, LocalDateTime.now());
+    }
+    
+    private void ensureNights(String roomId, LocalDate checkIn, LocalDate checkOut) {
+        ensureNights(checkIn.datesUntil(checkOut)
+                .map(date -> new Night(roomId, date))
+                .collect(Collectors.toList()));
+    }
+    
+    private void ensureNights(Collection<Night> nights) {
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        jdbcTemplate.batchUpdate(
+                "INSERT INTO room_inventory (id, room_id, stay_date, reserved, created_at, updated_at) " +
+                "VALUES (?, ?, ?, 0, ?, ?) ON CONFLICT DO NOTHING",
+                nights,
+                nights.size(),
+                (ps, night) -> {
+                    ps.setString(1, UUID.randomUUID().toString());
+                    ps.setString(2, night.roomId());
+                    ps.setObject(3, night.date());
+                    ps.setTimestamp(4, now);
+                    ps.setTimestamp(5, now);
+                }
+        );
+    }
+    
+    public record Reservation(Room room, LocalDate checkIn, LocalDate checkOut, int count) {
+    }
+    
+    private record Night(String roomId, LocalDate date) {
+    }
+}
@@ -0,0 +1,231 @@
+package com.hotelbooker.hotel.service;
+
+import com.hotelbooker.hotel.entity.Room;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Funnels reservations through single-writer shards so a hot room never has more
+ * than one transaction waiting on its ledger rows.
+ * <p>
+ * Rooms are partitioned across shards by id; each shard owns one queue and one
+ * thread. The thread drains up to {@code max-batch} queued requests, groups them by
+ * room and stay, and admits each group with a single conditional ledger update via
+ * {@link InventoryService#reserveBatch}. Callers wait on a future that completes
+ * with success or "Not enough rooms available". If another instance wins a race
+ * for the same rows, the group falls back to one conditional update per request.
+ */
+@Component
+@Slf4j
+public class ReservationEngine {
+    
+    private static final String SOLD_OUT = "Not enough rooms available";
+    
+    private final InventoryService inventoryService;
+    private final boolean enabled;
+    private final int maxBatch;
+    private final Duration timeout;
+    private final Shard[] shards;
+    
+    public ReservationEngine(InventoryService inventoryService,
+                             @Value("${hotelbooker.reservation.engine.enabled:true}") boolean enabled,
+                             @Value("${hotelbooker.reservation.engine.shards:4}") int shards,
+                             @Value("${hotelbooker.reservation.engine.queue-capacity:10000}") int queueCapacity,
+                             @Value("${hotelbooker.reservation.engine.max-batch:256}") int maxBatch,
+                             @Value("${hotelbooker.reservation.engine.timeout:PT5S}") Duration timeout) {
+        this.inventoryService = inventoryService;
+        this.enabled = enabled;
+        this.maxBatch = maxBatch;
+        this.timeout = timeout;
+        this.shards = new Shard[shards];
+        for (int i = 0; i < shards; i++) {
+            this.shards[i] = new Shard(i, queueCapacity);
+        }
+    }
+    
+    @PostConstruct
+    public void start() {
+        if (enabled) {
+            for (Shard shard : shards) {
+                shard.thread.start();
+            }
+        }
+    }
+    
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        for (Shard shard : shards) {
+            shard.thread.interrupt();
+        }
+        for (Shard shard : shards) {
+            shard.thread.join(timeout.toMillis());
+            List<Request> pending = new ArrayList<>();
+            shard.queue.drainTo(pending);
+            pending.forEach(request -> request.future.completeExceptionally(
+                    new RuntimeException("Reservation engine is shutting down")));
+        }
+    }
+    
+    /**
+     * Reserves {@code count} rooms for every night of [checkIn, checkOut), blocking
+     * until the owning shard has committed or rejected the request.
+     */
+    public void reserve(Room room, LocalDate checkIn, LocalDate checkOut, int count) {
+        if (!enabled) {
+            inventoryService.reserve(room, checkIn, checkOut, count);
+            return;
+        }
+        
+        Request request = new Request(room, checkIn, checkOut, count, newFuture());
+        if (!shardFor(room.getId()).queue.offer(request)) {
+            throw new RuntimeException("Too many reservations in progress, please try again");
+        }
+        
+        try {
+            request.future.get(timeout.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (ExecutionException e) {
+            throw e.getCause() instanceof RuntimeException cause ? cause : new RuntimeException(e.getCause());
+        } catch (TimeoutException e) {
+            abandon(request, "Reservation timed out, please try again");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            abandon(request, "Reservation interrupted");
+        }
+    }
+    
+    CompletableFuture<Void> newFuture() {
+        return new CompletableFuture<>();
+    }
+    
+    /**
+     * Gives up on a request the caller stopped waiting for. Whoever loses the race
+     * on the future owns the rooms: if the cancel wins, the shard's later
+     * {@code complete} fails and the shard releases them; if the shard already
+     * admitted the request, the rooms are the caller's and it carries on.
+     */
+    private void abandon(Request request, String message) {
+        if (request.future.cancel(false) || !request.future.isDone()) {
+            throw new RuntimeException(message);
+        }
+        try {
+            request.future.join();
+        } catch (CompletionException e) {
+            throw e.getCause() instanceof RuntimeException cause ? cause : new RuntimeException(e.getCause());
+        }
+    }
+    
+    private Shard shardFor(String roomId) {
+        return shards[Math.floorMod(roomId.hashCode(), shards.length)];
+    }
+    
+    private void process(List<Request> group) {
+        Request first = group.get(0);
+        int[] counts = group.stream().mapToInt(Request::count).toArray();
+        
+        boolean[] admitted;
+        try {
+            admitted = inventoryService.reserveBatch(first.room, first.checkIn, first.checkOut, counts);
+        } catch (RuntimeException e) {
+            group.forEach(this::processSingle);
+            return;
+        }
+        
+        for (int i = 0; i < group.size(); i++) {
+            Request request = group.get(i);
+            if (!admitted[i]) {
+                request.future.completeExceptionally(new RuntimeException(SOLD_OUT));
+            } else if (!request.future.complete(null)) {
+                release(request);
+            }
+        }
+    }
+    
+    private void processSingle(Request request) {
+        try {
+            inventoryService.reserve(request.room, request.checkIn, request.checkOut, request.count);
+        } catch (RuntimeException e) {
+            request.future.completeExceptionally(e);
+            return;
+        }
+        if (!request.future.complete(null)) {
+            release(request);
+        }
+    }
+    
+    private void release(Request request) {
+        try {
+            inventoryService.release(request.room, request.checkIn, request.checkOut, request.count);
+        } catch (RuntimeException e) {
+            log.error("Failed to release abandoned reservation for room {}", request.room.getId(), e);
+        }
+    }
+    
+    private record Request(Room room, LocalDate checkIn, LocalDate checkOut, int count,
+                           CompletableFuture<Void> future) {
+        
+        Key key() {
+            return new Key(room.getId(), checkIn, checkOut);
+        }
+    }
+    
+    private record Key(String roomId, LocalDate checkIn, LocalDate checkOut) {
+    }
+    
+    private class Shard implements Runnable {
+        
+        private final BlockingQueue<Request> queue;
+        private final Thread thread;
+        
+        Shard(int index, int queueCapacity) {
+            this.queue = new ArrayBlockingQueue<>(queueCapacity);
+            this.thread = new Thread(this, "reservation-shard-" + index);
+            this.thread.setDaemon(true);
+        }
+        
+        @Override
+        public void run() {
+            List<Request> batch = new ArrayList<>(maxBatch);
+            while (!Thread.currentThread().isInterrupted()) {
+                try {
+                    batch.add(queue.take());
+                } catch (InterruptedException e) {
+                    return;
+                }
+                queue.drainTo(batch, maxBatch - 1);
+                
+                Map<Key, List<Request>> groups = new LinkedHashMap<>();
+                for (Request request : batch) {
+                    if (!request.future.isDone()) {
+                        groups.computeIfAbsent(request.key(), key -> new ArrayList<>()).add(request);
+                    }
+                }
+                for (List<Request> group : groups.values()) {
+                    try {
+                        process(group);
+                    } catch (RuntimeException e) {
+                        log.error("Reservation batch failed for room {}", group.get(0).room.getId(), e);
+                        group.forEach(request -> request.future.completeExceptionally(e));
+                    }
+                }
+                batch.clear();
+            }
+        }
+    }
+}
@@ -0,0 +1,55 @@
+package com.hotelbooker.payment.config;
+
+import com.hotelbooker.payment.gateway.FakePaymentGateway;
+import com.hotelbooker.payment.gateway.PaymentGateway;
+import com.hotelbooker.payment.gateway.ResilientPaymentGateway;
+import com.hotelbooker.payment.gateway.StripePaymentGateway;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+@Configuration
+public class PaymentGatewayConfig {
+    
+    @Value("${hotelbooker.payment.gateway.provider:stripe}")
+    private String provider;
+    
+    @Value("${hotelbooker.payment.gateway.connect-timeout:PT2S}")
+    private Duration connectTimeout;
+    
+    @Value("${hotelbooker.payment.gateway.read-timeout:PT10S}")
+    private Duration readTimeout;
+    
+    @Value("${hotelbooker.payment.gateway.fake-latency:PT0.05S}")
+    private Duration fakeLatency;
+    
+    @Value("${hotelbooker.payment.gateway.max-concurrent-calls:20}")
+    private int maxConcurrentCalls;
+    
+    @Value("${hotelbooker.payment.gateway.max-wait:PT0.5S}")
+    private Duration maxWait;
+    
+    @Value("${hotelbooker.payment.gateway.circuit-breaker.window-size:20}")
+    private int windowSize;
+    
+    @Value("${hotelbooker.payment.gateway.circuit-breaker.minimum-calls:10}")
+    private int minimumCalls;
+    
+    @Value("${hotelbooker.payment.gateway.circuit-breaker.failure-rate-threshold:0.5}")
+    private double failureRateThreshold;
+    
+    @Value("${hotelbooker.payment.gateway.circuit-breaker.open-duration:PT30S}")
+    private Duration openDuration;
+    
+    @Bean
+    public PaymentGateway paymentGateway(MeterRegistry meterRegistry) {
+        PaymentGateway delegate = "fake".equalsIgnoreCase(provider)
+                ? new FakePaymentGateway(fakeLatency)
+                : new StripePaymentGateway(connectTimeout, readTimeout);
+        return new ResilientPaymentGateway(delegate, meterRegistry, maxConcurrentCalls, maxWait,
+                windowSize, minimumCalls, failureRateThreshold, openDuration);
+    }
+}
@@ -1,6 +1,9 @@
 package com.hotelbooker.payment.controller;
 
 import com.hotelbooker.common.dto.ApiResponse;
+import com.hotelbooker.common.exception.IdempotencyException;
+import com.hotelbooker.common.exception.ServiceBusyException;
+import com.hotelbooker.common.idempotency.IdempotencyService;
 import com.hotelbooker.payment.dto.PaymentIntentRequest;
 import com.hotelbooker.payment.dto.PaymentIntentResponse;
 import com.hotelbooker.payment.model.Payment;
@@ -21,25 +24,32 @@ import java.util.List;
 public class PaymentController {
     
     private final PaymentService paymentService;
+    private final IdempotencyService idempotencyService;
     
     @PostMapping("/create-intent")
     public ResponseEntity<ApiResponse<PaymentIntentResponse>> createPaymentIntent(
             @Valid @RequestBody PaymentIntentRequest request,
+            @RequestHeader(value = IdempotencyService.HEADER, required = false) String idempotencyKey,
             Authentication authentication) {
         
         log.info("Creating payment intent for user: {}", authentication.getName());
         
         try {
-            PaymentIntentResponse response = paymentService.createPaymentIntent(
-                    request, 
-                    authentication.getName()
+            PaymentIntentResponse response = idempotencyService.execute(
+                    "create-payment-intent",
+                    idempotencyKey,
+                    request,
+                    PaymentIntentResponse.class,
+                    () -> paymentService.createPaymentIntent(request, authentication.getName())
             );
             
             return ResponseEntity.ok(ApiResponse.success(
                     "Payment intent created successfully",
                     response
             ));
-            
+        
+        } catch (ServiceBusyException | IdempotencyException e) {
+            throw e;
         } catch (Exception e) {
             log.error("Error creating payment intent", e);
             return ResponseEntity.badRequest().body(ApiResponse.error(
@@ -66,7 +76,9 @@ public class PaymentController {
                     "Payment confirmed successfully",
                     payment
             ));
-            
+        
+        } catch (ServiceBusyException e) {
+            throw e;
         } catch (Exception e) {
             log.error("Error confirming payment", e);
             return ResponseEntity.badRequest().body(ApiResponse.error(
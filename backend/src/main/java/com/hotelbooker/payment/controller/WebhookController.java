@@ -1,11 +1,12 @@
 package com.hotelbooker.payment.controller;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.hotelbooker.payment.config.StripeConfig;
-import com.hotelbooker.payment.model.Payment;
-import com.hotelbooker.payment.service.PaymentService;
+import com.hotelbooker.payment.service.WebhookInbox;
 import com.stripe.exception.SignatureVerificationException;
 import com.stripe.model.Event;
-import com.stripe.model.PaymentIntent;
 import com.stripe.net.Webhook;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -19,8 +20,9 @@ import org.springframework.web.bind.annotation.*;
 @Slf4j
 public class WebhookController {
     
-    private final PaymentService paymentService;
+    private final WebhookInbox webhookInbox;
     private final StripeConfig stripeConfig;
+    private final ObjectMapper objectMapper;
     
     @PostMapping("/stripe")
     public ResponseEntity<String> handleStripeWebhook(
@@ -53,91 +55,25 @@ public class WebhookController {
             }
         }
         
-        // Handle the event
-        switch (event.getType()) {
-            case "payment_intent.succeeded":
-                handlePaymentIntentSucceeded(event);
-                break;
-                
-            case "payment_intent.payment_failed":
-                handlePaymentIntentFailed(event);
-                break;
-                
-            case "payment_intent.canceled":
-                handlePaymentIntentCanceled(event);
-                break;
-                
-            case "payment_intent.processing":
-                handlePaymentIntentProcessing(event);
-                break;
-                
-            default:
-                log.info("Unhandled event type: {}", event.getType());
+        String paymentIntentId = paymentIntentId(event);
+        if (!webhookInbox.accept(event.getId(), event.getType(), paymentIntentId, payload)) {
+            log.info("Ignoring duplicate webhook event {}", event.getId());
+            return ResponseEntity.ok("Duplicate event ignored");
         }
         
         return ResponseEntity.ok("Webhook received");
     }
     
-    private void handlePaymentIntentSucceeded(Event event) {
-        PaymentIntent paymentIntent = (PaymentIntent) event.getDataObjectDeserializer()
-                .getObject()
-                .orElse(null);
-        
-        if (paymentIntent != null) {
-            log.info("Payment succeeded: {}", paymentIntent.getId());
-            paymentService.updatePaymentStatus(
-                    paymentIntent.getId(),
-                    Payment.PaymentStatus.SUCCEEDED,
-                    null
-            );
-        }
-    }
-    
-    private void handlePaymentIntentFailed(Event event) {
-        PaymentIntent paymentIntent = (PaymentIntent) event.getDataObjectDeserializer()
-                .getObject()
-                .orElse(null);
-        
-        if (paymentIntent != null) {
-            log.warn("Payment failed: {}", paymentIntent.getId());
-            String failureMessage = paymentIntent.getLastPaymentError() != null ?
-                    paymentIntent.getLastPaymentError().getMessage() : "Payment failed";
-            
-            paymentService.updatePaymentStatus(
-                    paymentIntent.getId(),
-                    Payment.PaymentStatus.FAILED,
-                    failureMessage
-            );
-        }
-    }
-    
-    private void handlePaymentIntentCanceled(Event event) {
-        PaymentIntent paymentIntent = (PaymentIntent) event.getDataObjectDeserializer()
-                .getObject()
-                .orElse(null);
-        
-        if (paymentIntent != null) {
-            log.info("Payment canceled: {}", paymentIntent.getId());
-            paymentService.updatePaymentStatus(
-                    paymentIntent.getId(),
-                    Payment.PaymentStatus.CANCELLED,
-                    "Payment was canceled"
-            );
+    private String paymentIntentId(Event event) {
+        String rawJson = event.getDataObjectDeserializer().getRawJson();
+        if (rawJson == null) {
+            return null;
         }
-    }
-    
-    private void handlePaymentIntentProcessing(Event event) {
-        PaymentIntent paymentIntent = (PaymentIntent) event.getDataObjectDeserializer()
-                .getObject()
-                .orElse(null);
-        
-        if (paymentIntent != null) {
-            log.info("Payment processing: {}", paymentIntent.getId());
-            paymentService.updatePaymentStatus(
-                    paymentIntent.getId(),
-                    Payment.PaymentStatus.PROCESSING,
-                    null
-            );
+        try {
+            JsonNode object = objectMapper.readTree(rawJson);
+            return "payment_intent".equals(object.path("object").asText()) ? object.path("id").asText(null) : null;
+        } catch (JsonProcessingException e) {
+            return null;
         }
     }
 }
@@ -0,0 +1,112 @@
+package com.hotelbooker.payment.gateway;
+
+/**
+ * Count-based circuit breaker. While CLOSED it records the outcome of the last
+ * {@code windowSize} calls and opens once at least {@code minimumCalls} have
+ * been recorded and the failure rate reaches the threshold. While OPEN every
+ * call is refused; after {@code openNanos} a single probe is let through
+ * (HALF_OPEN) and its outcome either closes the circuit or opens it again.
+ */
+class CircuitBreaker {
+    
+    enum State {
+        CLOSED,
+        OPEN,
+        HALF_OPEN
+    }
+    
+    private final boolean[] window;
+    private final int minimumCalls;
+    private final double failureRateThreshold;
+    private final long openNanos;
+    
+    private State state = State.CLOSED;
+    private int next;
+    private int recorded;
+    private int failures;
+    private long openedAt;
+    private boolean probeInFlight;
+    
+    CircuitBreaker(int windowSize, int minimumCalls, double failureRateThreshold, long openNanos) {
+        this.window = new boolean[windowSize];
+        this.minimumCalls = Math.min(minimumCalls, windowSize);
+        this.failureRateThreshold = failureRateThreshold;
+        this.openNanos = openNanos;
+    }
+    
+    synchronized boolean tryAcquirePermission() {
+        if (state == State.OPEN) {
+            if (System.nanoTime() - openedAt < openNanos) {
+                return false;
+            }
+            state = State.HALF_OPEN;
+            probeInFlight = false;
+        }
+        if (state == State.HALF_OPEN) {
+            if (probeInFlight) {
+                return false;
+            }
+            probeInFlight = true;
+        }
+        return true;
+    }
+    
+    /**
+     * Hands back a permission that was granted but not used for a call.
+     */
+    synchronized void releasePermission() {
+        if (state == State.HALF_OPEN) {
+            probeInFlight = false;
+        }
+    }
+    
+    synchronized void onSuccess() {
+        if (state == State.HALF_OPEN) {
+            close();
+        } else if (state == State.CLOSED) {
+            record(false);
+        }
+    }
+    
+    synchronized void onFailure() {
+        if (state == State.HALF_OPEN) {
+            open();
+        } else if (state == State.CLOSED) {
+            record(true);
+            if (recorded >= minimumCalls && failures >= failureRateThreshold * recorded) {
+                open();
+            }
+        }
+    }
+    
+    synchronized State state() {
+        return state;
+    }
+    
+    private void record(boolean failure) {
+        if (recorded == window.length) {
+            if (window[next]) {
+                failures--;
+            }
+        } else {
+            recorded++;
+        }
+        window[next] = failure;
+        if (failure) {
+            failures++;
+        }
+        next = (next + 1) % window.length;
+    }
+    
+    private void open() {
+        state = State.OPEN;
+        openedAt = System.nanoTime();
+    }
+    
+    private void close() {
+        state = State.CLOSED;
+        next = 0;
+        recorded = 0;
+        failures = 0;
+    }
+}
@@ -0,0 +1,15 @@
+package com.hotelbooker.payment.gateway;
+
+import java.util.Map;
+
+/**
+ * @param idempotencyKey sent to the provider so a retried call can't create a second intent
+ */
+public record CreatePaymentIntentCommand(
+        long amountInCents,
+        String currency,
+        String description,
+        Map<String, String> metadata,
+        String idempotencyKey
+) {
+}
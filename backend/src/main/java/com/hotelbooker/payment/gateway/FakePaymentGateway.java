@@ -0,0 +1,56 @@
+package com.hotelbooker.payment.gateway;
+
+import com.hotelbooker.common.exception.PaymentGatewayException;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * In-process stand-in for Stripe, for load tests and offline development. Calls
+ * take {@code latency}; created intents succeed on their first retrieval, as if
+ * the guest paid straight away.
+ */
+public class FakePaymentGateway implements PaymentGateway {
+    
+    private final Duration latency;
+    private final Map<String, GatewayPaymentIntent> byIdempotencyKey = new ConcurrentHashMap<>();
+    private final Map<String, GatewayPaymentIntent> byId = new ConcurrentHashMap<>();
+    
+    public FakePaymentGateway(Duration latency) {
+        this.latency = latency;
+    }
+    
+    @Override
+    public GatewayPaymentIntent createPaymentIntent(CreatePaymentIntentCommand command) {
+        pause();
+        return byIdempotencyKey.computeIfAbsent(command.idempotencyKey(), key -> {
+            String id = "pi_fake_" + UUID.randomUUID().toString().replace("-", "");
+            GatewayPaymentIntent intent = new GatewayPaymentIntent(id, id + "_secret", "requires_payment_method");
+            byId.put(id, intent);
+            return intent;
+        });
+    }
+    
+    @Override
+    public GatewayPaymentIntent retrievePaymentIntent(String paymentIntentId) {
+        pause();
+        GatewayPaymentIntent intent = byId.get(paymentIntentId);
+        if (intent == null) {
+            throw new PaymentGatewayException("No such payment intent: " + paymentIntentId, false, null);
+        }
+        return new GatewayPaymentIntent(intent.id(), intent.clientSecret(), "succeeded");
+    }
+    
+    private void pause() {
+        if (latency.isZero()) {
+            return;
+        }
+        try {
+            Thread.sleep(latency.toMillis());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,8 @@
+package com.hotelbooker.payment.gateway;
+
+/**
+ * Provider-neutral view of a payment intent; {@code status} uses Stripe's
+ * vocabulary ("succeeded", "processing", "requires_payment_method", ...).
+ */
+public record GatewayPaymentIntent(String id, String clientSecret, String status) {
+}
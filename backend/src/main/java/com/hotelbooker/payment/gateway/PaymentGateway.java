@@ -0,0 +1,12 @@
+package com.hotelbooker.payment.gateway;
+
+/**
+ * The payment provider as seen by {@code PaymentService}. Implementations make
+ * network calls and must never be invoked while a database transaction is open.
+ */
+public interface PaymentGateway {
+    
+    GatewayPaymentIntent createPaymentIntent(CreatePaymentIntentCommand command);
+    
+    GatewayPaymentIntent retrievePaymentIntent(String paymentIntentId);
+}
@@ -0,0 +1,112 @@
+package com.hotelbooker.payment.gateway;
+
+import com.hotelbooker.common.exception.PaymentGatewayException;
+import com.hotelbooker.common.exception.ServiceBusyException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import java.time.Duration;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Wraps a {@link PaymentGateway} so a slow or failing provider can't take the
+ * rest of the application down with it:
+ * <ul>
+ *     <li>a semaphore bulkhead caps concurrent provider calls, waiting at most
+ *     {@code maxWait} for a slot;</li>
+ *     <li>a {@link CircuitBreaker} stops calling a provider that keeps timing out
+ *     or failing, and probes it again after a cool-down.</li>
+ * </ul>
+ * Refused calls fail fast with {@link ServiceBusyException} (503). Per-call
+ * timeouts are enforced by the delegate on the connection itself.
+ */
+public class ResilientPaymentGateway implements PaymentGateway {
+    
+    private final PaymentGateway delegate;
+    private final CircuitBreaker circuitBreaker;
+    private final Semaphore bulkhead;
+    private final long maxWaitNanos;
+    private final Counter circuitOpenRejections;
+    private final Counter bulkheadRejections;
+    
+    public ResilientPaymentGateway(PaymentGateway delegate,
+                                   MeterRegistry meterRegistry,
+                                   int maxConcurrentCalls,
+                                   Duration maxWait,
+                                   int windowSize,
+                                   int minimumCalls,
+                                   double failureRateThreshold,
+                                   Duration openDuration) {
+        this.delegate = delegate;
+        this.circuitBreaker = new CircuitBreaker(windowSize, minimumCalls, failureRateThreshold,
+                openDuration.toNanos());
+        this.bulkhead = new Semaphore(maxConcurrentCalls);
+        this.maxWaitNanos = maxWait.toNanos();
+        this.circuitOpenRejections = Counter.builder("payment.gateway.rejected")
+                .tag("reason", "circuit-open")
+                .register(meterRegistry);
+        this.bulkheadRejections = Counter.builder("payment.gateway.rejected")
+                .tag("reason", "bulkhead-full")
+                .register(meterRegistry);
+        Gauge.builder("payment.gateway.circuit.open", circuitBreaker,
+                        breaker -> breaker.state() == CircuitBreaker.State.CLOSED ? 0 : 1)
+                .description("1 while calls to the payment provider are being refused or probed")
+                .register(meterRegistry);
+        Gauge.builder("payment.gateway.calls.active", bulkhead,
+                        semaphore -> maxConcurrentCalls - semaphore.availablePermits())
+                .register(meterRegistry);
+    }
+    
+    @Override
+    public GatewayPaymentIntent createPaymentIntent(CreatePaymentIntentCommand command) {
+        return call(() -> delegate.createPaymentIntent(command));
+    }
+    
+    @Override
+    public GatewayPaymentIntent retrievePaymentIntent(String paymentIntentId) {
+        return call(() -> delegate.retrievePaymentIntent(paymentIntentId));
+    }
+    
+    private <T> T call(Supplier<T> call) {
+        if (!circuitBreaker.tryAcquirePermission()) {
+            circuitOpenRejections.increment();
+            throw new ServiceBusyException("Payment provider is unavailable, please try again shortly");
+        }
+        if (!acquireBulkhead()) {
+            circuitBreaker.releasePermission();
+            bulkheadRejections.increment();
+            throw new ServiceBusyException("Too many payment requests, please try again shortly");
+        }
+        
+        try {
+            T result = call.get();
+            circuitBreaker.onSuccess();
+            return result;
+        } catch (PaymentGatewayException e) {
+            // A declined card or bad request still means the provider is healthy
+            if (e.isTransientFailure()) {
+                circuitBreaker.onFailure();
+            } else {
+                circuitBreaker.onSuccess();
+            }
+            throw e;
+        } catch (RuntimeException e) {
+            circuitBreaker.onFailure();
+            throw e;
+        } finally {
+            bulkhead.release();
+        }
+    }
+    
+    private boolean acquireBulkhead() {
+        try {
+            return bulkhead.tryAcquire(maxWaitNanos, TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+}
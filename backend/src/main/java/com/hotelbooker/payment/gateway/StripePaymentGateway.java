@@ -0,0 +1,77 @@
+package com.hotelbooker.payment.gateway;
+
+import com.hotelbooker.common.exception.PaymentGatewayException;
+import com.stripe.exception.ApiConnectionException;
+import com.stripe.exception.ApiException;
+import com.stripe.exception.RateLimitException;
+import com.stripe.exception.StripeException;
+import com.stripe.model.PaymentIntent;
+import com.stripe.net.RequestOptions;
+import com.stripe.param.PaymentIntentCreateParams;
+
+import java.time.Duration;
+
+public class StripePaymentGateway implements PaymentGateway {
+    
+    private final int connectTimeoutMillis;
+    private final int readTimeoutMillis;
+    
+    public StripePaymentGateway(Duration connectTimeout, Duration readTimeout) {
+        this.connectTimeoutMillis = (int) connectTimeout.toMillis();
+        this.readTimeoutMillis = (int) readTimeout.toMillis();
+    }
+    
+    @Override
+    public GatewayPaymentIntent createPaymentIntent(CreatePaymentIntentCommand command) {
+        PaymentIntentCreateParams params = PaymentIntentCreateParams.builder()
+                .setAmount(command.amountInCents())
+                .setCurrency(command.currency())
+                .setDescription(command.description())
+                .putAllMetadata(command.metadata())
+                .setAutomaticPaymentMethods(
+                        PaymentIntentCreateParams.AutomaticPaymentMethods.builder()
+                                .setEnabled(true)
+                                .build()
+                )
+                .build();
+        
+        try {
+            PaymentIntent paymentIntent = PaymentIntent.create(params, requestOptions(command.idempotencyKey()));
+            return toGatewayIntent(paymentIntent);
+        } catch (StripeException e) {
+            throw translate("Failed to create payment intent", e);
+        }
+    }
+    
+    @Override
+    public GatewayPaymentIntent retrievePaymentIntent(String paymentIntentId) {
+        try {
+            return toGatewayIntent(PaymentIntent.retrieve(paymentIntentId, requestOptions(null)));
+        } catch (StripeException e) {
+            throw translate("Failed to retrieve payment intent", e);
+        }
+    }
+    
+    private RequestOptions requestOptions(String idempotencyKey) {
+        RequestOptions.RequestOptionsBuilder builder = RequestOptions.builder()
+                .setConnectTimeout(connectTimeoutMillis)
+                .setReadTimeout(readTimeoutMillis);
+        if (idempotencyKey != null) {
+            builder.setIdempotencyKey(idempotencyKey);
+        }
+        return builder.build();
+    }
+    
+    private static GatewayPaymentIntent toGatewayIntent(PaymentIntent paymentIntent) {
+        return new GatewayPaymentIntent(paymentIntent.getId(), paymentIntent.getClientSecret(),
+                paymentIntent.getStatus());
+    }
+    
+    // Connection failures, timeouts, 5xx and throttling say nothing about the request itself
+    private static PaymentGatewayException translate(String message, StripeException e) {
+        boolean transientFailure = e instanceof ApiConnectionException
+                || e instanceof ApiException
+                || e instanceof RateLimitException;
+        return new PaymentGatewayException(message + ": " + e.getMessage(), transientFailure, e);
+    }
+}
@@ -9,7 +9,10 @@ import lombok.NoArgsConstructor;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "payments")
+@Table(
+        name = "payments",
+        indexes = @Index(name = "idx_payments_status_id", columnList = "status, id")
+)
 @Data
 @Builder
 @NoArgsConstructor
@@ -68,6 +71,23 @@ public class Payment {
         SUCCEEDED,
         FAILED,
         CANCELLED,
-        REFUNDED
+        REFUNDED;
+        
+        /**
+         * Whether a payment in this status may move to {@code next}. Statuses only
+         * move forward, so a late or retried webhook can't undo an outcome: a
+         * succeeded payment can only be refunded, a cancelled or refunded one is
+         * final, and a failed one can still succeed when the guest retries the
+         * same intent with another card.
+         */
+        public boolean canMoveTo(PaymentStatus next) {
+            return switch (this) {
+                case PENDING -> next != PENDING;
+                case PROCESSING -> next != PENDING && next != PROCESSING;
+                case FAILED -> next == SUCCEEDED;
+                case SUCCEEDED -> next == REFUNDED;
+                case CANCELLED, REFUNDED -> false;
+            };
+        }
     }
 }
@@ -0,0 +1,17 @@
+package com.hotelbooker.payment.model;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Published when a payment linked to a booking reaches an outcome the booking
+ * has to follow: SUCCEEDED confirms it, CANCELLED gives its rooms back. FAILED
+ * is not final, as the same intent can still succeed with another card.
+ */
+@Getter
+@RequiredArgsConstructor
+public class PaymentOutcomeEvent {
+    private final String bookingId;
+    private final String paymentIntentId;
+    private final Payment.PaymentStatus status;
+}
@@ -0,0 +1,65 @@
+package com.hotelbooker.payment.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Inbox row for a verified Stripe webhook, keyed by the Stripe event id so a
+ * redelivered event is recognised and dropped on insert.
+ */
+@Entity
+@Table(
+        name = "webhook_events",
+        indexes = @Index(name = "idx_webhook_events_status_next_attempt", columnList = "status, next_attempt_at")
+)
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class WebhookEvent {
+    
+    @Id
+    @Column(name = "id")
+    private String id;
+    
+    @Column(name = "type", nullable = false)
+    private String type;
+    
+    @Column(name = "payment_intent_id")
+    private String paymentIntentId;
+    
+    @Column(name = "payload", nullable = false, columnDefinition = "TEXT")
+    private String payload;
+    
+    @Enumerated(EnumType.STRING)
+    @Column(name = "status", nullable = false)
+    private Status status;
+    
+    @Column(name = "attempts", nullable = false)
+    private Integer attempts;
+    
+    @Column(name = "last_error", length = 1000)
+    private String lastError;
+    
+    @Column(name = "received_at", nullable = false)
+    private LocalDateTime receivedAt;
+    
+    // When the recovery poller may pick the event up if no worker has finished it
+    @Column(name = "next_attempt_at")
+    private LocalDateTime nextAttemptAt;
+    
+    @Column(name = "processed_at")
+    private LocalDateTime processedAt;
+    
+    public enum Status {
+        RECEIVED,
+        PROCESSED,
+        // Gave up after max-attempts; needs a look by hand
+        FAILED
+    }
+}
@@ -1,9 +1,14 @@
 package com.hotelbooker.payment.repository;
 
 import com.hotelbooker.payment.model.Payment;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -16,5 +21,37 @@ public interface PaymentRepository extends JpaRepository<Payment, String> {
     
     List<Payment> findByUserId(String userId);
     
-    List<Payment> findByStatus(Payment.PaymentStatus status);
+    /**
+     * Payments for the same booking and amount whose intent call never came
+     * back with an intent id, so a retry can reuse the id as idempotency key.
+     */
+    @Query("SELECT p FROM Payment p WHERE p.userId = :userId AND p.bookingId = :bookingId " +
+           "AND p.amount = :amount AND p.currency = :currency AND p.status = :status " +
+           "AND p.stripePaymentIntentId IS NULL ORDER BY p.createdAt")
+    List<Payment> findUnsent(@Param("userId") String userId,
+                             @Param("bookingId") String bookingId,
+                             @Param("amount") Double amount,
+                             @Param("currency") String currency,
+                             @Param("status") Payment.PaymentStatus status);
+    
+    /**
+     * One keyset page of payments that have sat in {@code status} since before
+     * {@code staleBefore}: id, intent id, booking id and status, ordered by id
+     * after {@code afterId}. With a single status each page is an ordered range
+     * scan of the (status, id) index however deep the backlog goes; the
+     * staleness and age conditions are checked on the rows it reads.
+     */
+    @Query("SELECT p.id, p.stripePaymentIntentId, p.bookingId, p.status FROM Payment p " +
+           "WHERE p.status = :status AND p.updatedAt < :staleBefore AND p.createdAt >= :createdAfter " +
+           "AND p.stripePaymentIntentId IS NOT NULL AND p.id > :afterId ORDER BY p.id")
+    List<Object[]> findStalePage(@Param("status") Payment.PaymentStatus status,
+                                 @Param("staleBefore") LocalDateTime staleBefore,
+                                 @Param("createdAfter") LocalDateTime createdAfter,
+                                 @Param("afterId") String afterId,
+                                 Pageable pageable);
+    
+    @Query("SELECT MIN(p.updatedAt) FROM Payment p WHERE p.status IN :statuses AND p.createdAt >= :createdAfter " +
+           "AND p.stripePaymentIntentId IS NOT NULL")
+    LocalDateTime findOldestUpdate(@Param("statuses") Collection<Payment.PaymentStatus> statuses,
+                                   @Param("createdAfter") LocalDateTime createdAfter);
 }
@@ -0,0 +1,71 @@
+package com.hotelbooker.payment.repository;
+
+import com.hotelbooker.payment.model.WebhookEvent;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface WebhookEventRepository extends JpaRepository<WebhookEvent, String> {
+    
+    /**
+     * Stores a newly received event; returns 0 if an event with the same id is
+     * already in the inbox. Two concurrent deliveries of a new event can both
+     * pass the check, in which case the loser fails on the primary key.
+     */
+    @Modifying
+    @Transactional
+    @Query(value = "INSERT INTO webhook_events " +
+                   "(id, type, payment_intent_id, payload, status, attempts, received_at, next_attempt_at) " +
+                   "SELECT :id, :type, :paymentIntentId, :payload, 'RECEIVED', 0, :now, :nextAttemptAt " +
+                   "WHERE NOT EXISTS (SELECT 1 FROM webhook_events WHERE id = :id)",
+           nativeQuery = true)
+    int insertIfAbsent(@Param("id") String id,
+                       @Param("type") String type,
+                       @Param("paymentIntentId") String paymentIntentId,
+                       @Param("payload") String payload,
+                       @Param("now") LocalDateTime now,
+                       @Param("nextAttemptAt") LocalDateTime nextAttemptAt);
+    
+    @Query("SELECT e FROM WebhookEvent e WHERE e.status = :status AND e.nextAttemptAt <= :now " +
+           "ORDER BY e.receivedAt")
+    List<WebhookEvent> findDue(@Param("status") WebhookEvent.Status status,
+                               @Param("now") LocalDateTime now,
+                               Pageable pageable);
+    
+    /**
+     * Pushes the event's next attempt out to {@code lease}, provided nobody else
+     * has since claimed it; returns 0 if another poller got there first.
+     */
+    @Modifying
+    @Transactional
+    @Query("UPDATE WebhookEvent e SET e.nextAttemptAt = :lease " +
+           "WHERE e.id = :id AND e.status = :status AND e.nextAttemptAt = :seen")
+    int claim(@Param("id") String id,
+              @Param("status") WebhookEvent.Status status,
+              @Param("seen") LocalDateTime seen,
+              @Param("lease") LocalDateTime lease);
+    
+    @Modifying
+    @Query("UPDATE WebhookEvent e SET e.status = :status, e.processedAt = :now, e.nextAttemptAt = NULL " +
+           "WHERE e.id = :id")
+    int markProcessed(@Param("id") String id,
+                      @Param("status") WebhookEvent.Status status,
+                      @Param("now") LocalDateTime now);
+    
+    @Modifying
+    @Transactional
+    @Query("UPDATE WebhookEvent e SET e.status = :status, e.attempts = e.attempts + 1, " +
+           "e.lastError = :error, e.nextAttemptAt = :nextAttemptAt WHERE e.id = :id")
+    int markFailed(@Param("id") String id,
+                   @Param("status") WebhookEvent.Status status,
+                   @Param("error") String error,
+                   @Param("nextAttemptAt") LocalDateTime nextAttemptAt);
+}
@@ -0,0 +1,293 @@
+package com.hotelbooker.payment.service;
+
+import com.hotelbooker.common.exception.PaymentGatewayException;
+import com.hotelbooker.common.exception.ServiceBusyException;
+import com.hotelbooker.payment.gateway.PaymentGateway;
+import com.hotelbooker.payment.model.Payment;
+import com.hotelbooker.payment.model.PaymentOutcomeEvent;
+import com.hotelbooker.payment.repository.PaymentRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Catches payments whose webhook never arrived. Every run walks the PENDING and
+ * then the PROCESSING payments not updated for {@code stale-after} in keyset
+ * pages of {@code page-size}, so memory stays bounded by one page however large
+ * the backlog. Each page is checked against the gateway on {@code parallelism}
+ * workers, paced to {@code rate-per-second} calls across all workers, and
+ * written back in one JDBC batch. Every checked row has its updated_at bumped,
+ * so payments that are still open wait another {@code stale-after} before the
+ * next check, but the status only changes where {@link
+ * Payment.PaymentStatus#canMoveTo} allows it. The batch is conditional on the
+ * status read, so an outcome a webhook delivers meanwhile wins.
+ * <p>
+ * Payments older than {@code max-age} are no longer chased: their booking hold
+ * has long expired.
+ * <p>
+ * A large backlog takes hours at the gateway's rate limit, so the walk runs on
+ * its own thread rather than the shared scheduler; a tick that finds a run still
+ * going is skipped.
+ */
+@Component
+@Slf4j
+public class PaymentReconciler {
+    
+    private static final List<Payment.PaymentStatus> OPEN = List.of(
+            Payment.PaymentStatus.PENDING, Payment.PaymentStatus.PROCESSING);
+    private static final Set<Payment.PaymentStatus> OUTCOMES = Set.of(
+            Payment.PaymentStatus.SUCCEEDED, Payment.PaymentStatus.CANCELLED);
+    
+    private final PaymentRepository paymentRepository;
+    private final PaymentGateway paymentGateway;
+    private final JdbcTemplate jdbcTemplate;
+    private final ApplicationEventPublisher eventPublisher;
+    private final Duration staleAfter;
+    private final Duration maxAge;
+    private final int pageSize;
+    private final long intervalNanos;
+    private final ExecutorService workers;
+    private final ExecutorService walker;
+    private final AtomicBoolean running = new AtomicBoolean();
+    
+    private final AtomicLong nextCallAt = new AtomicLong(System.nanoTime());
+    private final AtomicLong checkedThisRun = new AtomicLong();
+    private final AtomicLong lagSeconds = new AtomicLong();
+    private final Counter checked;
+    private final Counter updated;
+    private final Counter failed;
+    private final Timer runTimer;
+    
+    public PaymentReconciler(PaymentRepository paymentRepository,
+                             PaymentGateway paymentGateway,
+                             JdbcTemplate jdbcTemplate,
+                             ApplicationEventPublisher eventPublisher,
+                             MeterRegistry meterRegistry,
+                             @Value("${hotelbooker.payment.reconciliation.stale-after:PT15M}") Duration staleAfter,
+                             @Value("${hotelbooker.payment.reconciliation.max-age:P2D}") Duration maxAge,
+                             @Value("${hotelbooker.payment.reconciliation.page-size:500}") int pageSize,
+                             @Value("${hotelbooker.payment.reconciliation.parallelism:8}") int parallelism,
+                             @Value("${hotelbooker.payment.reconciliation.rate-per-second:20}") double ratePerSecond) {
+        this.paymentRepository = paymentRepository;
+        this.paymentGateway = paymentGateway;
+        this.jdbcTemplate = jdbcTemplate;
+        this.eventPublisher = eventPublisher;
+        this.staleAfter = staleAfter;
+        this.maxAge = maxAge;
+        this.pageSize = pageSize;
+        this.intervalNanos = (long) (TimeUnit.SECONDS.toNanos(1) / ratePerSecond);
+        AtomicInteger count = new AtomicInteger();
+        this.workers = Executors.newFixedThreadPool(parallelism, runnable -> {
+            Thread thread = new Thread(runnable, "payment-reconciler-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.walker = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "payment-reconciler");
+            thread.setDaemon(true);
+            return thread;
+        });
+        
+        this.checked = Counter.builder("payment.reconciliation.checked").register(meterRegistry);
+        this.updated = Counter.builder("payment.reconciliation.updated").register(meterRegistry);
+        this.failed = Counter.builder("payment.reconciliation.failed").register(meterRegistry);
+        this.runTimer = Timer.builder("payment.reconciliation.run").register(meterRegistry);
+        Gauge.builder("payment.reconciliation.progress", checkedThisRun, AtomicLong::get)
+                .description("Payments checked so far in the current run")
+                .register(meterRegistry);
+        Gauge.builder("payment.reconciliation.lag", lagSeconds, AtomicLong::get)
+                .description("Age in seconds of the longest-unreconciled open payment at the start of the last run")
+                .baseUnit("seconds")
+                .register(meterRegistry);
+    }
+    
+    @Scheduled(
+            initialDelayString = "${hotelbooker.payment.reconciliation.interval:PT5M}",
+            fixedDelayString = "${hotelbooker.payment.reconciliation.interval:PT5M}"
+    )
+    public void scheduleRun() {
+        if (!running.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            walker.execute(() -> {
+                try {
+                    reconcile();
+                } catch (RuntimeException e) {
+                    log.error("Payment reconciliation run failed", e);
+                } finally {
+                    running.set(false);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            running.set(false);
+        }
+    }
+    
+    public void reconcile() {
+        runTimer.record(this::run);
+    }
+    
+    private void run() {
+        LocalDateTime start = LocalDateTime.now();
+        LocalDateTime createdAfter = start.minus(maxAge);
+        LocalDateTime oldest = paymentRepository.findOldestUpdate(OPEN, createdAfter);
+        lagSeconds.set(oldest == null ? 0 : Duration.between(oldest, start).getSeconds());
+        checkedThisRun.set(0);
+        
+        int changed = 0;
+        try {
+            for (Payment.PaymentStatus status : OPEN) {
+                changed += reconcile(status, start.minus(staleAfter), createdAfter);
+            }
+        } catch (ServiceBusyException e) {
+            // Circuit open or gateway saturated: leave the rest for the next run
+            log.warn("Payment reconciliation stopped early: {}", e.getMessage());
+        }
+        
+        if (checkedThisRun.get() > 0) {
+            log.info("Reconciled {} stale payments, {} changed status", checkedThisRun.get(), changed);
+        }
+    }
+    
+    // One status per walk keeps every page an ordered range scan of the (status, id) index
+    private int reconcile(Payment.PaymentStatus status, LocalDateTime staleBefore, LocalDateTime createdAfter) {
+        String afterId = "";
+        int changed = 0;
+        List<Object[]> page;
+        do {
+            page = paymentRepository.findStalePage(status, staleBefore, createdAfter, afterId,
+                    PageRequest.of(0, pageSize));
+            if (page.isEmpty()) {
+                break;
+            }
+            afterId = (String) page.get(page.size() - 1)[0];
+            changed += reconcilePage(page);
+        } while (page.size() == pageSize);
+        return changed;
+    }
+    
+    private int reconcilePage(List<Object[]> page) {
+        List<CompletableFuture<Check>> checks = new ArrayList<>(page.size());
+        for (Object[] row : page) {
+            checks.add(CompletableFuture.supplyAsync(() -> check(row), workers));
+        }
+        
+        List<Check> results = new ArrayList<>(page.size());
+        ServiceBusyException busy = null;
+        for (CompletableFuture<Check> future : checks) {
+            try {
+                Check result = future.join();
+                if (result != null) {
+                    results.add(result);
+                }
+            } catch (RuntimeException e) {
+                if (e.getCause() instanceof ServiceBusyException serviceBusy) {
+                    busy = serviceBusy;
+                } else {
+                    failed.increment();
+                }
+            }
+        }
+        
+        int changed = apply(results);
+        if (busy != null) {
+            throw busy;
+        }
+        return changed;
+    }
+    
+    private Check check(Object[] row) {
+        awaitRateLimit();
+        String paymentId = (String) row[0];
+        try {
+            Payment.PaymentStatus current = (Payment.PaymentStatus) row[3];
+            Payment.PaymentStatus actual = PaymentService.toPaymentStatus(
+                    paymentGateway.retrievePaymentIntent((String) row[1]).status());
+            checked.increment();
+            checkedThisRun.incrementAndGet();
+            // A move the state machine forbids (e.g. PROCESSING back to PENDING) only bumps updated_at
+            return new Check(paymentId, (String) row[2], current, current.canMoveTo(actual) ? actual : current);
+        } catch (PaymentGatewayException e) {
+            log.debug("Could not reconcile payment {}: {}", paymentId, e.getMessage());
+            failed.increment();
+            return null;
+        }
+    }
+    
+    private int apply(List<Check> results) {
+        if (results.isEmpty()) {
+            return 0;
+        }
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        int[] counts = jdbcTemplate.batchUpdate(
+                "UPDATE payments SET status = ?, updated_at = ? WHERE id = ? AND status = ?",
+                results,
+                results.size(),
+                (ps, result) -> {
+                    ps.setString(1, result.actual.name());
+                    ps.setTimestamp(2, now);
+                    ps.setString(3, result.paymentId);
+                    ps.setString(4, result.current.name());
+                })[0];
+        
+        int changed = 0;
+        for (int i = 0; i < results.size(); i++) {
+            Check result = results.get(i);
+            if (counts[i] == 0 || result.actual == result.current) {
+                continue;
+            }
+            changed++;
+            updated.increment();
+            if (result.bookingId != null && OUTCOMES.contains(result.actual)) {
+                eventPublisher.publishEvent(new PaymentOutcomeEvent(result.bookingId, null, result.actual));
+            }
+        }
+        return changed;
+    }
+    
+    // Spaces calls intervalNanos apart across all workers by handing out time slots
+    private void awaitRateLimit() {
+        long now = System.nanoTime();
+        long slot = nextCallAt.getAndAccumulate(now, (next, current) -> Math.max(next, current) + intervalNanos);
+        long wait = Math.max(slot, now) - now;
+        if (wait > 0) {
+            LockSupport.parkNanos(wait);
+        }
+    }
+    
+    @PreDestroy
+    public void shutdown() {
+        walker.shutdownNow();
+        workers.shutdownNow();
+    }
+    
+    private record Check(String paymentId, String bookingId, Payment.PaymentStatus current,
+                         Payment.PaymentStatus actual) {
+    }
+}
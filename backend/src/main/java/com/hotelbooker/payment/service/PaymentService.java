@@ -1,92 +1,126 @@
 package com.hotelbooker.payment.service;
 
+import com.hotelbooker.common.exception.PaymentGatewayException;
+import com.hotelbooker.common.exception.ServiceBusyException;
 import com.hotelbooker.payment.config.StripeConfig;
 import com.hotelbooker.payment.dto.PaymentIntentRequest;
 import com.hotelbooker.payment.dto.PaymentIntentResponse;
+import com.hotelbooker.payment.gateway.CreatePaymentIntentCommand;
+import com.hotelbooker.payment.gateway.GatewayPaymentIntent;
+import com.hotelbooker.payment.gateway.PaymentGateway;
 import com.hotelbooker.payment.model.Payment;
+import com.hotelbooker.payment.model.PaymentOutcomeEvent;
 import com.hotelbooker.payment.repository.PaymentRepository;
-import com.stripe.exception.StripeException;
-import com.stripe.model.PaymentIntent;
-import com.stripe.param.PaymentIntentCreateParams;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 
 @Service
 @RequiredArgsConstructor
 @Slf4j
 public class PaymentService {
     
+    private static final Set<Payment.PaymentStatus> OUTCOMES = Set.of(
+            Payment.PaymentStatus.SUCCEEDED, Payment.PaymentStatus.CANCELLED);
+    
     private final PaymentRepository paymentRepository;
     private final StripeConfig stripeConfig;
+    private final ApplicationEventPublisher eventPublisher;
+    private final PaymentGateway paymentGateway;
+    private final TransactionTemplate transactionTemplate;
     
-    @Transactional
+    /**
+     * Creates a payment intent without holding a database connection across the
+     * provider call: a PENDING payment is saved first, the provider is called
+     * outside any transaction, and the intent id is written back afterwards. The
+     * payment id doubles as the provider idempotency key. A transient failure
+     * (timeout, outage) may still have created the intent, so the PENDING row is
+     * kept and a retry for the same booking and amount reuses its id, getting
+     * back that intent rather than a second one. Only a definite rejection
+     * deletes the row.
+     */
     public PaymentIntentResponse createPaymentIntent(PaymentIntentRequest request, String userId) {
+        log.info("Creating payment intent for amount: {} {}", request.getAmount(), request.getCurrency());
+        
+        // Convert amount to cents (Stripe uses smallest currency unit)
+        Long amountInCents = (long) (request.getAmount() * 100);
+        
+        // Build metadata
+        Map<String, String> metadata = new HashMap<>();
+        if (request.getMetadata() != null) {
+            metadata.putAll(request.getMetadata());
+        }
+        metadata.put("userId", userId);
+        if (request.getBookingId() != null) {
+            metadata.put("bookingId", request.getBookingId());
+        }
+        
+        Payment payment = findUnsentPayment(request, userId)
+                .orElseGet(() -> paymentRepository.save(Payment.builder()
+                        .bookingId(request.getBookingId())
+                        .userId(userId)
+                        .amount(request.getAmount())
+                        .currency(request.getCurrency())
+                        .status(Payment.PaymentStatus.PENDING)
+                        .build()));
+        metadata.put("paymentId", payment.getId());
+        
+        GatewayPaymentIntent paymentIntent;
         try {
-            log.info("Creating payment intent for amount: {} {}", request.getAmount(), request.getCurrency());
-            
-            // Convert amount to cents (Stripe uses smallest currency unit)
-            Long amountInCents = (long) (request.getAmount() * 100);
-            
-            // Build metadata
-            Map<String, String> metadata = new HashMap<>();
-            if (request.getMetadata() != null) {
-                metadata.putAll(request.getMetadata());
-            }
-            metadata.put("userId", userId);
-            if (request.getBookingId() != null) {
-                metadata.put("bookingId", request.getBookingId());
-            }
-            
-            // Create Stripe PaymentIntent
-            PaymentIntentCreateParams params = PaymentIntentCreateParams.builder()
-                    .setAmount(amountInCents)
-                    .setCurrency(request.getCurrency().toLowerCase())
-                    .setDescription(request.getDescription() != null ? 
-                            request.getDescription() : "Hotel Booking Payment")
-                    .putAllMetadata(metadata)
-                    .setAutomaticPaymentMethods(
-                            PaymentIntentCreateParams.AutomaticPaymentMethods.builder()
-                                    .setEnabled(true)
-                                    .build()
-                    )
-                    .build();
-            
-            PaymentIntent paymentIntent = PaymentIntent.create(params);
-            
-            // Save payment record
-            Payment payment = Payment.builder()
-                    .bookingId(request.getBookingId())
-                    .userId(userId)
-                    .stripePaymentIntentId(paymentIntent.getId())
-                    .amount(request.getAmount())
-                    .currency(request.getCurrency())
-                    .status(Payment.PaymentStatus.PENDING)
-                    .build();
-            
-            paymentRepository.save(payment);
-            
-            log.info("Payment intent created successfully: {}", paymentIntent.getId());
-            
-            return PaymentIntentResponse.builder()
-                    .paymentIntentId(paymentIntent.getId())
-                    .clientSecret(paymentIntent.getClientSecret())
-                    .publishableKey(stripeConfig.getPublishableKey())
-                    .amount(request.getAmount())
-                    .currency(request.getCurrency())
-                    .status(paymentIntent.getStatus())
-                    .build();
-                    
-        } catch (StripeException e) {
+            paymentIntent = paymentGateway.createPaymentIntent(new CreatePaymentIntentCommand(
+                    amountInCents,
+                    request.getCurrency().toLowerCase(),
+                    request.getDescription() != null ? request.getDescription() : "Hotel Booking Payment",
+                    metadata,
+                    payment.getId()
+            ));
+        } catch (RuntimeException e) {
             log.error("Error creating payment intent: {}", e.getMessage(), e);
-            throw new RuntimeException("Failed to create payment intent: " + e.getMessage());
+            if (isRejected(e)) {
+                // No intent the guest could pay; a FAILED row here would cancel the booking
+                paymentRepository.delete(payment);
+            }
+            throw e;
         }
+        
+        payment.setStripePaymentIntentId(paymentIntent.id());
+        paymentRepository.save(payment);
+        
+        log.info("Payment intent created successfully: {}", paymentIntent.id());
+        
+        return PaymentIntentResponse.builder()
+                .paymentIntentId(paymentIntent.id())
+                .clientSecret(paymentIntent.clientSecret())
+                .publishableKey(stripeConfig.getPublishableKey())
+                .amount(request.getAmount())
+                .currency(request.getCurrency())
+                .status(paymentIntent.status())
+                .build();
+    }
+    
+    private Optional<Payment> findUnsentPayment(PaymentIntentRequest request, String userId) {
+        if (request.getBookingId() == null) {
+            return Optional.empty();
+        }
+        return paymentRepository.findUnsent(userId, request.getBookingId(), request.getAmount(),
+                request.getCurrency(), Payment.PaymentStatus.PENDING).stream().findFirst();
+    }
+    
+    // The provider definitely created nothing: it refused the request, or the call was never made
+    private static boolean isRejected(RuntimeException e) {
+        if (e instanceof PaymentGatewayException gatewayException) {
+            return !gatewayException.isTransientFailure();
+        }
+        return e instanceof ServiceBusyException;
     }
     
     @Transactional
@@ -95,10 +129,18 @@ public class PaymentService {
         
         if (paymentOpt.isPresent()) {
             Payment payment = paymentOpt.get();
+            if (!payment.getStatus().canMoveTo(status)) {
+                log.info("Ignoring {} for payment intent {} already {}", status, paymentIntentId, payment.getStatus());
+                return payment;
+            }
             payment.setStatus(status);
             if (failureReason != null) {
                 payment.setFailureReason(failureReason);
             }
+            if (payment.getBookingId() != null && OUTCOMES.contains(status)) {
+                // Delivered to the booking pipeline after this transaction commits
+                eventPublisher.publishEvent(new PaymentOutcomeEvent(payment.getBookingId(), paymentIntentId, status));
+            }
             return paymentRepository.save(payment);
         }
         
@@ -118,46 +160,36 @@ public class PaymentService {
         return paymentRepository.findByUserId(userId);
     }
     
-    public PaymentIntent retrievePaymentIntent(String paymentIntentId) {
-        try {
-            return PaymentIntent.retrieve(paymentIntentId);
-        } catch (StripeException e) {
-            log.error("Error retrieving payment intent: {}", e.getMessage(), e);
-            throw new RuntimeException("Failed to retrieve payment intent: " + e.getMessage());
-        }
+    public GatewayPaymentIntent retrievePaymentIntent(String paymentIntentId) {
+        return paymentGateway.retrievePaymentIntent(paymentIntentId);
     }
     
-    @Transactional
+    /**
+     * Fetches the intent from the provider outside any transaction, then records
+     * its status in a short one. A failed lookup, even a non-transient one such
+     * as a rejected API key, says nothing about the payment itself, so it leaves
+     * the row alone for the webhook or the reconciler to settle.
+     */
     public Payment confirmPayment(String paymentIntentId) {
-        try {
-            PaymentIntent paymentIntent = PaymentIntent.retrieve(paymentIntentId);
-            
-            Payment.PaymentStatus status;
-            switch (paymentIntent.getStatus()) {
-                case "succeeded":
-                    status = Payment.PaymentStatus.SUCCEEDED;
-                    break;
-                case "processing":
-                    status = Payment.PaymentStatus.PROCESSING;
-                    break;
-                case "requires_payment_method":
-                case "requires_confirmation":
-                case "requires_action":
-                    status = Payment.PaymentStatus.PENDING;
-                    break;
-                case "canceled":
-                    status = Payment.PaymentStatus.CANCELLED;
-                    break;
-                default:
-                    status = Payment.PaymentStatus.FAILED;
-            }
-            
-            return updatePaymentStatus(paymentIntentId, status, null);
-            
-        } catch (StripeException e) {
-            log.error("Error confirming payment: {}", e.getMessage(), e);
-            updatePaymentStatus(paymentIntentId, Payment.PaymentStatus.FAILED, e.getMessage());
-            throw new RuntimeException("Failed to confirm payment: " + e.getMessage());
+        GatewayPaymentIntent paymentIntent = paymentGateway.retrievePaymentIntent(paymentIntentId);
+        Payment.PaymentStatus status = toPaymentStatus(paymentIntent.status());
+        return transactionTemplate.execute(tx -> updatePaymentStatus(paymentIntentId, status, null));
+    }
+    
+    static Payment.PaymentStatus toPaymentStatus(String intentStatus) {
+        switch (intentStatus) {
+            case "succeeded":
+                return Payment.PaymentStatus.SUCCEEDED;
+            case "processing":
+                return Payment.PaymentStatus.PROCESSING;
+            case "requires_payment_method":
+            case "requires_confirmation":
+            case "requires_action":
+                return Payment.PaymentStatus.PENDING;
+            case "canceled":
+                return Payment.PaymentStatus.CANCELLED;
+            default:
+                return Payment.PaymentStatus.FAILED;
         }
     }
 }
@@ -0,0 +1,123 @@
+package com.hotelbooker.payment.service;
+
+import com.hotelbooker.payment.model.Payment;
+import com.hotelbooker.payment.model.WebhookEvent;
+import com.hotelbooker.payment.repository.WebhookEventRepository;
+import com.stripe.model.Event;
+import com.stripe.model.PaymentIntent;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+
+/**
+ * Applies one inbox event to the payment it concerns. The event is marked
+ * processed in the same transaction, so a crash part-way through leaves it in
+ * the inbox to be retried, and a retry of an event already applied is a no-op.
+ * Retries can run after later events of the same intent; payment statuses only
+ * move forward (see {@link Payment.PaymentStatus#canMoveTo}), so a stale event
+ * never undoes an outcome.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class WebhookEventProcessor {
+    
+    private final WebhookEventRepository webhookEventRepository;
+    private final PaymentService paymentService;
+    
+    @Transactional
+    public void process(String eventId) {
+        WebhookEvent inboxEvent = webhookEventRepository.findById(eventId).orElse(null);
+        if (inboxEvent == null || inboxEvent.getStatus() != WebhookEvent.Status.RECEIVED) {
+            return;
+        }
+        
+        Event event = Event.GSON.fromJson(inboxEvent.getPayload(), Event.class);
+        switch (event.getType()) {
+            case "payment_intent.succeeded":
+                handlePaymentIntentSucceeded(event);
+                break;
+            
+            case "payment_intent.payment_failed":
+                handlePaymentIntentFailed(event);
+                break;
+            
+            case "payment_intent.canceled":
+                handlePaymentIntentCanceled(event);
+                break;
+            
+            case "payment_intent.processing":
+                handlePaymentIntentProcessing(event);
+                break;
+            
+            default:
+                log.info("Unhandled event type: {}", event.getType());
+        }
+        
+        webhookEventRepository.markProcessed(eventId, WebhookEvent.Status.PROCESSED, LocalDateTime.now());
+    }
+    
+    private void handlePaymentIntentSucceeded(Event event) {
+        PaymentIntent paymentIntent = paymentIntent(event);
+        
+        if (paymentIntent != null) {
+            log.info("Payment succeeded: {}", paymentIntent.getId());
+            paymentService.updatePaymentStatus(
+                    paymentIntent.getId(),
+                    Payment.PaymentStatus.SUCCEEDED,
+                    null
+            );
+        }
+    }
+    
+    private void handlePaymentIntentFailed(Event event) {
+        PaymentIntent paymentIntent = paymentIntent(event);
+        
+        if (paymentIntent != null) {
+            log.warn("Payment failed: {}", paymentIntent.getId());
+            String failureMessage = paymentIntent.getLastPaymentError() != null ?
+                    paymentIntent.getLastPaymentError().getMessage() : "Payment failed";
+            
+            paymentService.updatePaymentStatus(
+                    paymentIntent.getId(),
+                    Payment.PaymentStatus.FAILED,
+                    failureMessage
+            );
+        }
+    }
+    
+    private void handlePaymentIntentCanceled(Event event) {
+        PaymentIntent paymentIntent = paymentIntent(event);
+        
+        if (paymentIntent != null) {
+            log.info("Payment canceled: {}", paymentIntent.getId());
+            paymentService.updatePaymentStatus(
+                    paymentIntent.getId(),
+                    Payment.PaymentStatus.CANCELLED,
+                    "Payment was canceled"
+            );
+        }
+    }
+    
+    private void handlePaymentIntentProcessing(Event event) {
+        PaymentIntent paymentIntent = paymentIntent(event);
+        
+        if (paymentIntent != null) {
+            log.info("Payment processing: {}", paymentIntent.getId());
+            paymentService.updatePaymentStatus(
+                    paymentIntent.getId(),
+                    Payment.PaymentStatus.PROCESSING,
+                    null
+            );
+        }
+    }
+    
+    private static PaymentIntent paymentIntent(Event event) {
+        return (PaymentIntent) event.getDataObjectDeserializer()
+                .getObject()
+                .orElse(null);
+    }
+}
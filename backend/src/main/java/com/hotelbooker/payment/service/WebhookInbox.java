@@ -0,0 +1,145 @@
+package com.hotelbooker.payment.service;
+
+import com.hotelbooker.payment.model.WebhookEvent;
+import com.hotelbooker.payment.repository.WebhookEventRepository;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Durable inbox for Stripe webhooks. The HTTP call only inserts the verified
+ * event, deduplicated on its Stripe id, and hands it to a worker, so the
+ * response never waits on payment or booking updates.
+ * <p>
+ * Workers are partitioned by payment intent: every event for one intent runs on
+ * the same single-threaded partition, in arrival order. Delivery is at least
+ * once - an event that fails, is dropped because its partition is full, or was
+ * in flight when the instance stopped stays RECEIVED and is picked up again by
+ * the recovery poller with exponential backoff until {@code max-attempts}. A
+ * retried event may land after later events of its intent; that is safe because
+ * payment statuses never move backwards.
+ */
+@Component
+@Slf4j
+public class WebhookInbox {
+    
+    private final WebhookEventRepository webhookEventRepository;
+    private final WebhookEventProcessor processor;
+    private final ThreadPoolExecutor[] partitions;
+    private final Duration retryDelay;
+    private final int maxAttempts;
+    private final int batchSize;
+    
+    public WebhookInbox(WebhookEventRepository webhookEventRepository,
+                        WebhookEventProcessor processor,
+                        @Value("${hotelbooker.payment.webhook.partitions:4}") int partitionCount,
+                        @Value("${hotelbooker.payment.webhook.queue-capacity:1000}") int queueCapacity,
+                        @Value("${hotelbooker.payment.webhook.retry-delay:PT30S}") Duration retryDelay,
+                        @Value("${hotelbooker.payment.webhook.max-attempts:10}") int maxAttempts,
+                        @Value("${hotelbooker.payment.webhook.batch-size:100}") int batchSize) {
+        this.webhookEventRepository = webhookEventRepository;
+        this.processor = processor;
+        this.retryDelay = retryDelay;
+        this.maxAttempts = maxAttempts;
+        this.batchSize = batchSize;
+        this.partitions = new ThreadPoolExecutor[partitionCount];
+        for (int i = 0; i < partitionCount; i++) {
+            String name = "webhook-partition-" + i;
+            partitions[i] = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS,
+                    new ArrayBlockingQueue<>(queueCapacity),
+                    runnable -> {
+                        Thread thread = new Thread(runnable, name);
+                        thread.setDaemon(true);
+                        return thread;
+                    },
+                    new ThreadPoolExecutor.AbortPolicy());
+        }
+    }
+    
+    /**
+     * Stores a verified event and queues it for processing. Returns false if the
+     * event had already been received.
+     */
+    public boolean accept(String eventId, String type, String paymentIntentId, String payload) {
+        LocalDateTime now = LocalDateTime.now();
+        // The poller leaves the event to this instance's worker until retry-delay has passed
+        try {
+            if (webhookEventRepository.insertIfAbsent(eventId, type, paymentIntentId, payload,
+                    now, now.plus(retryDelay)) == 0) {
+                return false;
+            }
+        } catch (DataIntegrityViolationException e) {
+            // A concurrent delivery of the same event stored it first
+            return false;
+        }
+        dispatch(eventId, paymentIntentId, 0);
+        return true;
+    }
+    
+    @Scheduled(
+            initialDelayString = "${hotelbooker.payment.webhook.retry-delay:PT30S}",
+            fixedDelayString = "${hotelbooker.payment.webhook.poll-interval:PT15S}"
+    )
+    public void recover() {
+        LocalDateTime now = LocalDateTime.now();
+        List<WebhookEvent> due = webhookEventRepository.findDue(WebhookEvent.Status.RECEIVED, now,
+                PageRequest.of(0, batchSize));
+        for (WebhookEvent event : due) {
+            if (webhookEventRepository.claim(event.getId(), WebhookEvent.Status.RECEIVED,
+                    event.getNextAttemptAt(), now.plus(backoff(event.getAttempts()))) > 0) {
+                dispatch(event.getId(), event.getPaymentIntentId(), event.getAttempts());
+            }
+        }
+    }
+    
+    private void dispatch(String eventId, String paymentIntentId, int attempts) {
+        String partitionKey = paymentIntentId != null ? paymentIntentId : eventId;
+        ThreadPoolExecutor partition = partitions[Math.floorMod(partitionKey.hashCode(), partitions.length)];
+        try {
+            partition.execute(() -> run(eventId, attempts));
+        } catch (RejectedExecutionException e) {
+            log.warn("Webhook partition full, leaving event {} to the recovery poller", eventId);
+        }
+    }
+    
+    private void run(String eventId, int attempts) {
+        try {
+            processor.process(eventId);
+        } catch (RuntimeException e) {
+            int attempt = attempts + 1;
+            boolean exhausted = attempt >= maxAttempts;
+            log.error("Failed to process webhook event {} (attempt {})", eventId, attempt, e);
+            webhookEventRepository.markFailed(eventId,
+                    exhausted ? WebhookEvent.Status.FAILED : WebhookEvent.Status.RECEIVED,
+                    truncate(e.toString()),
+                    exhausted ? null : LocalDateTime.now().plus(backoff(attempt)));
+        }
+    }
+    
+    private Duration backoff(int attempts) {
+        return retryDelay.multipliedBy(1L << Math.min(attempts, 10));
+    }
+    
+    private static String truncate(String message) {
+        return message.length() <= 1000 ? message : message.substring(0, 1000);
+    }
+    
+    @PreDestroy
+    public void shutdown() {
+        for (ThreadPoolExecutor partition : partitions) {
+            partition.shutdown();
+        }
+    }
+}
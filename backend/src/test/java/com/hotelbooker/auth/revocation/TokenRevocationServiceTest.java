@@ -0,0 +1,75 @@
+package com.hotelbooker.auth.revocation;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TokenRevocationServiceTest {
+    
+    private final AtomicInteger storeLookups = new AtomicInteger();
+    private final InMemoryTokenRevocationStore store = new InMemoryTokenRevocationStore() {
+        @Override
+        public boolean isRevoked(String id) {
+            storeLookups.incrementAndGet();
+            return super.isRevoked(id);
+        }
+    };
+    private final TokenRevocationService revocationService =
+            new TokenRevocationService(store, 10_000, 0.01, Duration.ofDays(7).toMillis());
+    
+    @BeforeEach
+    void setUp() {
+        store.revoke("already-revoked", Duration.ofHours(1));
+        revocationService.bootstrap();
+    }
+    
+    @Test
+    void tokensThatWereNeverRevokedSkipTheStore() {
+        int falsePositives = 0;
+        for (int i = 0; i < 10_000; i++) {
+            if (revocationService.isRevoked(UUID.randomUUID().toString(), UUID.randomUUID().toString())) {
+                falsePositives++;
+            }
+        }
+        
+        assertThat(falsePositives).isZero();
+        // Only Bloom false positives reach the store: ~1% of 20,000 ids checked
+        assertThat(storeLookups.get()).isLessThan(400);
+        assertThat(revocationService.isRevoked("already-revoked", null)).isTrue();
+    }
+    
+    @Test
+    void refreshTokenCanOnlyBeConsumedOnce() {
+        assertThat(revocationService.consume("jti-1", Duration.ofHours(1))).isTrue();
+        assertThat(revocationService.consume("jti-1", Duration.ofHours(1))).isFalse();
+    }
+    
+    @Test
+    void spentTokensStayOutOfTheRevocationFilter() {
+        for (int i = 0; i < 10_000; i++) {
+            revocationService.consume("spent-" + i, Duration.ofHours(1));
+        }
+        revocationService.rebuild();
+        storeLookups.set(0);
+        
+        for (int i = 0; i < 10_000; i++) {
+            revocationService.isRevoked("spent-" + i, null);
+        }
+        // As for never-revoked ids, only Bloom false positives reach the store
+        assertThat(storeLookups.get()).isLessThan(200);
+    }
+    
+    @Test
+    void revokingAFamilyRevokesEveryTokenInIt() {
+        revocationService.revokeFamily("family-2");
+        
+        assertThat(revocationService.isFamilyRevoked("family-2")).isTrue();
+        assertThat(revocationService.isRevoked("jti-never-used", "family-2")).isTrue();
+        assertThat(revocationService.isRevoked("jti-never-used", "family-3")).isFalse();
+    }
+}
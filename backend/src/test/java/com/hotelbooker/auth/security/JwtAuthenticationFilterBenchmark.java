@@ -0,0 +1,84 @@
+package com.hotelbooker.auth.security;
+
+import com.hotelbooker.auth.entity.User;
+import com.hotelbooker.auth.revocation.InMemoryTokenRevocationStore;
+import com.hotelbooker.auth.revocation.TokenRevocationService;
+import com.hotelbooker.auth.service.UserCache;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-request cost of {@link JwtAuthenticationFilter} for a bearer token, with the
+ * verified-token cache disabled (every request parses and verifies the token) and
+ * enabled. Run with {@code main}, e.g. from the IDE, after {@code mvn test-compile}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JwtAuthenticationFilterBenchmark {
+    
+    private static final String SECRET = "404E635266556A586E3272357538782F413F4428472B4B6250645367566B5970";
+    
+    @Param({"0", "10000"})
+    public int verifiedCacheSize;
+    
+    private JwtAuthenticationFilter filter;
+    private String authorization;
+    
+    @Setup
+    public void setUp() {
+        JwtService jwtService = new JwtService(SECRET, 3_600_000, 86_400_000, verifiedCacheSize);
+        TokenRevocationService revocationService =
+                new TokenRevocationService(new InMemoryTokenRevocationStore(), 10_000, 0.01, 86_400_000);
+        revocationService.bootstrap();
+        filter = new JwtAuthenticationFilter(jwtService, new UserCache(null, 16), revocationService);
+        
+        User user = User.builder()
+                .email("guest@example.com")
+                .fullName("Guest")
+                .password("secret")
+                .role(User.Role.USER)
+                .build();
+        user.setId("7d5f7c5e-3f7a-4b55-9a53-0f1d1c1e2a3b");
+        authorization = "Bearer " + jwtService.generateToken(user);
+    }
+    
+    @Benchmark
+    public Object authenticate() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/bookings");
+        request.addHeader("Authorization", authorization);
+        try {
+            filter.doFilter(request, new MockHttpServletResponse(), new MockFilterChain());
+            return SecurityContextHolder.getContext().getAuthentication();
+        } finally {
+            SecurityContextHolder.clearContext();
+        }
+    }
+    
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(JwtAuthenticationFilterBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
@@ -0,0 +1,137 @@
+package com.hotelbooker.booking.repository;
+
+import com.hotelbooker.PostgresModeJpaTest;
+import com.hotelbooker.auth.entity.User;
+import com.hotelbooker.auth.repository.UserRepository;
+import com.hotelbooker.booking.dto.BookingSummary;
+import com.hotelbooker.hotel.entity.Hotel;
+import com.hotelbooker.hotel.entity.Room;
+import com.hotelbooker.hotel.repository.HotelRepository;
+import com.hotelbooker.hotel.repository.RoomRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.Date;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Walks a user's booking history and upcoming stays page by page, with many
+ * bookings sharing the same sort key, and checks every booking comes back once
+ * and in order.
+ */
+@PostgresModeJpaTest
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class BookingRepositoryKeysetTest {
+    
+    private static final int BOOKINGS = 53;
+    private static final int PAGE_SIZE = 10;
+    
+    @Autowired
+    private BookingRepository bookingRepository;
+    
+    @Autowired
+    private UserRepository userRepository;
+    
+    @Autowired
+    private HotelRepository hotelRepository;
+    
+    @Autowired
+    private RoomRepository roomRepository;
+    
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    
+    @Test
+    void pagesVisitEveryBookingOnceInOrder() {
+        String userId = seed();
+        LocalDate today = LocalDate.of(2030, 1, 1);
+        
+        List<BookingSummary> history = new ArrayList<>();
+        List<BookingSummary> page = bookingRepository.findHistory(userId, PageRequest.of(0, PAGE_SIZE));
+        while (!page.isEmpty()) {
+            history.addAll(page);
+            BookingSummary last = page.get(page.size() - 1);
+            page = bookingRepository.findHistoryAfter(userId, last.createdAt(), last.id(),
+                    PageRequest.of(0, PAGE_SIZE));
+        }
+        assertThat(history).hasSize(BOOKINGS);
+        assertThat(history).extracting(BookingSummary::id).doesNotHaveDuplicates();
+        assertThat(history).extracting(BookingSummary::createdAt)
+                .isSortedAccordingTo((a, b) -> b.compareTo(a));
+        assertThat(history).allSatisfy(summary -> {
+            assertThat(summary.hotelName()).isEqualTo("Keyset Hotel");
+            assertThat(summary.roomType()).isEqualTo("Twin");
+        });
+        
+        List<BookingSummary> upcoming = new ArrayList<>();
+        page = bookingRepository.findUpcoming(userId, today, PageRequest.of(0, PAGE_SIZE));
+        while (!page.isEmpty()) {
+            upcoming.addAll(page);
+            BookingSummary last = page.get(page.size() - 1);
+            page = bookingRepository.findUpcomingAfter(userId, today, last.checkInDate(), last.id(),
+                    PageRequest.of(0, PAGE_SIZE));
+        }
+        long expected = history.stream().filter(summary -> summary.checkInDate().isAfter(today)).count();
+        assertThat(upcoming).hasSize((int) expected);
+        assertThat(upcoming).extracting(BookingSummary::id).doesNotHaveDuplicates();
+        assertThat(upcoming).extracting(BookingSummary::checkInDate).isSorted();
+    }
+    
+    private String seed() {
+        User user = userRepository.save(User.builder()
+                .fullName("Keyset Guest")
+                .email("keyset@example.com")
+                .password("secret")
+                .role(User.Role.USER)
+                .build());
+        Hotel hotel = hotelRepository.save(Hotel.builder()
+                .name("Keyset Hotel")
+                .address("2 Riverside")
+                .city("Phnom Penh")
+                .country("Cambodia")
+                .pricePerNight(60.0)
+                .starRating(3)
+                .guestRating(4.0)
+                .totalReviews(0)
+                .images(new ArrayList<>())
+                .amenities(new ArrayList<>())
+                .rooms(new ArrayList<>())
+                .available(true)
+                .build());
+        Room room = roomRepository.save(Room.builder()
+                .hotel(hotel)
+                .roomType("Twin")
+                .pricePerNight(60.0)
+                .maxGuests(2)
+                .totalRooms(10)
+                .availableRooms(10)
+                .images(new ArrayList<>())
+                .amenities(new ArrayList<>())
+                .build());
+        
+        // Several bookings share each created_at and check-in date so the id tiebreak matters
+        LocalDateTime created = LocalDateTime.of(2029, 12, 1, 9, 0);
+        List<Object[]> rows = new ArrayList<>();
+        for (int i = 0; i < BOOKINGS; i++) {
+            LocalDate checkIn = LocalDate.of(2029, 12, 28).plusDays(i % 7);
+            rows.add(new Object[]{UUID.randomUUID().toString(), user.getId(), hotel.getId(), room.getId(),
+                    Date.valueOf(checkIn), Date.valueOf(checkIn.plusDays(2)), 2, 1, 2, 120.0, "CONFIRMED",
+                    Timestamp.valueOf(created.plusMinutes(i / 4)), Timestamp.valueOf(created)});
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO bookings (id, user_id, hotel_id, room_id, check_in_date, " +
+                "check_out_date, number_of_guests, number_of_rooms, number_of_nights, total_price, status, " +
+                "created_at, updated_at) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)", rows);
+        return user.getId();
+    }
+}
@@ -0,0 +1,225 @@
+package com.hotelbooker.booking.service;
+
+import com.hotelbooker.PostgresModeJpaTest;
+import com.hotelbooker.auth.entity.User;
+import com.hotelbooker.auth.repository.UserRepository;
+import com.hotelbooker.booking.entity.Booking;
+import com.hotelbooker.booking.repository.BookingRepository;
+import com.hotelbooker.hotel.entity.Hotel;
+import com.hotelbooker.hotel.entity.Room;
+import com.hotelbooker.hotel.repository.HotelRepository;
+import com.hotelbooker.hotel.repository.RoomRepository;
+import com.hotelbooker.hotel.service.InventoryService;
+import com.hotelbooker.payment.model.Payment;
+import com.hotelbooker.payment.model.PaymentOutcomeEvent;
+import com.hotelbooker.payment.repository.PaymentRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Import;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.function.BooleanSupplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@PostgresModeJpaTest
+@Import(InventoryService.class)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class BookingConfirmationPipelineTest {
+    
+    private static final int TOTAL_ROOMS = 5;
+    private static final LocalDate CHECK_IN = LocalDate.of(2030, 3, 1);
+    private static final LocalDate CHECK_OUT = CHECK_IN.plusDays(2);
+    
+    @Autowired
+    private BookingRepository bookingRepository;
+    
+    @Autowired
+    private PaymentRepository paymentRepository;
+    
+    @Autowired
+    private UserRepository userRepository;
+    
+    @Autowired
+    private HotelRepository hotelRepository;
+    
+    @Autowired
+    private RoomRepository roomRepository;
+    
+    @Autowired
+    private InventoryService inventoryService;
+    
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+    
+    private TransactionTemplate transactionTemplate;
+    private BookingConfirmationPipeline pipeline;
+    private User user;
+    private Hotel hotel;
+    private Room room;
+    
+    @BeforeEach
+    void setUp() {
+        transactionTemplate = new TransactionTemplate(transactionManager);
+        user = userRepository.save(User.builder()
+                .fullName("Pipeline Guest")
+                .email("pipeline-" + UUID.randomUUID() + "@example.com")
+                .password("secret")
+                .role(User.Role.USER)
+                .build());
+        hotel = hotelRepository.save(Hotel.builder()
+                .name("Pipeline Hotel")
+                .address("4 Riverside")
+                .city("Phnom Penh")
+                .country("Cambodia")
+                .pricePerNight(70.0)
+                .starRating(4)
+                .guestRating(4.0)
+                .totalReviews(0)
+                .images(new ArrayList<>())
+                .amenities(new ArrayList<>())
+                .rooms(new ArrayList<>())
+                .available(true)
+                .build());
+        room = roomRepository.save(Room.builder()
+                .hotel(hotel)
+                .roomType("Suite")
+                .pricePerNight(70.0)
+                .maxGuests(2)
+                .totalRooms(TOTAL_ROOMS)
+                .availableRooms(TOTAL_ROOMS)
+                .images(new ArrayList<>())
+                .amenities(new ArrayList<>())
+                .build());
+    }
+    
+    @AfterEach
+    void tearDown() {
+        pipeline.shutdown();
+    }
+    
+    @Test
+    void batchConfirmsPaidHoldsAndCancelsCancelledOnesReleasingTheirNights() {
+        pipeline = pipeline(Duration.ofMillis(200));
+        String paid = hold();
+        String failed = hold();
+        String cancelled = hold();
+        assertThat(inventoryService.getFreeRooms(room, CHECK_IN, CHECK_OUT)).isEqualTo(TOTAL_ROOMS - 3);
+        
+        pipeline.onPaymentOutcome(new PaymentOutcomeEvent(paid, "pi_paid", Payment.PaymentStatus.SUCCEEDED));
+        pipeline.onPaymentOutcome(new PaymentOutcomeEvent(failed, "pi_failed", Payment.PaymentStatus.FAILED));
+        pipeline.onPaymentOutcome(new PaymentOutcomeEvent(cancelled, "pi_cancelled",
+                Payment.PaymentStatus.CANCELLED));
+        
+        awaitUntil(() -> status(cancelled) == Booking.BookingStatus.CANCELLED);
+        assertThat(status(paid)).isEqualTo(Booking.BookingStatus.CONFIRMED);
+        assertThat(status(failed)).isEqualTo(Booking.BookingStatus.PENDING);
+        assertThat(bookingRepository.findById(paid).orElseThrow().getHoldExpiresAt()).isNull();
+        assertThat(inventoryService.getFreeRooms(room, CHECK_IN, CHECK_OUT)).isEqualTo(TOTAL_ROOMS - 2);
+    }
+    
+    @Test
+    void failedPaymentKeepsTheHoldSoARetriedSuccessConfirmsIt() {
+        pipeline = pipeline(Duration.ofMillis(20));
+        String booking = hold();
+        
+        pipeline.onPaymentOutcome(new PaymentOutcomeEvent(booking, "pi_retry", Payment.PaymentStatus.FAILED));
+        sleep(200);
+        assertThat(status(booking)).isEqualTo(Booking.BookingStatus.PENDING);
+        
+        pipeline.onPaymentOutcome(new PaymentOutcomeEvent(booking, "pi_retry", Payment.PaymentStatus.SUCCEEDED));
+        awaitUntil(() -> status(booking) == Booking.BookingStatus.CONFIRMED);
+        assertThat(inventoryService.getFreeRooms(room, CHECK_IN, CHECK_OUT)).isEqualTo(TOTAL_ROOMS - 1);
+    }
+    
+    @Test
+    void recoveryPagesThroughOutcomesTheQueueNeverSaw() {
+        pipeline = pipeline(Duration.ofMillis(20));
+        List<String> bookings = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            String booking = hold();
+            bookings.add(booking);
+            paymentRepository.save(Payment.builder()
+                    .bookingId(booking)
+                    .userId(user.getId())
+                    .stripePaymentIntentId("pi_missed_" + i)
+                    .amount(140.0)
+                    .currency("usd")
+                    .status(Payment.PaymentStatus.SUCCEEDED)
+                    .build());
+        }
+        
+        String declined = hold();
+        paymentRepository.save(Payment.builder()
+                .bookingId(declined)
+                .userId(user.getId())
+                .stripePaymentIntentId("pi_declined")
+                .amount(140.0)
+                .currency("usd")
+                .status(Payment.PaymentStatus.FAILED)
+                .build());
+        
+        pipeline.recover();
+        
+        awaitUntil(() -> bookings.stream().allMatch(id -> status(id) == Booking.BookingStatus.CONFIRMED));
+        assertThat(status(declined)).isEqualTo(Booking.BookingStatus.PENDING);
+    }
+    
+    private BookingConfirmationPipeline pipeline(Duration linger) {
+        BookingConfirmationPipeline started = new BookingConfirmationPipeline(bookingRepository, inventoryService,
+                transactionTemplate, new BookingEventHub(bookingRepository, Duration.ofMinutes(1)), 200, linger, 100, 2);
+        started.start();
+        return started;
+    }
+    
+    private String hold() {
+        return transactionTemplate.execute(status -> {
+            inventoryService.reserve(room, CHECK_IN, CHECK_OUT, 1);
+            Booking booking = Booking.builder()
+                    .user(user)
+                    .hotel(hotel)
+                    .room(room)
+                    .checkInDate(CHECK_IN)
+                    .checkOutDate(CHECK_OUT)
+                    .numberOfGuests(2)
+                    .numberOfRooms(1)
+                    .numberOfNights(2)
+                    .totalPrice(140.0)
+                    .status(Booking.BookingStatus.PENDING)
+                    .holdExpiresAt(LocalDateTime.now().plusMinutes(15))
+                    .build();
+            return bookingRepository.save(booking).getId();
+        });
+    }
+    
+    private Booking.BookingStatus status(String bookingId) {
+        return bookingRepository.findById(bookingId).orElseThrow().getStatus();
+    }
+    
+    private static void awaitUntil(BooleanSupplier condition) {
+        long deadline = System.nanoTime() + Duration.ofSeconds(10).toNanos();
+        while (!condition.getAsBoolean()) {
+            assertThat(System.nanoTime()).as("condition within 10s").isLessThan(deadline);
+            sleep(20);
+        }
+    }
+    
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,138 @@
+package com.hotelbooker.booking.service;
+
+import com.hotelbooker.PostgresModeJpaTest;
+import com.hotelbooker.auth.entity.User;
+import com.hotelbooker.auth.repository.UserRepository;
+import com.hotelbooker.booking.repository.BookingRepository;
+import com.hotelbooker.hotel.entity.Hotel;
+import com.hotelbooker.hotel.entity.Room;
+import com.hotelbooker.hotel.repository.HotelRepository;
+import com.hotelbooker.hotel.repository.RoomRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Date;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@PostgresModeJpaTest
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class BookingLifecycleJobTest {
+    
+    private static final LocalDate TODAY = LocalDate.of(2030, 6, 1);
+    
+    @Autowired
+    private BookingRepository bookingRepository;
+    
+    @Autowired
+    private UserRepository userRepository;
+    
+    @Autowired
+    private HotelRepository hotelRepository;
+    
+    @Autowired
+    private RoomRepository roomRepository;
+    
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+    
+    @Test
+    void completesPastStaysAndArchivesOldOnesInChunks() {
+        List<Object[]> rows = new ArrayList<>();
+        // 120 stays checked out last week, 40 not yet, 75 finished over a year ago, 10 cancelled long ago
+        addBookings(rows, 120, "CONFIRMED", TODAY.minusDays(7));
+        addBookings(rows, 40, "CONFIRMED", TODAY.plusDays(2));
+        addBookings(rows, 75, "CONFIRMED", TODAY.minusDays(400));
+        addBookings(rows, 10, "CANCELLED", TODAY.minusDays(500));
+        insert(rows);
+        
+        BookingLifecycleJob job = new BookingLifecycleJob(bookingRepository, new TransactionTemplate(transactionManager),
+                new SimpleMeterRegistry(), 50, Duration.ofDays(365), Duration.ofMinutes(1));
+        long deadline = System.nanoTime() + Duration.ofMinutes(1).toNanos();
+        
+        assertThat(job.completeStays(TODAY, deadline)).isEqualTo(195);
+        assertThat(count("bookings", "COMPLETED")).isEqualTo(195);
+        assertThat(count("bookings", "CONFIRMED")).isEqualTo(40);
+        
+        assertThat(job.archive(TODAY.minusDays(365), deadline)).isEqualTo(85);
+        assertThat(count("bookings", "COMPLETED")).isEqualTo(120);
+        assertThat(count("bookings", "CANCELLED")).isZero();
+        assertThat(count("bookings_archive", "COMPLETED")).isEqualTo(75);
+        assertThat(count("bookings_archive", "CANCELLED")).isEqualTo(10);
+        
+        // Nothing left to do, so a rerun is a no-op
+        assertThat(job.completeStays(TODAY, deadline)).isZero();
+        assertThat(job.archive(TODAY.minusDays(365), deadline)).isZero();
+    }
+    
+    private void addBookings(List<Object[]> rows, int count, String status, LocalDate checkOut) {
+        for (int i = 0; i < count; i++) {
+            rows.add(new Object[]{UUID.randomUUID().toString(), Date.valueOf(checkOut.minusDays(2)),
+                    Date.valueOf(checkOut), status});
+        }
+    }
+    
+    private void insert(List<Object[]> rows) {
+        User user = userRepository.save(User.builder()
+                .fullName("Lifecycle Guest")
+                .email("lifecycle@example.com")
+                .password("secret")
+                .role(User.Role.USER)
+                .build());
+        Hotel hotel = hotelRepository.save(Hotel.builder()
+                .name("Lifecycle Hotel")
+                .address("3 Riverside")
+                .city("Phnom Penh")
+                .country("Cambodia")
+                .pricePerNight(50.0)
+                .starRating(3)
+                .guestRating(4.0)
+                .totalReviews(0)
+                .images(new ArrayList<>())
+                .amenities(new ArrayList<>())
+                .rooms(new ArrayList<>())
+                .available(true)
+                .build());
+        Room room = roomRepository.save(Room.builder()
+                .hotel(hotel)
+                .roomType("Double")
+                .pricePerNight(50.0)
+                .maxGuests(2)
+                .totalRooms(10)
+                .availableRooms(10)
+                .images(new ArrayList<>())
+                .amenities(new ArrayList<>())
+                .build());
+        
+        Timestamp created = Timestamp.valueOf(LocalDateTime.of(2028, 1, 1, 12, 0));
+        List<Object[]> params = new ArrayList<>();
+        for (Object[] row : rows) {
+            params.add(new Object[]{row[0], user.getId(), hotel.getId(), room.getId(), row[1], row[2], row[3],
+                    created, created});
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO bookings (id, user_id, hotel_id, room_id, check_in_date, " +
+                "check_out_date, number_of_guests, number_of_rooms, number_of_nights, total_price, status, " +
+                "created_at, updated_at) VALUES (?, ?, ?, ?, ?, ?, 2, 1, 2, 100.0, ?, ?, ?)", params);
+    }
+    
+    private int count(String table, String status) {
+        return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM " + table + " WHERE status = ?",
+                Integer.class, status);
+    }
+}
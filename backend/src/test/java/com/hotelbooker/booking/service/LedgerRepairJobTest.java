@@ -0,0 +1,130 @@
+package com.hotelbooker.booking.service;
+
+import com.hotelbooker.PostgresModeJpaTest;
+import com.hotelbooker.auth.entity.User;
+import com.hotelbooker.auth.repository.UserRepository;
+import com.hotelbooker.booking.repository.BookingRepository;
+import com.hotelbooker.hotel.entity.Hotel;
+import com.hotelbooker.hotel.entity.Room;
+import com.hotelbooker.hotel.repository.HotelRepository;
+import com.hotelbooker.hotel.repository.RoomRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.Date;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@PostgresModeJpaTest
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class LedgerRepairJobTest {
+    
+    private static final LocalDate NIGHT = LocalDate.now().plusDays(30);
+    private static final Timestamp QUIET = Timestamp.valueOf(LocalDateTime.now().minusHours(1));
+    
+    @Autowired
+    private BookingRepository bookingRepository;
+    
+    @Autowired
+    private UserRepository userRepository;
+    
+    @Autowired
+    private HotelRepository hotelRepository;
+    
+    @Autowired
+    private RoomRepository roomRepository;
+    
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    
+    private User user;
+    private Hotel hotel;
+    private Room room;
+    
+    @BeforeEach
+    void setUp() {
+        user = userRepository.save(User.builder()
+                .fullName("Ledger Guest")
+                .email("ledger-" + UUID.randomUUID() + "@example.com")
+                .password("secret")
+                .role(User.Role.USER)
+                .build());
+        hotel = hotelRepository.save(Hotel.builder()
+                .name("Ledger Hotel")
+                .address("5 Riverside")
+                .city("Phnom Penh")
+                .country("Cambodia")
+                .pricePerNight(60.0)
+                .starRating(3)
+                .guestRating(4.0)
+                .totalReviews(0)
+                .images(new ArrayList<>())
+                .amenities(new ArrayList<>())
+                .rooms(new ArrayList<>())
+                .available(true)
+                .build());
+        room = roomRepository.save(Room.builder()
+                .hotel(hotel)
+                .roomType("Twin")
+                .pricePerNight(60.0)
+                .maxGuests(2)
+                .totalRooms(10)
+                .availableRooms(10)
+                .images(new ArrayList<>())
+                .amenities(new ArrayList<>())
+                .build());
+    }
+    
+    @Test
+    void releasesNightsNoBookingHoldsAndLeavesBusyRowsAlone() {
+        // Two rooms held by bookings, plus one leaked by a crash before its booking was saved
+        String held = night(NIGHT, 3, QUIET);
+        booking(NIGHT, "PENDING");
+        booking(NIGHT, "CONFIRMED");
+        booking(NIGHT, "CANCELLED");
+        // Leaked too, but just reserved: its booking may still be on the way
+        String fresh = night(NIGHT.plusDays(1), 1, Timestamp.valueOf(LocalDateTime.now()));
+        
+        LedgerRepairJob job = new LedgerRepairJob(bookingRepository, jdbcTemplate, new SimpleMeterRegistry(),
+                1, Duration.ofMinutes(10));
+        
+        assertThat(job.run()).isGreaterThanOrEqualTo(1);
+        assertThat(reserved(held)).isEqualTo(2);
+        assertThat(reserved(fresh)).isEqualTo(1);
+        
+        // Repaired rows are consistent, so a rerun leaves them as they are
+        job.run();
+        assertThat(reserved(held)).isEqualTo(2);
+    }
+    
+    private String night(LocalDate date, int reserved, Timestamp updatedAt) {
+        String id = UUID.randomUUID().toString();
+        jdbcTemplate.update("INSERT INTO room_inventory (id, room_id, stay_date, reserved, created_at, updated_at) " +
+                "VALUES (?, ?, ?, ?, ?, ?)", id, room.getId(), Date.valueOf(date), reserved, updatedAt, updatedAt);
+        return id;
+    }
+    
+    private void booking(LocalDate night, String status) {
+        Timestamp created = Timestamp.valueOf(LocalDateTime.now());
+        jdbcTemplate.update("INSERT INTO bookings (id, user_id, hotel_id, room_id, check_in_date, check_out_date, " +
+                "number_of_guests, number_of_rooms, number_of_nights, total_price, status, created_at, updated_at) " +
+                "VALUES (?, ?, ?, ?, ?, ?, 2, 1, 1, 60.0, ?, ?, ?)", UUID.randomUUID().toString(), user.getId(),
+                hotel.getId(), room.getId(), Date.valueOf(night), Date.valueOf(night.plusDays(1)), status,
+                created, created);
+    }
+    
+    private int reserved(String id) {
+        return jdbcTemplate.queryForObject("SELECT reserved FROM room_inventory WHERE id = ?", Integer.class, id);
+    }
+}
@@ -0,0 +1,112 @@
+package com.hotelbooker.common.idempotency;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.hotelbooker.booking.dto.BookingDto;
+import com.hotelbooker.common.exception.IdempotencyException;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class IdempotencyServiceTest {
+    
+    private final IdempotencyService idempotencyService = new IdempotencyService(
+            new InMemoryIdempotencyStore(), new ObjectMapper().findAndRegisterModules(),
+            Duration.ofHours(1), Duration.ofSeconds(30), Duration.ofSeconds(10));
+    
+    @Test
+    void concurrentDuplicatesExecuteOnceAndShareTheResponse() throws Exception {
+        AtomicInteger executions = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        
+        List<Future<BookingDto>> responses = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            responses.add(executor.submit(() -> {
+                start.await();
+                return idempotencyService.execute("create-booking", "key-1", "request-1", BookingDto.class, () -> {
+                    executions.incrementAndGet();
+                    sleep(200);
+                    return BookingDto.builder().id("booking-" + executions.get()).build();
+                });
+            }));
+        }
+        start.countDown();
+        
+        for (Future<BookingDto> response : responses) {
+            assertThat(response.get().getId()).isEqualTo("booking-1");
+        }
+        assertThat(executions.get()).isEqualTo(1);
+        executor.shutdown();
+    }
+    
+    @Test
+    void failedExecutionUnlocksTheKeyForRetry() {
+        assertThatThrownBy(() -> idempotencyService.execute("create-booking", "key-2", "request-2",
+                BookingDto.class, () -> {
+                    throw new RuntimeException("Not enough rooms available");
+                })).hasMessage("Not enough rooms available");
+        
+        BookingDto retried = idempotencyService.execute("create-booking", "key-2", "request-2", BookingDto.class,
+                () -> BookingDto.builder().id("booking-2").build());
+        assertThat(retried.getId()).isEqualTo("booking-2");
+    }
+    
+    @Test
+    void sameKeyWithDifferentRequestIsRejected() {
+        idempotencyService.execute("create-booking", "key-3", Map.of("roomId", "room-1", "rooms", 1),
+                BookingDto.class, () -> BookingDto.builder().id("booking-3").build());
+        
+        BookingDto replayed = idempotencyService.execute("create-booking", "key-3",
+                Map.of("rooms", 1, "roomId", "room-1"), BookingDto.class,
+                () -> BookingDto.builder().id("booking-4").build());
+        assertThat(replayed.getId()).isEqualTo("booking-3");
+        
+        assertThatThrownBy(() -> idempotencyService.execute("create-booking", "key-3",
+                Map.of("roomId", "room-1", "rooms", 2), BookingDto.class,
+                () -> BookingDto.builder().id("booking-5").build()))
+                .isInstanceOf(IdempotencyException.class);
+    }
+    
+    @Test
+    void expiredLockCannotBeReleasedOrCompletedByItsFormerHolder() {
+        InMemoryIdempotencyStore store = new InMemoryIdempotencyStore();
+        assertThat(store.tryLock("key", "attempt-1", Duration.ZERO)).isTrue();
+        assertThat(store.tryLock("key", "attempt-2", Duration.ofSeconds(30))).isTrue();
+        
+        store.unlock("key", "attempt-1");
+        assertThat(store.complete("key", "attempt-1", "stale", Duration.ofHours(1))).isFalse();
+        assertThat(store.tryLock("key", "attempt-3", Duration.ofSeconds(30))).isFalse();
+        
+        assertThat(store.complete("key", "attempt-2", "fresh", Duration.ofHours(1))).isTrue();
+        assertThat(store.getResponse("key")).contains("fresh");
+    }
+    
+    @Test
+    void requestsWithoutKeyAlwaysExecute() {
+        AtomicInteger executions = new AtomicInteger();
+        for (int i = 0; i < 3; i++) {
+            idempotencyService.execute("create-booking", null, "request-3", BookingDto.class,
+                    () -> BookingDto.builder().id("booking-" + executions.incrementAndGet()).build());
+        }
+        assertThat(executions.get()).isEqualTo(3);
+    }
+    
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package com.hotelbooker.common.ratelimit;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.time.Duration;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class RateLimitFilterTest {
+    
+    private final RateLimitFilter filter = new RateLimitFilter(new LocalRateLimiter(), properties(),
+            new ObjectMapper().findAndRegisterModules(), new SimpleMeterRegistry());
+    
+    @Test
+    void rejectsRequestsOverTheLimitWithRetryAfter() throws Exception {
+        for (int i = 0; i < 3; i++) {
+            assertThat(send("POST", "/auth/login", "10.0.0.1").getStatus()).isEqualTo(200);
+        }
+        
+        MockHttpServletResponse rejected = send("POST", "/auth/login", "10.0.0.1");
+        assertThat(rejected.getStatus()).isEqualTo(429);
+        assertThat(Long.parseLong(rejected.getHeader("Retry-After"))).isBetween(1L, 20L);
+    }
+    
+    @Test
+    void bucketsArePerClientAndPerRoute() throws Exception {
+        for (int i = 0; i < 3; i++) {
+            send("POST", "/auth/login", "10.0.0.2");
+        }
+        
+        assertThat(send("POST", "/auth/login", "10.0.0.2").getStatus()).isEqualTo(429);
+        assertThat(send("POST", "/auth/login", "10.0.0.3").getStatus()).isEqualTo(200);
+        assertThat(send("GET", "/auth/login", "10.0.0.2").getStatus()).isEqualTo(200);
+        assertThat(send("GET", "/hotels/featured", "10.0.0.2").getStatus()).isEqualTo(200);
+    }
+    
+    private MockHttpServletResponse send(String method, String path, String remoteAddr) throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest(method, "/api/v1" + path);
+        request.setContextPath("/api/v1");
+        request.setRemoteAddr(remoteAddr);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filter.doFilter(request, response, new MockFilterChain());
+        return response;
+    }
+    
+    private static RateLimitProperties properties() {
+        RateLimitProperties.Policy login = new RateLimitProperties.Policy();
+        login.setName("login");
+        login.setPaths(List.of("/auth/login"));
+        login.setMethods(List.of("post"));
+        login.setCapacity(3);
+        login.setPeriod(Duration.ofMinutes(1));
+        
+        RateLimitProperties properties = new RateLimitProperties();
+        properties.setPolicies(List.of(login));
+        return properties;
+    }
+}
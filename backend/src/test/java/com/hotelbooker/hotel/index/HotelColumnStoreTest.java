@@ -0,0 +1,87 @@
+package com.hotelbooker.hotel.index;
+
+import com.hotelbooker.hotel.dto.HotelSearchFacets;
+import com.hotelbooker.hotel.entity.Hotel;
+import com.hotelbooker.hotel.repository.HotelRepository;
+import com.hotelbooker.hotel.repository.RoomRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class HotelColumnStoreTest {
+    
+    private HotelRepository hotelRepository;
+    private RoomRepository roomRepository;
+    private HotelColumnStore columnStore;
+    
+    @BeforeEach
+    void setUp() {
+        hotelRepository = mock(HotelRepository.class);
+        roomRepository = mock(RoomRepository.class);
+        when(hotelRepository.streamColumnFields()).thenReturn(Stream.of(
+                hotel("h1"), hotel("h2"), hotel("h3")));
+        when(hotelRepository.streamAmenities()).thenReturn(Stream.of(
+                new Object[]{"h1", "WiFi"},
+                new Object[]{"h2", "Pool"}));
+        // h1 also has WiFi in a room, h3 only offers it per room
+        when(roomRepository.streamAmenitiesByHotel()).thenReturn(Stream.of(
+                new Object[]{"h1", "WiFi"},
+                new Object[]{"h3", "wifi"},
+                new Object[]{"h3", "TV"}));
+        
+        columnStore = new HotelColumnStore(hotelRepository, roomRepository);
+        columnStore.rebuild();
+    }
+    
+    @Test
+    void amenityFacetsCountHotelAndRoomLevelAmenitiesOncePerHotel() {
+        HotelSearchFacets facets = columnStore.countFacets(List.of("h1", "h2", "h3"));
+        
+        assertThat(facets.getAmenities()).containsExactlyInAnyOrderEntriesOf(Map.of(
+                "WiFi", 2, "Pool", 1, "TV", 1));
+    }
+    
+    @Test
+    void amenityFacetsMatchTheAmenityFilter() {
+        List<String> candidates = List.of("h2", "h3");
+        
+        HotelSearchFacets facets = columnStore.countFacets(candidates);
+        List<String> filtered = columnStore.toIds(columnStore.hotelsWithAllAmenities(List.of("WiFi")));
+        
+        assertThat(facets.getAmenities().get("WiFi"))
+                .isEqualTo((int) filtered.stream().filter(candidates::contains).count());
+    }
+    
+    @Test
+    void roomChangedWhileRebuildingSurvivesTheSwap() {
+        when(hotelRepository.streamColumnFields()).thenReturn(Stream.of(hotel("h1"), hotel("h2")));
+        when(hotelRepository.streamAmenities()).thenReturn(Stream.<Object[]>of(new Object[]{"h2", "Pool"})
+                .peek(row -> {
+                    // A room gains a spa after the rebuild has read h2's rooms
+                    when(roomRepository.findAmenitiesByHotelId("h2")).thenReturn(List.of("Spa"));
+                    columnStore.onRoomChanged(new RoomChangedEvent("r2", "h2"));
+                }));
+        when(roomRepository.streamAmenitiesByHotel()).thenReturn(Stream.empty());
+        Hotel h2 = Hotel.builder().pricePerNight(120.0).starRating(4).guestRating(4.2).totalReviews(30).build();
+        h2.setId("h2");
+        when(hotelRepository.findById("h2")).thenReturn(Optional.of(h2));
+        when(hotelRepository.findAmenities("h2")).thenReturn(List.of("Pool"));
+        
+        columnStore.rebuild();
+        
+        assertThat(columnStore.toIds(columnStore.hotelsWithAllAmenities(List.of("Spa")))).containsExactly("h2");
+        assertThat(columnStore.toIds(columnStore.hotelsWithAllAmenities(List.of("Pool")))).containsExactly("h2");
+    }
+    
+    private static Object[] hotel(String id) {
+        return new Object[]{id, 120.0, 4, 4.2, 30, null, null};
+    }
+}
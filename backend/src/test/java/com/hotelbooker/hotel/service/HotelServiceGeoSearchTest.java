@@ -0,0 +1,41 @@
+package com.hotelbooker.hotel.service;
+
+import com.hotelbooker.common.exception.BadRequestException;
+import com.hotelbooker.hotel.index.HotelColumnStore;
+import com.hotelbooker.hotel.index.HotelGeoIndex;
+import com.hotelbooker.hotel.index.HotelLocationIndex;
+import com.hotelbooker.hotel.repository.HotelRepository;
+import com.hotelbooker.hotel.repository.RoomRepository;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verifyNoInteractions;
+
+class HotelServiceGeoSearchTest {
+    
+    private final HotelGeoIndex geoIndex = mock(HotelGeoIndex.class);
+    private final HotelService hotelService = new HotelService(mock(HotelRepository.class),
+            mock(RoomRepository.class), mock(InventoryService.class), mock(HotelLocationIndex.class), geoIndex,
+            mock(HotelColumnStore.class));
+    
+    @Test
+    void nearbyRejectsCoordinatesOutOfRange() {
+        assertThatThrownBy(() -> hotelService.searchNearby(91, 0, 10, null, null))
+                .isInstanceOf(BadRequestException.class);
+        assertThatThrownBy(() -> hotelService.searchNearby(0, -180.5, 10, null, null))
+                .isInstanceOf(BadRequestException.class);
+        assertThatThrownBy(() -> hotelService.searchNearby(Double.NaN, 0, 10, null, null))
+                .isInstanceOf(BadRequestException.class);
+        verifyNoInteractions(geoIndex);
+    }
+    
+    @Test
+    void withinRejectsCoordinatesOutOfRange() {
+        assertThatThrownBy(() -> hotelService.searchWithin(-95, 0, 10, 10, null, null))
+                .isInstanceOf(BadRequestException.class);
+        assertThatThrownBy(() -> hotelService.searchWithin(0, 0, 10, 200, null, null))
+                .isInstanceOf(BadRequestException.class);
+        verifyNoInteractions(geoIndex);
+    }
+}
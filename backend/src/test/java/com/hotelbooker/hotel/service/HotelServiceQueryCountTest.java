@@ -0,0 +1,121 @@
+package com.hotelbooker.hotel.service;
+
+import com.hotelbooker.PostgresModeJpaTest;
+import com.hotelbooker.hotel.dto.HotelSearchRequest;
+import com.hotelbooker.hotel.dto.HotelSearchResponse;
+import com.hotelbooker.hotel.dto.RoomDto;
+import com.hotelbooker.hotel.entity.Hotel;
+import com.hotelbooker.hotel.entity.Room;
+import com.hotelbooker.hotel.index.HotelColumnStore;
+import com.hotelbooker.hotel.index.HotelGeoIndex;
+import com.hotelbooker.hotel.index.HotelLocationIndex;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.TestPropertySource;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@PostgresModeJpaTest
+@TestPropertySource(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+@Import({HotelService.class, InventoryService.class, HotelLocationIndex.class, HotelGeoIndex.class,
+        HotelColumnStore.class})
+class HotelServiceQueryCountTest {
+    
+    private static final int HOTELS = 30;
+    private static final int ROOMS_PER_HOTEL = 8;
+    
+    @Autowired
+    private HotelService hotelService;
+    
+    @Autowired
+    private EntityManager entityManager;
+    
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+    
+    private String hotelId;
+    
+    @BeforeEach
+    void setUp() {
+        for (int i = 0; i < HOTELS; i++) {
+            Hotel hotel = Hotel.builder()
+                    .name("Hotel " + i)
+                    .address(i + " Main Street")
+                    .city("Phnom Penh")
+                    .country("Cambodia")
+                    .pricePerNight(50.0 + i)
+                    .guestRating(4.0)
+                    .totalReviews(10)
+                    .starRating(4)
+                    .images(new ArrayList<>(List.of("a.jpg", "b.jpg")))
+                    .amenities(new ArrayList<>(List.of("WiFi", "Pool")))
+                    .rooms(new ArrayList<>())
+                    .available(true)
+                    .build();
+            entityManager.persist(hotel);
+            
+            for (int j = 0; j < ROOMS_PER_HOTEL; j++) {
+                entityManager.persist(Room.builder()
+                        .hotel(hotel)
+                        .roomType("Type " + j)
+                        .pricePerNight(50.0 + j)
+                        .maxGuests(2)
+                        .totalRooms(5)
+                        // The legacy counter is stale; availability comes from the ledger
+                        .availableRooms(j == 0 ? 0 : 5)
+                        .images(new ArrayList<>(List.of("room.jpg")))
+                        .amenities(new ArrayList<>(List.of("TV")))
+                        .build());
+            }
+            hotelId = hotel.getId();
+        }
+        entityManager.flush();
+        entityManager.clear();
+    }
+    
+    @Test
+    void searchPageUsesConstantNumberOfStatements() {
+        HotelSearchRequest request = new HotelSearchRequest();
+        request.setPageSize(HOTELS);
+        
+        Statistics statistics = statistics();
+        HotelSearchResponse response = hotelService.searchHotels(request);
+        
+        assertThat(response.getHotels()).hasSize(HOTELS);
+        assertThat(response.getHotels()).allSatisfy(hotel -> {
+            assertThat(hotel.getImages()).hasSize(2);
+            assertThat(hotel.getAmenities()).hasSize(2);
+        });
+        // hotel page + one batch each for images and amenities
+        assertThat(statistics.getPrepareStatementCount()).isLessThanOrEqualTo(3);
+    }
+    
+    @Test
+    void roomListUsesConstantNumberOfStatements() {
+        Statistics statistics = statistics();
+        List<RoomDto> rooms = hotelService.getHotelRooms(hotelId, null, null);
+        
+        assertThat(rooms).hasSize(ROOMS_PER_HOTEL);
+        assertThat(rooms).allSatisfy(room -> {
+            assertThat(room.getHotelId()).isEqualTo(hotelId);
+            assertThat(room.getAvailableRooms()).isEqualTo(5);
+        });
+        // existence check + rooms + one batch each for images and amenities
+        assertThat(statistics.getPrepareStatementCount()).isLessThanOrEqualTo(4);
+    }
+    
+    private Statistics statistics() {
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+        return statistics;
+    }
+}
@@ -0,0 +1,181 @@
+package com.hotelbooker.hotel.service;
+
+import com.hotelbooker.PostgresModeJpaTest;
+import com.hotelbooker.hotel.entity.Hotel;
+import com.hotelbooker.hotel.entity.Room;
+import com.hotelbooker.hotel.entity.RoomInventory;
+import com.hotelbooker.hotel.repository.HotelRepository;
+import com.hotelbooker.hotel.repository.RoomInventoryRepository;
+import com.hotelbooker.hotel.repository.RoomRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Import;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Hammers a single room type from many threads and checks that the conditional
+ * ledger update, directly and through the {@link ReservationEngine}, never hands
+ * out more rooms than {@code totalRooms} on any night.
+ */
+@PostgresModeJpaTest
+@Import({InventoryService.class, ReservationEngine.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class InventoryServiceConcurrencyTest {
+    
+    private static final int TOTAL_ROOMS = 5;
+    private static final int THREADS = 16;
+    private static final int ATTEMPTS = 400;
+    private static final LocalDate CHECK_IN = LocalDate.of(2030, 1, 10);
+    private static final LocalDate CHECK_OUT = CHECK_IN.plusDays(3);
+    
+    @Autowired
+    private InventoryService inventoryService;
+    
+    @Autowired
+    private ReservationEngine reservationEngine;
+    
+    @Autowired
+    private HotelRepository hotelRepository;
+    
+    @Autowired
+    private RoomRepository roomRepository;
+    
+    @Autowired
+    private RoomInventoryRepository inventoryRepository;
+    
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+    
+    private TransactionTemplate transactionTemplate;
+    private Room room;
+    
+    @BeforeEach
+    void setUp() {
+        transactionTemplate = new TransactionTemplate(transactionManager);
+        room = transactionTemplate.execute(status -> {
+            Hotel hotel = hotelRepository.save(Hotel.builder()
+                    .name("Flash Sale Hotel")
+                    .address("1 Riverside")
+                    .city("Phnom Penh")
+                    .country("Cambodia")
+                    .pricePerNight(80.0)
+                    .starRating(4)
+                    .guestRating(4.0)
+                    .totalReviews(0)
+                    .images(new ArrayList<>())
+                    .amenities(new ArrayList<>())
+                    .rooms(new ArrayList<>())
+                    .available(true)
+                    .build());
+            return roomRepository.save(Room.builder()
+                    .hotel(hotel)
+                    .roomType("Deluxe")
+                    .pricePerNight(80.0)
+                    .maxGuests(2)
+                    .totalRooms(TOTAL_ROOMS)
+                    .availableRooms(TOTAL_ROOMS)
+                    .images(new ArrayList<>())
+                    .amenities(new ArrayList<>())
+                    .build());
+        });
+    }
+    
+    @AfterEach
+    void tearDown() {
+        inventoryRepository.deleteAll();
+        roomRepository.deleteAll();
+        hotelRepository.deleteAll();
+    }
+    
+    @Test
+    void concurrentReservationsNeverOversell() throws Exception {
+        hammer("Conditional update", () -> transactionTemplate.executeWithoutResult(status ->
+                inventoryService.reserve(room, CHECK_IN, CHECK_OUT, 1)));
+    }
+    
+    @Test
+    void reservationEngineBatchesContendedRoomWithoutOverselling() throws Exception {
+        hammer("Reservation engine", () -> reservationEngine.reserve(room, CHECK_IN, CHECK_OUT, 1));
+    }
+    
+    @Test
+    void cartReservationIsAllOrNothing() {
+        transactionTemplate.executeWithoutResult(status ->
+                inventoryService.reserve(room, CHECK_IN.plusDays(2), CHECK_OUT, TOTAL_ROOMS));
+        
+        List<InventoryService.Reservation> cart = List.of(
+                new InventoryService.Reservation(room, CHECK_IN, CHECK_IN.plusDays(1), 2),
+                new InventoryService.Reservation(room, CHECK_IN, CHECK_OUT, 1));
+        assertThatThrownBy(() -> transactionTemplate.executeWithoutResult(status ->
+                inventoryService.reserveAll(cart))).hasMessage("Not enough rooms available");
+        assertThat(inventoryService.getFreeRooms(room, CHECK_IN, CHECK_IN.plusDays(2))).isEqualTo(TOTAL_ROOMS);
+        
+        transactionTemplate.executeWithoutResult(status -> inventoryService.reserveAll(List.of(
+                new InventoryService.Reservation(room, CHECK_IN, CHECK_IN.plusDays(1), 2),
+                new InventoryService.Reservation(room, CHECK_IN, CHECK_IN.plusDays(2), 3))));
+        assertThat(inventoryService.getFreeRooms(room, CHECK_IN, CHECK_IN.plusDays(1))).isZero();
+        assertThat(inventoryService.getFreeRooms(room, CHECK_IN.plusDays(1), CHECK_IN.plusDays(2))).isEqualTo(2);
+    }
+    
+    private void hammer(String label, Runnable reservation) throws Exception {
+        AtomicInteger succeeded = new AtomicInteger();
+        AtomicInteger rejected = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        
+        for (int i = 0; i < ATTEMPTS; i++) {
+            executor.submit(() -> {
+                start.await();
+                try {
+                    reservation.run();
+                    succeeded.incrementAndGet();
+                } catch (RuntimeException e) {
+                    rejected.incrementAndGet();
+                }
+                return null;
+            });
+        }
+        
+        start.countDown();
+        executor.shutdown();
+        assertThat(executor.awaitTermination(60, TimeUnit.SECONDS)).isTrue();
+        
+        assertThat(succeeded.get()).as(label + " succeeded").isEqualTo(TOTAL_ROOMS);
+        assertThat(rejected.get()).as(label + " rejected").isEqualTo(ATTEMPTS - TOTAL_ROOMS);
+        
+        List<RoomInventory> nights = inventoryRepository.findAll();
+        assertThat(nights).hasSize(3);
+        assertThat(nights).allSatisfy(night -> assertThat(night.getReserved()).isEqualTo(TOTAL_ROOMS));
+    }
+    
+    @Test
+    void releaseNeverDropsBelowZero() {
+        transactionTemplate.executeWithoutResult(status ->
+                inventoryService.reserve(room, CHECK_IN, CHECK_OUT, 2));
+        transactionTemplate.executeWithoutResult(status ->
+                inventoryService.release(room, CHECK_IN, CHECK_OUT, 2));
+        transactionTemplate.executeWithoutResult(status ->
+                inventoryService.release(room, CHECK_IN, CHECK_OUT, 2));
+        
+        assertThat(inventoryRepository.findAll())
+                .allSatisfy(night -> assertThat(night.getReserved()).isZero());
+        assertThat(inventoryService.getFreeRooms(room, CHECK_IN, CHECK_OUT)).isEqualTo(TOTAL_ROOMS);
+    }
+}
@@ -0,0 +1,118 @@
+package com.hotelbooker.hotel.service;
+
+import com.hotelbooker.hotel.entity.Room;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Forces the race between a caller giving up on a reservation and the shard
+ * admitting it, and checks the rooms end up either with the caller's booking or
+ * back in the ledger, never stranded.
+ */
+class ReservationEngineTest {
+    
+    private static final LocalDate CHECK_IN = LocalDate.of(2030, 1, 10);
+    private static final LocalDate CHECK_OUT = CHECK_IN.plusDays(2);
+    
+    private final InventoryService inventoryService = mock(InventoryService.class);
+    private final Room room = room();
+    private ReservationEngine engine;
+    
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        engine.stop();
+    }
+    
+    @Test
+    void admissionThatBeatsTheCancelKeepsTheRooms() throws Exception {
+        CountDownLatch callerGaveUp = new CountDownLatch(1);
+        CountDownLatch shardCompleted = new CountDownLatch(1);
+        when(inventoryService.reserveBatch(any(), any(), any(), any())).thenAnswer(invocation -> {
+            callerGaveUp.await(5, TimeUnit.SECONDS);
+            return new boolean[]{true};
+        });
+        engine = new ReservationEngine(inventoryService, true, 1, 16, 8, Duration.ofMillis(50)) {
+            @Override
+            CompletableFuture<Void> newFuture() {
+                return new CompletableFuture<>() {
+                    @Override
+                    public boolean complete(Void value) {
+                        boolean completed = super.complete(value);
+                        shardCompleted.countDown();
+                        return completed;
+                    }
+                    
+                    @Override
+                    public boolean cancel(boolean mayInterruptIfRunning) {
+                        // Let the shard complete the future between the timeout and the cancel
+                        callerGaveUp.countDown();
+                        await(shardCompleted);
+                        return super.cancel(mayInterruptIfRunning);
+                    }
+                };
+            }
+        };
+        engine.start();
+        
+        engine.reserve(room, CHECK_IN, CHECK_OUT, 1);
+        
+        verify(inventoryService, never()).release(any(), any(), any(), anyInt());
+    }
+    
+    @Test
+    void cancelThatBeatsTheAdmissionReleasesTheRooms() {
+        CountDownLatch callerGaveUp = new CountDownLatch(1);
+        when(inventoryService.reserveBatch(any(), any(), any(), any())).thenAnswer(invocation -> {
+            callerGaveUp.await(5, TimeUnit.SECONDS);
+            return new boolean[]{true};
+        });
+        engine = new ReservationEngine(inventoryService, true, 1, 16, 8, Duration.ofMillis(50)) {
+            @Override
+            CompletableFuture<Void> newFuture() {
+                return new CompletableFuture<>() {
+                    @Override
+                    public boolean cancel(boolean mayInterruptIfRunning) {
+                        boolean cancelled = super.cancel(mayInterruptIfRunning);
+                        callerGaveUp.countDown();
+                        return cancelled;
+                    }
+                };
+            }
+        };
+        engine.start();
+        
+        assertThatThrownBy(() -> engine.reserve(room, CHECK_IN, CHECK_OUT, 1))
+                .hasMessage("Reservation timed out, please try again");
+        
+        verify(inventoryService, timeout(5_000)).release(room, CHECK_IN, CHECK_OUT, 1);
+    }
+    
+    private static Room room() {
+        Room room = Room.builder().roomType("Deluxe").build();
+        room.setId("room-1");
+        return room;
+    }
+    
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
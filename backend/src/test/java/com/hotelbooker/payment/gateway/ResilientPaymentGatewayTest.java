@@ -0,0 +1,94 @@
+package com.hotelbooker.payment.gateway;
+
+import com.hotelbooker.common.exception.PaymentGatewayException;
+import com.hotelbooker.common.exception.ServiceBusyException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ResilientPaymentGatewayTest {
+    
+    private static final CreatePaymentIntentCommand COMMAND =
+            new CreatePaymentIntentCommand(10_000, "usd", "Hotel Booking Payment", Map.of(), "payment-1");
+    
+    @Test
+    void circuitOpensAfterRepeatedOutagesAndRecoversAfterProbe() throws Exception {
+        AtomicBoolean down = new AtomicBoolean(true);
+        AtomicInteger calls = new AtomicInteger();
+        PaymentGateway gateway = resilient(new FakePaymentGateway(Duration.ZERO) {
+            @Override
+            public GatewayPaymentIntent createPaymentIntent(CreatePaymentIntentCommand command) {
+                calls.incrementAndGet();
+                if (down.get()) {
+                    throw new PaymentGatewayException("Read timed out", true, null);
+                }
+                return super.createPaymentIntent(command);
+            }
+        }, Duration.ofMillis(200));
+        
+        for (int i = 0; i < 4; i++) {
+            assertThatThrownBy(() -> gateway.createPaymentIntent(COMMAND)).isInstanceOf(PaymentGatewayException.class);
+        }
+        assertThatThrownBy(() -> gateway.createPaymentIntent(COMMAND)).isInstanceOf(ServiceBusyException.class);
+        assertThat(calls.get()).isEqualTo(4);
+        
+        down.set(false);
+        Thread.sleep(250);
+        assertThat(gateway.createPaymentIntent(COMMAND).id()).startsWith("pi_fake_");
+        assertThat(gateway.createPaymentIntent(COMMAND).id()).startsWith("pi_fake_");
+    }
+    
+    @Test
+    void declinedRequestsDoNotOpenTheCircuit() {
+        PaymentGateway gateway = resilient(new FakePaymentGateway(Duration.ZERO), Duration.ofMinutes(1));
+        
+        for (int i = 0; i < 10; i++) {
+            assertThatThrownBy(() -> gateway.retrievePaymentIntent("pi_unknown"))
+                    .isInstanceOf(PaymentGatewayException.class);
+        }
+        assertThat(gateway.createPaymentIntent(COMMAND).id()).startsWith("pi_fake_");
+    }
+    
+    @Test
+    void bulkheadRejectsCallsBeyondTheConcurrencyLimit() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        PaymentGateway gateway = resilient(new FakePaymentGateway(Duration.ZERO) {
+            @Override
+            public GatewayPaymentIntent createPaymentIntent(CreatePaymentIntentCommand command) {
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return super.createPaymentIntent(command);
+            }
+        }, Duration.ofMinutes(1));
+        
+        Thread first = new Thread(() -> gateway.createPaymentIntent(COMMAND));
+        Thread second = new Thread(() -> gateway.createPaymentIntent(COMMAND));
+        first.start();
+        second.start();
+        Thread.sleep(100);
+        
+        assertThatThrownBy(() -> gateway.createPaymentIntent(COMMAND))
+                .isInstanceOf(ServiceBusyException.class)
+                .hasMessageContaining("Too many payment requests");
+        release.countDown();
+        first.join();
+        second.join();
+    }
+    
+    // Two concurrent calls; opens at a 50% failure rate once four calls are recorded
+    private static PaymentGateway resilient(PaymentGateway delegate, Duration openDuration) {
+        return new ResilientPaymentGateway(delegate, new SimpleMeterRegistry(), 2, Duration.ofMillis(50),
+                10, 4, 0.5, openDuration);
+    }
+}
@@ -0,0 +1,121 @@
+package com.hotelbooker.payment.service;
+
+import com.hotelbooker.PostgresModeJpaTest;
+import com.hotelbooker.payment.gateway.CreatePaymentIntentCommand;
+import com.hotelbooker.payment.gateway.GatewayPaymentIntent;
+import com.hotelbooker.payment.gateway.PaymentGateway;
+import com.hotelbooker.payment.model.Payment;
+import com.hotelbooker.payment.model.PaymentOutcomeEvent;
+import com.hotelbooker.payment.repository.PaymentRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@PostgresModeJpaTest
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class PaymentReconcilerTest {
+    
+    private static final int PAYMENTS = 1_050;
+    
+    @Autowired
+    private PaymentRepository paymentRepository;
+    
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    
+    @Test
+    void reconcilesEveryStalePaymentAcrossPages() {
+        LocalDateTime stale = LocalDateTime.now().minusHours(1);
+        List<Object[]> rows = new ArrayList<>();
+        for (int i = 0; i < PAYMENTS; i++) {
+            // Every third intent has been paid, the rest are still waiting on the guest
+            String intentId = (i % 3 == 0 ? "pi_paid_" : "pi_open_") + i;
+            rows.add(new Object[]{UUID.randomUUID().toString(), "booking-" + i, "user-1", intentId, 100.0, "usd",
+                    "PENDING", Timestamp.valueOf(stale), Timestamp.valueOf(stale)});
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO payments (id, booking_id, user_id, stripe_payment_intent_id, amount, " +
+                "currency, status, created_at, updated_at) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)", rows);
+        
+        AtomicInteger gatewayCalls = new AtomicInteger();
+        List<PaymentOutcomeEvent> outcomes = new ArrayList<>();
+        PaymentGateway gateway = new PaymentGateway() {
+            @Override
+            public GatewayPaymentIntent createPaymentIntent(CreatePaymentIntentCommand command) {
+                throw new UnsupportedOperationException();
+            }
+            
+            @Override
+            public GatewayPaymentIntent retrievePaymentIntent(String paymentIntentId) {
+                gatewayCalls.incrementAndGet();
+                return new GatewayPaymentIntent(paymentIntentId, null,
+                        paymentIntentId.startsWith("pi_paid_") ? "succeeded" : "requires_payment_method");
+            }
+        };
+        PaymentReconciler reconciler = new PaymentReconciler(paymentRepository, gateway, jdbcTemplate,
+                event -> {
+                    synchronized (outcomes) {
+                        outcomes.add((PaymentOutcomeEvent) event);
+                    }
+                },
+                new SimpleMeterRegistry(), Duration.ofMinutes(15), Duration.ofDays(2), 100, 4, 100_000);
+        
+        reconciler.reconcile();
+        
+        assertThat(gatewayCalls.get()).isEqualTo(PAYMENTS);
+        assertThat(outcomes).hasSize(PAYMENTS / 3);
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM payments WHERE status = 'SUCCEEDED'",
+                Integer.class)).isEqualTo(PAYMENTS / 3);
+        
+        // Checked payments aren't stale any more, so an immediate rerun has nothing to do
+        reconciler.reconcile();
+        assertThat(gatewayCalls.get()).isEqualTo(PAYMENTS);
+        reconciler.shutdown();
+    }
+    
+    @Test
+    void statusTheStateMachineForbidsOnlyBumpsUpdatedAt() {
+        String id = UUID.randomUUID().toString();
+        Timestamp stale = Timestamp.valueOf(LocalDateTime.now().minusHours(1));
+        jdbcTemplate.update("INSERT INTO payments (id, booking_id, user_id, stripe_payment_intent_id, amount, " +
+                "currency, status, created_at, updated_at) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)",
+                id, "booking-processing", "user-1", "pi_processing_" + id, 100.0, "usd", "PROCESSING", stale, stale);
+        
+        List<PaymentOutcomeEvent> outcomes = new ArrayList<>();
+        PaymentGateway gateway = new PaymentGateway() {
+            @Override
+            public GatewayPaymentIntent createPaymentIntent(CreatePaymentIntentCommand command) {
+                throw new UnsupportedOperationException();
+            }
+            
+            @Override
+            public GatewayPaymentIntent retrievePaymentIntent(String paymentIntentId) {
+                // Maps to PENDING, which a PROCESSING payment may not go back to
+                return new GatewayPaymentIntent(paymentIntentId, null, "requires_payment_method");
+            }
+        };
+        PaymentReconciler reconciler = new PaymentReconciler(paymentRepository, gateway, jdbcTemplate,
+                event -> outcomes.add((PaymentOutcomeEvent) event),
+                new SimpleMeterRegistry(), Duration.ofMinutes(15), Duration.ofDays(2), 100, 1, 100_000);
+        
+        reconciler.reconcile();
+        reconciler.shutdown();
+        
+        Payment payment = paymentRepository.findById(id).orElseThrow();
+        assertThat(payment.getStatus()).isEqualTo(Payment.PaymentStatus.PROCESSING);
+        assertThat(payment.getUpdatedAt()).isAfter(stale.toLocalDateTime());
+        assertThat(outcomes).isEmpty();
+    }
+}
@@ -0,0 +1,122 @@
+package com.hotelbooker.payment.service;
+
+import com.hotelbooker.PostgresModeJpaTest;
+import com.hotelbooker.common.exception.PaymentGatewayException;
+import com.hotelbooker.payment.config.StripeConfig;
+import com.hotelbooker.payment.dto.PaymentIntentRequest;
+import com.hotelbooker.payment.dto.PaymentIntentResponse;
+import com.hotelbooker.payment.gateway.CreatePaymentIntentCommand;
+import com.hotelbooker.payment.gateway.GatewayPaymentIntent;
+import com.hotelbooker.payment.gateway.PaymentGateway;
+import com.hotelbooker.payment.model.Payment;
+import com.hotelbooker.payment.repository.PaymentRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+
+@PostgresModeJpaTest
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class PaymentServiceTest {
+    
+    @Autowired
+    private PaymentRepository paymentRepository;
+    
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+    
+    private final List<String> idempotencyKeys = new ArrayList<>();
+    private final Deque<RuntimeException> failures = new ArrayDeque<>();
+    private PaymentService paymentService;
+    
+    @BeforeEach
+    void setUp() {
+        PaymentGateway gateway = new PaymentGateway() {
+            @Override
+            public GatewayPaymentIntent createPaymentIntent(CreatePaymentIntentCommand command) {
+                idempotencyKeys.add(command.idempotencyKey());
+                if (!failures.isEmpty()) {
+                    throw failures.poll();
+                }
+                return new GatewayPaymentIntent("pi_" + command.idempotencyKey(), "secret", "requires_payment_method");
+            }
+            
+            @Override
+            public GatewayPaymentIntent retrievePaymentIntent(String paymentIntentId) {
+                if (!failures.isEmpty()) {
+                    throw failures.poll();
+                }
+                return new GatewayPaymentIntent(paymentIntentId, null, "succeeded");
+            }
+        };
+        paymentService = new PaymentService(paymentRepository, mock(StripeConfig.class), event -> {
+        }, gateway, new TransactionTemplate(transactionManager));
+    }
+    
+    @Test
+    void transientFailureKeepsThePaymentSoARetryReusesItsIdempotencyKey() {
+        PaymentIntentRequest request = request();
+        failures.add(new PaymentGatewayException("Read timed out", true, null));
+        
+        assertThatThrownBy(() -> paymentService.createPaymentIntent(request, "user-1"))
+                .isInstanceOf(PaymentGatewayException.class);
+        PaymentIntentResponse response = paymentService.createPaymentIntent(request, "user-1");
+        
+        assertThat(idempotencyKeys).hasSize(2);
+        assertThat(idempotencyKeys.get(1)).isEqualTo(idempotencyKeys.get(0));
+        assertThat(response.getPaymentIntentId()).isEqualTo("pi_" + idempotencyKeys.get(0));
+        assertThat(paymentRepository.findByBookingId(request.getBookingId()))
+                .hasValueSatisfying(payment -> {
+                    assertThat(payment.getId()).isEqualTo(idempotencyKeys.get(0));
+                    assertThat(payment.getStatus()).isEqualTo(Payment.PaymentStatus.PENDING);
+                });
+    }
+    
+    @Test
+    void rejectedRequestDeletesThePayment() {
+        PaymentIntentRequest request = request();
+        failures.add(new PaymentGatewayException("Invalid currency", false, null));
+        
+        assertThatThrownBy(() -> paymentService.createPaymentIntent(request, "user-1"))
+                .isInstanceOf(PaymentGatewayException.class);
+        
+        assertThat(paymentRepository.findByBookingId(request.getBookingId())).isEmpty();
+    }
+    
+    @Test
+    void failedLookupOnConfirmLeavesThePaymentUntouched() {
+        PaymentIntentRequest request = request();
+        String intentId = paymentService.createPaymentIntent(request, "user-1").getPaymentIntentId();
+        failures.add(new PaymentGatewayException("Invalid API key provided", false, null));
+        
+        assertThatThrownBy(() -> paymentService.confirmPayment(intentId))
+                .isInstanceOf(PaymentGatewayException.class);
+        
+        assertThat(paymentRepository.findByStripePaymentIntentId(intentId))
+                .hasValueSatisfying(payment -> {
+                    assertThat(payment.getStatus()).isEqualTo(Payment.PaymentStatus.PENDING);
+                    assertThat(payment.getFailureReason()).isNull();
+                });
+    }
+    
+    private static PaymentIntentRequest request() {
+        return PaymentIntentRequest.builder()
+                .amount(120.0)
+                .currency("USD")
+                .bookingId("booking-" + UUID.randomUUID())
+                .build();
+    }
+}
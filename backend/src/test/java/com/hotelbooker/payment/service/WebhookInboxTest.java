@@ -0,0 +1,143 @@
+package com.hotelbooker.payment.service;
+
+import com.hotelbooker.PostgresModeJpaTest;
+import com.hotelbooker.payment.model.Payment;
+import com.hotelbooker.payment.model.PaymentOutcomeEvent;
+import com.hotelbooker.payment.model.WebhookEvent;
+import com.hotelbooker.payment.repository.PaymentRepository;
+import com.hotelbooker.payment.repository.WebhookEventRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+@PostgresModeJpaTest
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class WebhookInboxTest {
+    
+    @Autowired
+    private WebhookEventRepository webhookEventRepository;
+    
+    @Autowired
+    private PaymentRepository paymentRepository;
+    
+    private final WebhookEventProcessor processor = mock(WebhookEventProcessor.class);
+    private WebhookInbox inbox;
+    
+    @AfterEach
+    void tearDown() {
+        if (inbox != null) {
+            inbox.shutdown();
+        }
+    }
+    
+    @Test
+    void redeliveredEventIsStoredAndProcessedOnce() {
+        inbox = inbox(Duration.ofSeconds(30), 10);
+        
+        assertThat(inbox.accept("evt_dup", "payment_intent.succeeded", "pi_dup", "{}")).isTrue();
+        assertThat(inbox.accept("evt_dup", "payment_intent.succeeded", "pi_dup", "{}")).isFalse();
+        
+        verify(processor, timeout(5_000)).process("evt_dup");
+        assertThat(webhookEventRepository.count()).isEqualTo(1);
+        verify(processor, times(1)).process("evt_dup");
+    }
+    
+    @Test
+    void acceptAcknowledgesBeforeTheEventIsProcessed() throws Exception {
+        inbox = inbox(Duration.ofSeconds(30), 10);
+        CountDownLatch processing = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        doAnswer(invocation -> {
+            processing.countDown();
+            release.await(5, TimeUnit.SECONDS);
+            return null;
+        }).when(processor).process("evt_slow");
+        
+        assertThat(inbox.accept("evt_slow", "payment_intent.succeeded", "pi_slow", "{}")).isTrue();
+        
+        // accept() returned while the worker is still busy with the event
+        assertThat(processing.await(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(release.getCount()).isEqualTo(1);
+        release.countDown();
+    }
+    
+    @Test
+    void failingEventIsRetriedWithBackoffUntilMarkedFailed() throws Exception {
+        int maxAttempts = 3;
+        inbox = inbox(Duration.ofMillis(5), maxAttempts);
+        doThrow(new RuntimeException("payment service down")).when(processor).process("evt_bad");
+        
+        inbox.accept("evt_bad", "payment_intent.succeeded", "pi_bad", "{}");
+        
+        List<Long> delays = new ArrayList<>();
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        WebhookEvent event = webhookEventRepository.findById("evt_bad").orElseThrow();
+        while (event.getStatus() != WebhookEvent.Status.FAILED && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+            inbox.recover();
+            WebhookEvent current = webhookEventRepository.findById("evt_bad").orElseThrow();
+            if (current.getAttempts() > event.getAttempts() && current.getNextAttemptAt() != null) {
+                delays.add(Duration.between(current.getReceivedAt(), current.getNextAttemptAt()).toMillis());
+            }
+            event = current;
+        }
+        
+        assertThat(event.getStatus()).isEqualTo(WebhookEvent.Status.FAILED);
+        assertThat(event.getAttempts()).isEqualTo(maxAttempts);
+        assertThat(event.getLastError()).contains("payment service down");
+        assertThat(event.getNextAttemptAt()).isNull();
+        assertThat(delays).isSorted();
+        verify(processor, times(maxAttempts)).process("evt_bad");
+        
+        // Once failed it is left alone
+        Thread.sleep(50);
+        inbox.recover();
+        verify(processor, times(maxAttempts)).process("evt_bad");
+    }
+    
+    @Test
+    void staleFailureCannotUndoASucceededPayment() {
+        List<Object> published = new ArrayList<>();
+        PaymentService paymentService = new PaymentService(paymentRepository, null, published::add, null, null);
+        paymentRepository.save(Payment.builder()
+                .bookingId("booking-1")
+                .userId("user-1")
+                .stripePaymentIntentId("pi_late")
+                .amount(100.0)
+                .currency("usd")
+                .status(Payment.PaymentStatus.PENDING)
+                .build());
+        
+        paymentService.updatePaymentStatus("pi_late", Payment.PaymentStatus.SUCCEEDED, null);
+        // A payment_failed retried from the inbox after the success was applied
+        paymentService.updatePaymentStatus("pi_late", Payment.PaymentStatus.FAILED, "card declined");
+        paymentService.updatePaymentStatus("pi_late", Payment.PaymentStatus.PROCESSING, null);
+        
+        Payment payment = paymentRepository.findByStripePaymentIntentId("pi_late").orElseThrow();
+        assertThat(payment.getStatus()).isEqualTo(Payment.PaymentStatus.SUCCEEDED);
+        assertThat(payment.getFailureReason()).isNull();
+        assertThat(published).singleElement()
+                .extracting(event -> ((PaymentOutcomeEvent) event).getStatus())
+                .isEqualTo(Payment.PaymentStatus.SUCCEEDED);
+    }
+    
+    private WebhookInbox inbox(Duration retryDelay, int maxAttempts) {
+        return new WebhookInbox(webhookEventRepository, processor, 2, 16, retryDelay, maxAttempts, 100);
+    }
+}
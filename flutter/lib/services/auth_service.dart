@@ -19,8 +19,9 @@ class AuthService {
         final token = authData['accessToken'];
         final user = User.fromJson(authData['user']);
 
-        // Save token and user
+        // Save tokens and user
         await _api.setAuthToken(token);
+        await _saveRefreshToken(authData['refreshToken']);
         await _saveUser(user);
 
         return {
@@ -69,8 +70,9 @@ class AuthService {
         final token = authData['accessToken'];
         final user = User.fromJson(authData['user']);
 
-        // Save token and user
+        // Save tokens and user
         await _api.setAuthToken(token);
+        await _saveRefreshToken(authData['refreshToken']);
         await _saveUser(user);
 
         return {
@@ -103,7 +105,41 @@ class AuthService {
     }
   }
 
+  // Swaps the stored refresh token for a new token pair. Refresh tokens are
+  // single-use, so the new one must replace the old one before the next call.
+  Future<bool> refreshSession() async {
+    final prefs = await SharedPreferences.getInstance();
+    final refreshToken = prefs.getString('refresh_token');
+    if (refreshToken == null) return false;
+
+    try {
+      final response = await _api.post('/auth/refresh', data: {
+        'refreshToken': refreshToken,
+      });
+
+      if (response.data['success']) {
+        final authData = response.data['data'];
+        await _api.setAuthToken(authData['accessToken']);
+        await _saveRefreshToken(authData['refreshToken']);
+        return true;
+      }
+      return false;
+    } on DioException {
+      return false;
+    }
+  }
+
   Future<void> logout() async {
+    final prefs = await SharedPreferences.getInstance();
+    final refreshToken = prefs.getString('refresh_token');
+    if (refreshToken != null) {
+      try {
+        await _api.post('/auth/logout', data: {'refreshToken': refreshToken});
+      } on DioException {
+        // Logging out locally still works if the server can't be reached
+      }
+    }
+    await prefs.remove('refresh_token');
     await _api.clearToken();
     await _clearUser();
   }
@@ -113,6 +149,12 @@ class AuthService {
     return token != null;
   }
 
+  Future<void> _saveRefreshToken(String? token) async {
+    if (token == null) return;
+    final prefs = await SharedPreferences.getInstance();
+    await prefs.setString('refresh_token', token);
+  }
+
   // User management
   Future<void> _saveUser(User user) async {
     final prefs = await SharedPreferences.getInstance();
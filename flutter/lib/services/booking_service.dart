@@ -70,15 +70,23 @@ class BookingService {
     }
   }
 
-  Future<Map<String, dynamic>> getUserBookings() async {
+  Future<Map<String, dynamic>> getUserBookings(
+      {String? cursor, int limit = 20}) async {
     try {
-      final response = await _api.get('/bookings');
+      final response = await _api.get('/bookings', queryParameters: {
+        'limit': limit,
+        if (cursor != null) 'cursor': cursor,
+      });
 
       if (response.data['success']) {
-        final List<dynamic> bookingsJson = response.data['data'];
+        final List<dynamic> bookingsJson = response.data['data']['items'];
         final bookings =
             bookingsJson.map((json) => Booking.fromJson(json)).toList();
-        return {'success': true, 'bookings': bookings};
+        return {
+          'success': true,
+          'bookings': bookings,
+          'nextCursor': response.data['data']['nextCursor'],
+        };
       }
       return {'success': false, 'message': response.data['message']};
     } on DioException catch (e) {
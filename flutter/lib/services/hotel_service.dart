@@ -15,6 +15,9 @@ class HotelService {
     double? maxPrice,
     int? minStarRating,
     double? minGuestRating,
+    String? sortBy,
+    int? pageSize,
+    String? pageToken,
   }) async {
     try {
       final response = await _api.post('/hotels/search', data: {
@@ -27,12 +30,19 @@ class HotelService {
         if (maxPrice != null) 'maxPrice': maxPrice,
         if (minStarRating != null) 'minStarRating': minStarRating,
         if (minGuestRating != null) 'minGuestRating': minGuestRating,
+        if (sortBy != null) 'sortBy': sortBy,
+        if (pageSize != null) 'pageSize': pageSize,
+        if (pageToken != null) 'pageToken': pageToken,
       });
 
       if (response.data['success']) {
-        final List<dynamic> hotelsJson = response.data['data'];
+        final List<dynamic> hotelsJson = response.data['data']['hotels'];
         final hotels = hotelsJson.map((json) => Hotel.fromJson(json)).toList();
-        return {'success': true, 'hotels': hotels};
+        return {
+          'success': true,
+          'hotels': hotels,
+          'nextPageToken': response.data['data']['nextPageToken'],
+        };
       }
       return {'success': false, 'message': response.data['message']};
     } on DioException catch (e) {